@@ -0,0 +1,25 @@
+-- ============================================================
+-- MIGRATION: DÙNG MÃ GIẢM GIÁ KHÔNG VƯỢT usage_limit
+-- ============================================================
+-- Mỗi lần dùng mã là một UPDATE có điều kiện used_count < usage_limit, DB tự chặn vượt giới hạn.
+-- Mã chạy khuyến mãi lớn đánh dấu high_volume = true: server lấy trước từng khối lượt dùng
+-- vào bộ đếm trong bộ nhớ (HotCouponPool), trả phần chưa dùng về DB khi mã hết dùng/tắt server.
+--   UPDATE coupons SET high_volume = true WHERE code IN (...);
+
+BEGIN;
+
+-- 1. Cờ mã high_volume; used_count không âm (admin vẫn được hạ usage_limit xuống dưới used_count)
+ALTER TABLE coupons ADD COLUMN IF NOT EXISTS high_volume BOOLEAN NOT NULL DEFAULT false;
+UPDATE coupons SET used_count = 0 WHERE used_count IS NULL;
+ALTER TABLE coupons ALTER COLUMN used_count SET NOT NULL;
+ALTER TABLE coupons DROP CONSTRAINT IF EXISTS chk_coupons_used_count;
+-- NOT VALID: không kiểm tra dữ liệu cũ, chỉ chặn các lần ghi mới
+ALTER TABLE coupons ADD CONSTRAINT chk_coupons_used_count
+    CHECK (used_count >= 0) NOT VALID;
+
+-- 2. Mã lưu dạng chuẩn hoá (trim + chữ hoa) như CouponIndex; bỏ qua mã trùng nhau sau khi chuẩn hoá
+UPDATE coupons c SET code = UPPER(TRIM(c.code))
+WHERE c.code <> UPPER(TRIM(c.code))
+  AND NOT EXISTS (SELECT 1 FROM coupons o WHERE o.id <> c.id AND UPPER(TRIM(o.code)) = UPPER(TRIM(c.code)));
+
+COMMIT;
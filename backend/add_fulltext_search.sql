@@ -0,0 +1,56 @@
+-- ============================================================
+-- MIGRATION: FULL-TEXT SEARCH (tsvector + GIN, pg_trgm)
+-- MỤC ĐÍCH: tìm kiếm admin trên orders/users/coupons/products dùng index
+--           thay cho chuỗi LOWER(col) LIKE '%...%'
+-- CÁCH CHẠY: psql -U postgres -d ecommerce -f add_fulltext_search.sql
+-- BẬT: search.mode: fulltext trong application.yml
+-- ============================================================
+
+BEGIN;
+
+CREATE EXTENSION IF NOT EXISTS unaccent;
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+-- unaccent() không IMMUTABLE nên không dùng trực tiếp trong generated column được
+CREATE OR REPLACE FUNCTION f_unaccent(text)
+RETURNS text
+LANGUAGE sql IMMUTABLE PARALLEL SAFE STRICT AS
+$$ SELECT public.unaccent('public.unaccent', $1) $$;
+
+-- 1. ORDERS
+ALTER TABLE orders
+ADD COLUMN IF NOT EXISTS search_vector tsvector GENERATED ALWAYS AS (
+    setweight(to_tsvector('simple', f_unaccent(coalesce(fullname, ''))), 'A') ||
+    setweight(to_tsvector('simple', coalesce(email, '')), 'B') ||
+    setweight(to_tsvector('simple', f_unaccent(coalesce(shipping_address, '') || ' ' || coalesce(note, ''))), 'C')
+) STORED;
+CREATE INDEX IF NOT EXISTS idx_orders_search_vector ON orders USING GIN (search_vector);
+CREATE INDEX IF NOT EXISTS idx_orders_phone_number_trgm ON orders USING GIN (phone_number gin_trgm_ops);
+
+-- 2. USERS
+ALTER TABLE users
+ADD COLUMN IF NOT EXISTS search_vector tsvector GENERATED ALWAYS AS (
+    setweight(to_tsvector('simple', f_unaccent(coalesce(fullname, ''))), 'A') ||
+    setweight(to_tsvector('simple', f_unaccent(coalesce(address, ''))), 'B')
+) STORED;
+CREATE INDEX IF NOT EXISTS idx_users_search_vector ON users USING GIN (search_vector);
+CREATE INDEX IF NOT EXISTS idx_users_phone_number_trgm ON users USING GIN (phone_number gin_trgm_ops);
+
+-- 3. COUPONS
+ALTER TABLE coupons
+ADD COLUMN IF NOT EXISTS search_vector tsvector GENERATED ALWAYS AS (
+    setweight(to_tsvector('simple', lower(code)), 'A') ||
+    setweight(to_tsvector('simple', f_unaccent(coalesce(name, ''))), 'B')
+) STORED;
+CREATE INDEX IF NOT EXISTS idx_coupons_search_vector ON coupons USING GIN (search_vector);
+CREATE INDEX IF NOT EXISTS idx_coupons_code_trgm ON coupons USING GIN (lower(code) gin_trgm_ops);
+
+-- 4. PRODUCTS (dùng khi index tìm kiếm trong bộ nhớ chưa sẵn sàng)
+ALTER TABLE products
+ADD COLUMN IF NOT EXISTS search_vector tsvector GENERATED ALWAYS AS (
+    setweight(to_tsvector('simple', f_unaccent(coalesce(name, ''))), 'A') ||
+    setweight(to_tsvector('simple', f_unaccent(coalesce(description, ''))), 'B')
+) STORED;
+CREATE INDEX IF NOT EXISTS idx_products_search_vector ON products USING GIN (search_vector);
+
+COMMIT;
@@ -0,0 +1,22 @@
+-- ============================================================
+-- MIGRATION: IDEMPOTENCY-KEY CHO ĐẶT ĐƠN / TẠO URL THANH TOÁN
+-- ============================================================
+-- POST /orders và POST /payments/create_payment_url có header Idempotency-Key:
+-- response đầu tiên được lưu lại, client gửi lại cùng key nhận đúng response đó
+-- mà không tạo đơn/mã giao dịch mới. Key và request lưu dạng SHA-256 cho gọn.
+
+BEGIN;
+
+CREATE TABLE IF NOT EXISTS idempotency_keys (
+    key_hash     BYTEA PRIMARY KEY,          -- sha256(user_id:Idempotency-Key)
+    request_hash BYTEA NOT NULL,             -- sha256(method, path, body)
+    status_code  SMALLINT,                   -- NULL: request đầu tiên đang xử lý
+    content_type VARCHAR(100),
+    body         BYTEA,
+    expires_at   TIMESTAMP NOT NULL
+);
+
+-- job dọn key hết hạn
+CREATE INDEX IF NOT EXISTS idx_idempotency_keys_expires_at ON idempotency_keys(expires_at);
+
+COMMIT;
@@ -0,0 +1,22 @@
+-- ============================================================
+-- MIGRATION: INDEX CHO PHÂN TRANG KEYSET (?after=cursor)
+-- ============================================================
+-- Các query seek (WHERE id > :afterId ORDER BY id LIMIT n) đọc thẳng
+-- từ vị trí cursor trên index, không quét OFFSET và không cần COUNT(*)
+
+BEGIN;
+
+-- 1. Products: lọc theo danh mục rồi seek theo id
+CREATE INDEX IF NOT EXISTS idx_products_category_id_id ON products(category_id, id);
+
+-- 2. Orders (admin): chỉ đơn hàng còn active
+CREATE INDEX IF NOT EXISTS idx_orders_active_id ON orders(id) WHERE active = true;
+
+-- 3. Users (admin): chỉ tài khoản còn active
+CREATE INDEX IF NOT EXISTS idx_users_active_id ON users(id) WHERE is_active = true;
+
+-- 4. Reviews theo sản phẩm: seek theo (created_at, id) giảm dần
+CREATE INDEX IF NOT EXISTS idx_reviews_product_created_at_id
+    ON reviews(product_id, created_at DESC, id DESC);
+
+COMMIT;
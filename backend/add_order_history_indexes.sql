@@ -0,0 +1,14 @@
+-- ============================================================
+-- MIGRATION: INDEX CHO LỊCH SỬ ĐƠN HÀNG CỦA USER (GET /orders/user)
+-- ============================================================
+-- Lịch sử đơn phân trang keyset giảm dần theo id (?after=cursor):
+-- seek trên (user_id, id), lọc trạng thái trên (user_id, status, id)
+
+BEGIN;
+
+CREATE INDEX IF NOT EXISTS idx_orders_user_id_id ON orders(user_id, id DESC);
+CREATE INDEX IF NOT EXISTS idx_orders_user_id_status_id ON orders(user_id, status, id DESC);
+-- chi tiết của cả trang đơn hàng (WHERE order_id IN ...)
+CREATE INDEX IF NOT EXISTS idx_order_details_order_id ON order_details(order_id);
+
+COMMIT;
@@ -0,0 +1,19 @@
+-- ============================================================
+-- MIGRATION: SEQUENCE THEO KHỐI CHO ORDERS / ORDER_DETAILS
+-- ============================================================
+-- Order và OrderDetail chuyển từ IDENTITY sang SEQUENCE (allocationSize = 50):
+-- Hibernate lấy 1 giá trị sequence cho mỗi 50 id và gửi INSERT theo batch.
+-- INCREMENT BY phải bằng allocationSize. Các INSERT khác dùng DEFAULT nextval(...)
+-- vẫn an toàn, chỉ là id không còn liên tiếp.
+
+BEGIN;
+
+-- 1. orders
+ALTER SEQUENCE orders_id_seq INCREMENT BY 50;
+SELECT setval('orders_id_seq', (SELECT COALESCE(MAX(id), 0) FROM orders) + 50);
+
+-- 2. order_details
+ALTER SEQUENCE order_details_id_seq INCREMENT BY 50;
+SELECT setval('order_details_id_seq', (SELECT COALESCE(MAX(id), 0) FROM order_details) + 50);
+
+COMMIT;
@@ -0,0 +1,21 @@
+-- ============================================================
+-- MIGRATION: DANH SÁCH SẢN PHẨM LIÊN QUAN TÍNH SẴN
+-- ============================================================
+-- Mỗi sản phẩm giữ top-N id sản phẩm liên quan (cùng danh mục, giá gần,
+-- hay được mua cùng), dùng cho GET /products/{categoryId}/{productId}
+
+BEGIN;
+
+-- 1. Bảng danh sách hàng xóm, thứ tự trong mảng là thứ tự hiển thị
+CREATE TABLE IF NOT EXISTS product_neighbors (
+    product_id   BIGINT PRIMARY KEY REFERENCES products(id) ON DELETE CASCADE,
+    neighbor_ids BIGINT[] NOT NULL,
+    updated_at   TIMESTAMP NOT NULL DEFAULT NOW()
+);
+
+-- 2. Index cho các query lúc tính: sản phẩm cùng danh mục theo giá, mua cùng đơn
+CREATE INDEX IF NOT EXISTS idx_products_category_id_price ON products(category_id, price);
+CREATE INDEX IF NOT EXISTS idx_order_details_order_id ON order_details(order_id);
+CREATE INDEX IF NOT EXISTS idx_product_variants_product_id ON product_variants(product_id);
+
+COMMIT;
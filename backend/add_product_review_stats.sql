@@ -0,0 +1,36 @@
+-- ============================================================
+-- MIGRATION: THỐNG KÊ ĐÁNH GIÁ THEO SẢN PHẨM
+-- ============================================================
+-- Số review, tổng điểm và số review theo từng mức 1-5 sao của mỗi sản phẩm,
+-- cập nhật cùng transaction với thêm/sửa/xoá review (ReviewService).
+-- GET /reviews/product/{id}/stats chỉ còn đọc một dòng theo khoá chính.
+
+BEGIN;
+
+CREATE TABLE IF NOT EXISTS product_review_stats (
+    product_id   BIGINT PRIMARY KEY REFERENCES products(id) ON DELETE CASCADE,
+    review_count INT NOT NULL DEFAULT 0,
+    rating_sum   BIGINT NOT NULL DEFAULT 0,
+    rating_1     INT NOT NULL DEFAULT 0,
+    rating_2     INT NOT NULL DEFAULT 0,
+    rating_3     INT NOT NULL DEFAULT 0,
+    rating_4     INT NOT NULL DEFAULT 0,
+    rating_5     INT NOT NULL DEFAULT 0,
+    updated_at   TIMESTAMP NOT NULL DEFAULT NOW()
+);
+
+-- Tính từ các review hiện có (chạy lại được: ghi đè bằng số liệu mới nhất)
+INSERT INTO product_review_stats (product_id, review_count, rating_sum,
+                                  rating_1, rating_2, rating_3, rating_4, rating_5)
+SELECT product_id, COUNT(*), SUM(rating),
+       COUNT(*) FILTER (WHERE rating = 1), COUNT(*) FILTER (WHERE rating = 2),
+       COUNT(*) FILTER (WHERE rating = 3), COUNT(*) FILTER (WHERE rating = 4),
+       COUNT(*) FILTER (WHERE rating = 5)
+FROM reviews
+GROUP BY product_id
+ON CONFLICT (product_id) DO UPDATE SET
+    review_count = EXCLUDED.review_count, rating_sum = EXCLUDED.rating_sum,
+    rating_1 = EXCLUDED.rating_1, rating_2 = EXCLUDED.rating_2, rating_3 = EXCLUDED.rating_3,
+    rating_4 = EXCLUDED.rating_4, rating_5 = EXCLUDED.rating_5, updated_at = NOW();
+
+COMMIT;
@@ -0,0 +1,27 @@
+-- ============================================================
+-- MIGRATION: BẢNG TỔNG HỢP DOANH THU THEO NGÀY
+-- ============================================================
+-- Doanh thu đơn đã giao (delivered) cộng dồn theo ngày đặt hàng, theo sản phẩm và theo danh mục.
+-- Được cập nhật khi đơn chuyển vào/ra trạng thái delivered (kể cả returned),
+-- GET /revenues/* chỉ đọc các bảng này. POST /revenues/rebuild tính lại từ đầu.
+
+BEGIN;
+
+CREATE TABLE IF NOT EXISTS revenue_daily_product (
+    day        DATE NOT NULL,
+    product_id BIGINT NOT NULL,
+    quantity   BIGINT NOT NULL DEFAULT 0,
+    revenue    DOUBLE PRECISION NOT NULL DEFAULT 0,
+    PRIMARY KEY (day, product_id)
+);
+
+-- danh mục của sản phẩm tại thời điểm đơn được giao
+CREATE TABLE IF NOT EXISTS revenue_daily_category (
+    day         DATE NOT NULL,
+    category_id BIGINT NOT NULL,
+    quantity    BIGINT NOT NULL DEFAULT 0,
+    revenue     DOUBLE PRECISION NOT NULL DEFAULT 0,
+    PRIMARY KEY (day, category_id)
+);
+
+COMMIT;
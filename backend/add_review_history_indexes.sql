@@ -0,0 +1,18 @@
+-- ============================================================
+-- MIGRATION: INDEX CHO LỊCH SỬ REVIEW CỦA USER
+-- ============================================================
+-- GET /reviews/user phân trang keyset: WHERE user_id = ? AND (created_at, id) < cursor
+-- ORDER BY created_at DESC, id DESC LIMIT n đọc thẳng từ vị trí cursor trên index.
+-- So sánh với NULL không bao giờ đúng nên review cũ thiếu created_at được gán mốc trước (updated_at,
+-- không có thì 1970-01-01: xếp cuối lịch sử) và cột chuyển sang NOT NULL
+
+BEGIN;
+
+UPDATE reviews SET created_at = COALESCE(updated_at, TIMESTAMP '1970-01-01') WHERE created_at IS NULL;
+ALTER TABLE reviews ALTER COLUMN created_at SET DEFAULT NOW();
+ALTER TABLE reviews ALTER COLUMN created_at SET NOT NULL;
+
+CREATE INDEX IF NOT EXISTS idx_reviews_user_created_at_id
+    ON reviews(user_id, created_at DESC, id DESC);
+
+COMMIT;
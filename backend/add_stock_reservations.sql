@@ -0,0 +1,36 @@
+-- ============================================================
+-- MIGRATION: GIỮ HÀNG KHI ĐẶT ĐƠN (STOCK RESERVATION)
+-- ============================================================
+-- Đặt đơn trừ product_variants.quantity bằng UPDATE có điều kiện (quantity >= số lượng),
+-- mỗi dòng đơn ghi một reservation để trả hàng lại khi huỷ đơn hoặc hết hạn thanh toán.
+-- Biến thể bán chạy (flash sale) đánh dấu hot = true: server lấy trước từng khối hàng
+-- vào bộ đếm trong bộ nhớ, trả phần chưa bán về DB khi biến thể hết bán/tắt server.
+--   UPDATE product_variants SET hot = true WHERE id IN (...);
+
+BEGIN;
+
+-- 1. Cờ biến thể hot và ràng buộc không bán âm kho
+ALTER TABLE product_variants ADD COLUMN IF NOT EXISTS hot BOOLEAN NOT NULL DEFAULT false;
+ALTER TABLE product_variants DROP CONSTRAINT IF EXISTS chk_product_variants_quantity;
+-- NOT VALID: không kiểm tra dữ liệu cũ, chỉ chặn các lần ghi mới
+ALTER TABLE product_variants ADD CONSTRAINT chk_product_variants_quantity CHECK (quantity >= 0) NOT VALID;
+
+-- 2. Reservation: reserved (chờ thanh toán, có expires_at) -> committed | released
+CREATE TABLE IF NOT EXISTS stock_reservations (
+    id         BIGSERIAL PRIMARY KEY,
+    -- kiểm tra lúc commit: reservation được ghi trước khi Hibernate flush INSERT của đơn
+    order_id   BIGINT NOT NULL REFERENCES orders(id) ON DELETE CASCADE DEFERRABLE INITIALLY DEFERRED,
+    variant_id BIGINT NOT NULL REFERENCES product_variants(id) ON DELETE CASCADE,
+    quantity   INT NOT NULL CHECK (quantity > 0),
+    hot        BOOLEAN NOT NULL DEFAULT false,
+    status     VARCHAR(20) NOT NULL,
+    expires_at TIMESTAMP,
+    created_at TIMESTAMP NOT NULL DEFAULT NOW()
+);
+
+CREATE INDEX IF NOT EXISTS idx_stock_reservations_order_id ON stock_reservations(order_id);
+-- job hết hạn thanh toán chỉ quét các reservation còn đang giữ
+CREATE INDEX IF NOT EXISTS idx_stock_reservations_expires_at
+    ON stock_reservations(expires_at) WHERE status = 'reserved';
+
+COMMIT;
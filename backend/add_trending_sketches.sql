@@ -0,0 +1,17 @@
+-- ============================================================
+-- MIGRATION: LƯU SKETCH SẢN PHẨM THỊNH HÀNH
+-- ============================================================
+-- Mỗi cửa sổ (1h, 24h, 7d) giữ một sketch Space-Saving top-K trong bộ nhớ,
+-- định kỳ ghi xuống đây để khởi động lại không mất độ phổ biến đã tích luỹ.
+
+BEGIN;
+
+CREATE TABLE IF NOT EXISTS trending_sketches (
+    window_name VARCHAR(10) PRIMARY KEY,
+    -- mốc thời gian (epoch ms) của trọng số forward decay
+    landmark_ms BIGINT NOT NULL,
+    data        BYTEA NOT NULL,
+    updated_at  TIMESTAMP NOT NULL DEFAULT NOW()
+);
+
+COMMIT;
@@ -258,6 +258,8 @@ CREATE INDEX IF NOT EXISTS idx_chatbot_messages_session_id ON chatbot_messages(s
 CREATE INDEX IF NOT EXISTS idx_chatbot_faq_category ON chatbot_faq(category);
 CREATE INDEX IF NOT EXISTS idx_chatbot_faq_active ON chatbot_faq(is_active);
 
+-- Full-text search (tsvector + GIN, pg_trgm): xem add_fulltext_search.sql
+
 -- ===========================================
 -- SAMPLE DATA INSERTION
 -- ===========================================
@@ -0,0 +1,106 @@
+package com.project.ecommerce.components;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.project.ecommerce.utils.TransactionUtils;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Cache Caffeine mà lần load chỉ được ghi vào cache nếu chính key đó không bị invalidate trong lúc load
+ * (load bắt đầu trước khi transaction ghi commit có thể đọc phải dữ liệu cũ).
+ * Phiên bản được giữ theo từng key và chỉ khi key đang có lần load chạy:
+ * invalidate key khác không làm hỏng lần load nào.
+ * Dùng cho ProductDetailCache và ReviewStatsCache.
+ */
+public final class GuardedCache<K, V> {
+    private final Cache<K, V> cache;
+    // key đang có lần load chạy; chỉ đọc/ghi trong compute của map
+    private final ConcurrentHashMap<K, Loads> loads = new ConcurrentHashMap<>();
+
+    private static final class Loads {
+        private long generation;
+        private int active;
+    }
+
+    public GuardedCache(Cache<K, V> cache) {
+        this.cache = cache;
+    }
+
+    public V getIfPresent(K key) {
+        return cache.getIfPresent(key);
+    }
+
+    public Map<K, V> getAllPresent(Iterable<? extends K> keys) {
+        return cache.getAllPresent(keys);
+    }
+
+    public V load(K key, Function<K, V> loader) {
+        long generation = begin(key);
+        V loaded = null;
+        try {
+            loaded = loader.apply(key);
+            return loaded;
+        } finally {
+            finish(key, generation, loaded);
+        }
+    }
+
+    //load một lần cho nhiều key (vd một query IN)
+    public Map<K, V> loadAll(Collection<K> keys, Function<Collection<K>, Map<K, V>> loader) {
+        Map<K, Long> generations = new HashMap<>();
+        for (K key : keys) {
+            generations.put(key, begin(key));
+        }
+        Map<K, V> loaded = Map.of();
+        try {
+            loaded = loader.apply(keys);
+            return loaded;
+        } finally {
+            for (Map.Entry<K, Long> entry : generations.entrySet()) {
+                finish(entry.getKey(), entry.getValue(), loaded.get(entry.getKey()));
+            }
+        }
+    }
+
+    /**
+     * Xoá ngay và xoá lại sau khi transaction commit: lần đọc xen giữa
+     * (còn thấy dữ liệu cũ trong DB) không để lại bản cũ trong cache.
+     */
+    public void invalidate(K key) {
+        invalidateNow(key);
+        TransactionUtils.afterCommit(() -> invalidateNow(key));
+    }
+
+    private void invalidateNow(K key) {
+        loads.computeIfPresent(key, (k, current) -> {
+            current.generation++;
+            return current;
+        });
+        cache.invalidate(key);
+    }
+
+    private long begin(K key) {
+        long[] generation = new long[1];
+        loads.compute(key, (k, current) -> {
+            Loads started = current == null ? new Loads() : current;
+            started.active++;
+            generation[0] = started.generation;
+            return started;
+        });
+        return generation[0];
+    }
+
+    //ghi cùng lúc với kiểm tra phiên bản, invalidate chen vào giữa không bị ghi đè
+    private void finish(K key, long generation, V loaded) {
+        loads.compute(key, (k, current) -> {
+            if (loaded != null && current.generation == generation) {
+                cache.put(k, loaded);
+            }
+            return --current.active == 0 ? null : current;
+        });
+    }
+}
@@ -0,0 +1,318 @@
+package com.project.ecommerce.components;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+
+/**
+ * Trả file ảnh trong thư mục uploads:
+ * - Tomcat hỗ trợ sendfile thì giao file cho connector gửi thẳng từ kernel,
+ *   nếu không thì FileChannel.transferTo, không copy qua buffer của ứng dụng
+ * - Hỗ trợ Range một đoạn (206/416), ETag là SHA-256 nội dung (304 với If-None-Match)
+ * - Content-Type theo magic bytes thay vì luôn là image/jpeg
+ * - Tên file upload có UUID nên nội dung không đổi: Cache-Control immutable 1 năm
+ * Metadata (kích thước, loại, ETag) được cache; tên file không tồn tại được nhớ
+ * trong negative cache để request ảnh hỏng không chạm filesystem mỗi lần.
+ */
+@Component
+public class ImageFileServer {
+    private static final Logger logger = LoggerFactory.getLogger(ImageFileServer.class);
+
+    public static final String UPLOAD_DIR = "uploads";
+    private static final String NOT_FOUND_IMAGE = "notfound.jpeg";
+    private static final String IMMUTABLE = "public, max-age=31536000, immutable";
+    // ảnh thay thế/ảnh tạm: cache ngắn vì nội dung thật có thể có sau
+    private static final String FALLBACK_CACHE_CONTROL = "public, max-age=300";
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private static final long[] UNSATISFIABLE = new long[0];
+
+    private final Path root = Paths.get(UPLOAD_DIR).toAbsolutePath().normalize();
+    private final Cache<String, ImageFile> files;
+    private final Cache<String, Boolean> missing;
+
+    public ImageFileServer(@Value("${image.cache.max-size:10000}") long maxSize,
+                           @Value("${image.cache.missing-ttl-minutes:5}") long missingTtlMinutes) {
+        this.files = Caffeine.newBuilder().maximumSize(maxSize).build();
+        this.missing = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMinutes(missingTtlMinutes))
+                .build();
+    }
+
+    private record ImageFile(Path path, long length, String contentType, String hash) {
+        String etag() {
+            return "\"" + hash + "\"";
+        }
+    }
+
+    public void serve(String name, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        serve(name, true, request, response);
+    }
+
+    /**
+     * immutable = false khi nội dung trả về cho URL này có thể đổi sau
+     * (vd ảnh gốc trả tạm cho ?size= khi ảnh thu nhỏ chưa tạo xong)
+     */
+    public void serve(String name, boolean immutable,
+                      HttpServletRequest request, HttpServletResponse response) throws IOException {
+        ImageFile file = lookup(name);
+        String cacheControl = immutable ? IMMUTABLE : FALLBACK_CACHE_CONTROL;
+        if (file == null) {
+            file = lookup(NOT_FOUND_IMAGE);
+            cacheControl = FALLBACK_CACHE_CONTROL;
+            if (file == null) {
+                response.sendError(HttpServletResponse.SC_NOT_FOUND);
+                return;
+            }
+        }
+        response.setHeader(HttpHeaders.ETAG, file.etag());
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader("X-Content-Type-Options", "nosniff");
+        response.setContentType(file.contentType());
+        if (matches(request.getHeader(HttpHeaders.IF_NONE_MATCH), file.etag())) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        long start = 0;
+        long end = file.length() - 1;
+        String range = request.getHeader(HttpHeaders.RANGE);
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        // If-Range khác ETag hiện tại: client giữ bản cũ, trả cả file
+        if (range != null && (ifRange == null || ifRange.equals(file.etag()))) {
+            long[] bounds = parseRange(range, file.length());
+            if (bounds == UNSATISFIABLE) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + file.length());
+                response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+            if (bounds != null) {
+                start = bounds[0];
+                end = bounds[1];
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE,
+                        "bytes " + start + "-" + end + "/" + file.length());
+            }
+        }
+        long count = end - start + 1;
+        response.setContentLengthLong(count);
+        if (count <= 0 || "HEAD".equals(request.getMethod())) {
+            return;
+        }
+        transfer(file.path(), start, count, request, response);
+    }
+
+    public boolean exists(String name) {
+        return lookup(name) != null;
+    }
+
+    /**
+     * SHA-256 (hex) nội dung file, null nếu file không tồn tại
+     */
+    public String contentHash(String name) {
+        ImageFile file = lookup(name);
+        return file == null ? null : file.hash();
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    /**
+     * Đường dẫn tuyệt đối của file trong thư mục uploads, null nếu tên không hợp lệ
+     */
+    public Path resolve(String name) {
+        Path path = root.resolve(name).normalize();
+        return path.startsWith(root) && !path.equals(root) ? path : null;
+    }
+
+    /**
+     * Gọi khi file được ghi mới hoặc bị xoá
+     */
+    public void evict(String name) {
+        files.invalidate(name);
+        missing.invalidate(name);
+    }
+
+    private void transfer(Path path, long start, long count,
+                          HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            // connector gửi file sau khi servlet trả về, end không bao gồm
+            request.setAttribute(SENDFILE_FILENAME, path.toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, start + count);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            long remaining = count;
+            while (remaining > 0) {
+                long written = channel.transferTo(position, remaining, out);
+                if (written <= 0) {
+                    break;
+                }
+                position += written;
+                remaining -= written;
+            }
+        }
+    }
+
+    private ImageFile lookup(String name) {
+        if (name == null || missing.getIfPresent(name) != null) {
+            return null;
+        }
+        ImageFile file = files.get(name, this::load);
+        if (file == null) {
+            missing.put(name, Boolean.TRUE);
+        }
+        return file;
+    }
+
+    //null nếu không phải file hợp lệ bên trong thư mục uploads
+    private ImageFile load(String name) {
+        Path path = resolve(name);
+        if (path == null || !Files.isRegularFile(path)) {
+            return null;
+        }
+        try (InputStream input = Files.newInputStream(path)) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] buffer = new byte[64 * 1024];
+            byte[] header = new byte[12];
+            int headerLength = 0;
+            long length = 0;
+            int read;
+            while ((read = input.read(buffer)) > 0) {
+                if (headerLength < header.length) {
+                    int copied = Math.min(read, header.length - headerLength);
+                    System.arraycopy(buffer, 0, header, headerLength, copied);
+                    headerLength += copied;
+                }
+                digest.update(buffer, 0, read);
+                length += read;
+            }
+            String hash = HexFormat.of().formatHex(digest.digest());
+            return new ImageFile(path, length, detectContentType(header, headerLength), hash);
+        } catch (IOException e) {
+            logger.warn("Cannot read image {}: {}", path, e.getMessage());
+            return null;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static String detectContentType(byte[] header, int length) {
+        if (length >= 3 && (header[0] & 0xFF) == 0xFF && (header[1] & 0xFF) == 0xD8 && (header[2] & 0xFF) == 0xFF) {
+            return MediaType.IMAGE_JPEG_VALUE;
+        }
+        if (length >= 8 && (header[0] & 0xFF) == 0x89 && header[1] == 'P' && header[2] == 'N' && header[3] == 'G') {
+            return MediaType.IMAGE_PNG_VALUE;
+        }
+        if (length >= 6 && header[0] == 'G' && header[1] == 'I' && header[2] == 'F' && header[3] == '8') {
+            return MediaType.IMAGE_GIF_VALUE;
+        }
+        if (length >= 12 && header[0] == 'R' && header[1] == 'I' && header[2] == 'F' && header[3] == 'F'
+                && header[8] == 'W' && header[9] == 'E' && header[10] == 'B' && header[11] == 'P') {
+            return "image/webp";
+        }
+        if (length >= 2 && header[0] == 'B' && header[1] == 'M') {
+            return "image/bmp";
+        }
+        return MediaType.APPLICATION_OCTET_STREAM_VALUE;
+    }
+
+    /**
+     * Range một đoạn "bytes=a-b", "bytes=a-", "bytes=-n".
+     * null: header không hợp lệ hoặc nhiều đoạn, bỏ qua và trả cả file;
+     * UNSATISFIABLE: đoạn nằm ngoài file (416).
+     */
+    static long[] parseRange(String header, long length) {
+        if (!header.startsWith("bytes=") || header.indexOf(',') >= 0) {
+            return null;
+        }
+        String spec = header.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return null;
+        }
+        String first = spec.substring(0, dash).trim();
+        String last = spec.substring(dash + 1).trim();
+        try {
+            long start;
+            long end;
+            if (first.isEmpty()) {
+                if (last.isEmpty()) {
+                    return null;
+                }
+                long suffix = Long.parseLong(last);
+                if (suffix <= 0) {
+                    return UNSATISFIABLE;
+                }
+                start = Math.max(0, length - suffix);
+                end = length - 1;
+            } else {
+                start = Long.parseLong(first);
+                if (start < 0) {
+                    return null;
+                }
+                end = length - 1;
+                if (!last.isEmpty()) {
+                    long lastPosition = Long.parseLong(last);
+                    if (lastPosition < start) {
+                        return null;
+                    }
+                    end = Math.min(lastPosition, length - 1);
+                }
+            }
+            if (start >= length) {
+                return UNSATISFIABLE;
+            }
+            return new long[]{start, end};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String value = candidate.trim();
+            if (value.startsWith("W/")) {
+                value = value.substring(2);
+            }
+            if (value.equals("*") || value.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
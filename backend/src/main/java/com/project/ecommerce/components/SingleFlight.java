@@ -0,0 +1,60 @@
+package com.project.ecommerce.components;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+/**
+ * Gộp các lần load đồng thời cùng một key: request đầu tiên (leader) chạy loader
+ * trên chính thread của nó, các request đến sau trong lúc đang load chỉ chờ kết quả
+ * đó (tối đa timeout) thay vì mỗi request giữ một connection DB.
+ * Không cache kết quả: khi leader xong, key được gỡ ngay.
+ */
+@Component
+public class SingleFlight {
+    private final ConcurrentHashMap<Object, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final Duration defaultTimeout;
+
+    public SingleFlight(@Value("${single-flight.timeout-ms:5000}") long defaultTimeoutMs) {
+        this.defaultTimeout = Duration.ofMillis(defaultTimeoutMs);
+    }
+
+    public <T> T execute(Object key, Supplier<T> loader) {
+        return execute(key, loader, defaultTimeout);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T execute(Object key, Supplier<T> loader, Duration timeout) {
+        CompletableFuture<Object> call = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(key, call);
+        if (existing == null) {
+            try {
+                T value = loader.get();
+                call.complete(value);
+                return value;
+            } catch (RuntimeException | Error e) {
+                call.completeExceptionally(e);
+                throw e;
+            } finally {
+                inFlight.remove(key, call);
+            }
+        }
+        try {
+            return (T) existing.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("Timed out waiting for in-flight load: " + key);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for in-flight load: " + key);
+        } catch (ExecutionException e) {
+            //trả lại đúng exception của leader (vd DataNotFoundException -> 404)
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
@@ -1,5 +1,8 @@
 package com.project.ecommerce.configurations;
 
+import com.project.ecommerce.dtos.order.OrderDTO;
+import com.project.ecommerce.dtos.order.OrderWithDetailsDTO;
+import com.project.ecommerce.models.Order;
 import org.modelmapper.ModelMapper;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -8,6 +11,13 @@ import org.springframework.context.annotation.Configuration;
 public class MapperConfiguration {
     @Bean
     public ModelMapper modelMapper() {
-        return new ModelMapper();
+        ModelMapper modelMapper = new ModelMapper();
+        // TypeMap được dựng (quét reflection) một lần lúc khởi động thay vì mỗi request;
+        // không ánh xạ id để DTO không ghi đè khoá chính của đơn hàng
+        modelMapper.typeMap(OrderDTO.class, Order.class)
+                .addMappings(mapper -> mapper.skip(Order::setId));
+        modelMapper.typeMap(OrderWithDetailsDTO.class, Order.class)
+                .addMappings(mapper -> mapper.skip(Order::setId));
+        return modelMapper;
     }
 }
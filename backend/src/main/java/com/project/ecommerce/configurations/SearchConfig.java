@@ -0,0 +1,34 @@
+package com.project.ecommerce.configurations;
+
+import com.project.ecommerce.utils.TextNormalizer;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+@Getter
+@Setter
+@Component
+public class SearchConfig {
+    public static final String MODE_LIKE = "like";
+    public static final String MODE_FULLTEXT = "fulltext";
+
+    //like: LIKE '%keyword%' như cũ, fulltext: tsvector + GIN (chạy add_fulltext_search.sql trước)
+    @Value("${search.mode:like}")
+    private String mode;
+
+    public boolean isFullTextEnabled() {
+        return MODE_FULLTEXT.equalsIgnoreCase(mode);
+    }
+
+    /**
+     * tsquery để tìm kiếm full-text, null nếu đang ở chế độ LIKE hoặc keyword không có từ nào
+     */
+    public String toFullTextQuery(String keyword) {
+        if (!isFullTextEnabled() || keyword == null) {
+            return null;
+        }
+        String tsQuery = TextNormalizer.toPrefixTsQuery(keyword);
+        return tsQuery.isEmpty() ? null : tsQuery;
+    }
+}
@@ -1,6 +1,7 @@
 package com.project.ecommerce.configurations;
 
 import com.project.ecommerce.components.JwtAuthEntryPoints;
+import com.project.ecommerce.filters.IdempotencyFilter;
 import com.project.ecommerce.filters.JwtTokenFilter;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
@@ -30,6 +31,7 @@ import static org.springframework.http.HttpMethod.*;
 @RequiredArgsConstructor
 public class WebSecurityConfig {
         private final JwtTokenFilter jwtTokenFilter;
+        private final IdempotencyFilter idempotencyFilter;
         private final JwtAuthEntryPoints entryPoints;
         @Value("${api.prefix}")
         private String apiPrefix;
@@ -38,6 +40,8 @@ public class WebSecurityConfig {
         public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
                 http
                                 .addFilterBefore(jwtTokenFilter, UsernamePasswordAuthenticationFilter.class)
+                                // cần user đã xác thực để gắn Idempotency-Key theo user
+                                .addFilterAfter(idempotencyFilter, JwtTokenFilter.class)
                                 .exceptionHandling(exception -> exception.authenticationEntryPoint(entryPoints))
                                 .sessionManagement(c -> c.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                                 .authorizeHttpRequests(requests -> requests
@@ -87,9 +91,10 @@ public class WebSecurityConfig {
                                 "authorization", 
                                 "content-type", 
                                 "x-auth-token",
-                                "x-skip-auth"
+                                "x-skip-auth",
+                                "idempotency-key"
                         ));
-                        configuration.setExposedHeaders(List.of("x-auth-token"));
+                        configuration.setExposedHeaders(List.of("x-auth-token", "idempotent-replayed"));
                         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
                         source.registerCorsConfiguration("/**", configuration);
                         httpSecurityCorsConfigurer.configurationSource(source);
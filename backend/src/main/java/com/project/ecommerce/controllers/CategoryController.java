@@ -4,19 +4,20 @@ import com.project.ecommerce.dtos.category.CategoryDTO;
 import com.project.ecommerce.models.Category;
 import com.project.ecommerce.responses.CategoryResponse;
 import com.project.ecommerce.responses.ResponseObject;
-import com.project.ecommerce.services.category.CategoryService;
+import com.project.ecommerce.services.category.CategoryCatalog;
 import com.project.ecommerce.services.category.ICategoryService;
 import com.project.ecommerce.utils.MessageKeys;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.validation.BindingResult;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.annotation.*;
-
-import java.util.List;
+import org.springframework.web.context.request.WebRequest;
 
 @RestController
 @RequestMapping("${api.prefix}/categories")
@@ -50,16 +51,21 @@ public class CategoryController {
 
     //Hiện tất cả các categories
     @GetMapping("")
-    public ResponseEntity<ResponseObject> getAllCategories(
+    public ResponseEntity<byte[]> getAllCategories(
             @RequestParam("page")     int page,
-            @RequestParam("limit")    int limit
+            @RequestParam("limit")    int limit,
+            WebRequest webRequest
     ) {
-        List<Category> categories = categoryService.getAllCategories();
-        return ResponseEntity.ok(ResponseObject.builder()
-                .status(HttpStatus.OK)
-                .message("Success!")
-                .data(categories)
-                .build());
+        // Body JSON và ETag đã dựng sẵn trong snapshot; If-None-Match khớp thì trả 304
+        CategoryCatalog.Snapshot snapshot = categoryService.getCatalogSnapshot();
+        if (webRequest.checkNotModified(snapshot.getEtag())) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .eTag(snapshot.getEtag())
+                .cacheControl(CacheControl.noCache())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(snapshot.getBody());
     }
 
     @PutMapping("/{id}")
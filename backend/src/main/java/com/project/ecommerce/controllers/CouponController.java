@@ -23,6 +23,7 @@ import java.time.ZonedDateTime;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 @RestController
@@ -143,14 +144,13 @@ public class CouponController {
     @GetMapping("/validate/{code}")
     public ResponseEntity<?> validateCoupon(@PathVariable String code, @RequestParam Double orderAmount) {
         try {
-            boolean isValid = couponService.validateCoupon(code, orderAmount);
+            Optional<CouponResponse> validCoupon = couponService.findValidCoupon(code, orderAmount);
 
             Map<String, Object> response = new HashMap<>();
-            response.put("valid", isValid);
+            response.put("valid", validCoupon.isPresent());
 
-            if (isValid) {
-                Coupon coupon = couponService.getCouponByCode(code).get();
-                response.put("coupon", CouponResponse.fromCoupon(coupon));
+            if (validCoupon.isPresent()) {
+                response.put("coupon", validCoupon.get());
                 response.put("message", "Coupon is valid");
             } else {
                 response.put("message", "Coupon is invalid or expired");
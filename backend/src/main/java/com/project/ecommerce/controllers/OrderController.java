@@ -7,11 +7,13 @@ import com.project.ecommerce.models.Order;
 import com.project.ecommerce.models.User;
 import com.project.ecommerce.responses.*;
 import com.project.ecommerce.services.order.IOrderService;
+import com.project.ecommerce.utils.KeysetCursor;
 import com.project.ecommerce.utils.MessageKeys;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -41,18 +43,28 @@ public class OrderController {
                 .build());
     }
     @GetMapping("/user")
-    //GET http://localhost:8089/api/v1/orders/user?status=&keyword=
+    //GET http://localhost:8089/api/v1/orders/user?status=&keyword=&after=&limit=
     public ResponseEntity<ResponseObject> getOrders(
             @RequestParam(required = false) String keyword,
-            @RequestParam(required = false) String status
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "20") int limit
     ) {
         User loggedUser = securityUtils.getLoggedInUser();
         Long userId = loggedUser.getId();
-        List<OrderResponse> orders = orderService.findOrders(userId, status, keyword);
+        // Phân trang keyset, đơn mới nhất trước; nextCursor null khi đã hết đơn
+        Slice<OrderResponse> slice = orderService.findOrders(userId, status, keyword,
+                KeysetCursor.decode(after), Math.max(1, Math.min(limit, 100)));
+        List<OrderResponse> orders = slice.getContent();
         return ResponseEntity.ok(ResponseObject.builder()
                 .status(HttpStatus.OK)
                 .message("Success!")
-                .data(orders)
+                .data(OrderListResponse.builder()
+                        .orders(orders)
+                        .nextCursor(slice.hasNext()
+                                ? KeysetCursor.of(orders.get(orders.size() - 1).getId()).encode()
+                                : null)
+                        .build())
                 .build());
     }
     //GET http://localhost:8088/api/v1/orders/2
@@ -95,8 +107,24 @@ public class OrderController {
     public ResponseEntity<ResponseObject> getOrdersByKeyword(
             @RequestParam(defaultValue = "") String keyword,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int limit
+            @RequestParam(defaultValue = "10") int limit,
+            @RequestParam(required = false) String after
     ) {
+        // Có ?after= thì phân trang keyset (after rỗng là trang đầu), không tính totalPages
+        if (after != null) {
+            Slice<OrderResponse> slice = orderService
+                    .getOrdersByKeywordAfter(keyword, KeysetCursor.decode(after), limit);
+            List<OrderResponse> content = slice.getContent();
+            return ResponseEntity.ok(ResponseObject.builder()
+                    .status(HttpStatus.OK)
+                    .data(OrderListResponse.builder()
+                            .orders(content)
+                            .nextCursor(slice.hasNext()
+                                    ? KeysetCursor.of(content.get(content.size() - 1).getId()).encode()
+                                    : null)
+                            .build())
+                    .build());
+        }
         // Tạo Pageable từ thông tin trang và giới hạn
         PageRequest pageRequest = PageRequest.of(
                 page, limit,
@@ -1,32 +1,36 @@
 package com.project.ecommerce.controllers;
 
+import com.project.ecommerce.components.ImageFileServer;
 import com.project.ecommerce.dtos.product.ProductDTO;
 import com.project.ecommerce.dtos.product.ProductImageDTO;
 import com.project.ecommerce.models.Product;
 import com.project.ecommerce.models.ProductImage;
+import com.project.ecommerce.responses.ProductImportReport;
 import com.project.ecommerce.responses.ProductListResponse;
 import com.project.ecommerce.responses.ProductResponse;
 import com.project.ecommerce.responses.ProductStatResponse;
 import com.project.ecommerce.responses.ResponseObject;
+import com.project.ecommerce.services.image.IImageDerivativeService;
+import com.project.ecommerce.services.image.IImageStore;
 import com.project.ecommerce.services.product.IProductService;
+import com.project.ecommerce.services.product.importer.IProductImportService;
+import com.project.ecommerce.utils.KeysetCursor;
 import com.project.ecommerce.utils.MessageKeys;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
-import org.springframework.core.io.UrlResource;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
@@ -37,6 +41,10 @@ import java.util.*;
 public class ProductController {
 
     private final IProductService productService;
+    private final IProductImportService productImportService;
+    private final ImageFileServer imageFileServer;
+    private final IImageDerivativeService imageDerivativeService;
+    private final IImageStore imageStore;
 
     @PostMapping("")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
@@ -51,6 +59,22 @@ public class ProductController {
                 .build());
     }
 
+    //import hàng loạt: body là file CSV/NDJSON thô (không multipart), đọc theo luồng
+    @PostMapping(value = "/import", consumes = {"text/csv", "application/x-ndjson"})
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    public ResponseEntity<ResponseObject> importProducts(HttpServletRequest request) throws IOException {
+        String contentType = request.getContentType();
+        IProductImportService.ImportFormat format = contentType != null && contentType.contains("csv")
+                ? IProductImportService.ImportFormat.CSV
+                : IProductImportService.ImportFormat.NDJSON;
+        ProductImportReport report = productImportService.importProducts(request.getInputStream(), format);
+        return ResponseEntity.ok(ResponseObject.builder()
+                .status(HttpStatus.OK)
+                .message(String.format("Imported %d/%d products", report.getImported(), report.getTotalRows()))
+                .data(report)
+                .build());
+    }
+
     @PostMapping(value = "uploads/{id}",
             consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     @PreAuthorize("hasRole('ROLE_ADMIN')")
@@ -66,7 +90,7 @@ public class ProductController {
                         .message(MessageKeys.UPLOAD_IMAGES_MAX_5)
                         .build());
             }
-            List<ProductImage> productImages = new ArrayList<>();
+            List<MultipartFile> imageFiles = new ArrayList<>();
             for (MultipartFile file : files) {
                 if(file.getSize() == 0) {
                     continue;
@@ -79,16 +103,19 @@ public class ProductController {
                                     .status(HttpStatus.PAYLOAD_TOO_LARGE)
                                     .build());
                 }
-                String contentType = file.getContentType();
-                if(contentType == null || !contentType.startsWith("image/")) {
+                if(!isImageFile(file)) {
                     return ResponseEntity.status(HttpStatus.UNSUPPORTED_MEDIA_TYPE)
                             .body(ResponseObject.builder()
                                     .message(MessageKeys.UPLOAD_IMAGES_FILE_MUST_BE_IMAGE)
                                     .status(HttpStatus.UNSUPPORTED_MEDIA_TYPE)
                                     .build());
                 }
-                // Lưu file và cập nhật thumbnail trong DTO
-                String filename = storeFile(file); // Thay thế hàm này với code của bạn để lưu file
+                imageFiles.add(file);
+            }
+            // Lưu các file song song theo nội dung, ảnh trùng chỉ lưu một lần
+            List<String> filenames = imageStore.store(imageFiles);
+            List<ProductImage> productImages = new ArrayList<>();
+            for (String filename : filenames) {
                 //lưu vào đối tượng product trong DB
                 ProductImage productImage = productService.createProductImage(
                         existingProduct.getId(),
@@ -97,6 +124,8 @@ public class ProductController {
                                 .build()
                 );
                 productImages.add(productImage);
+                // ảnh thu nhỏ tạo nền, request upload không phải chờ
+                imageDerivativeService.submit(filename);
             }
             return ResponseEntity.ok().body(ResponseObject.builder()
                     .message("Upload image successfully")
@@ -126,44 +155,23 @@ public class ProductController {
 //        }
 //    }
 
+    //?size=thumb|detail: ảnh thu nhỏ (JPEG), chưa có thì trả ảnh gốc
     @GetMapping("/images/{imageName}")
-    public ResponseEntity<?> viewImage(@PathVariable String imageName) {
-        try {
-            java.nio.file.Path imagePath = Paths.get("uploads/"+imageName);
-            UrlResource resource = new UrlResource(imagePath.toUri());
-
-            if (resource.exists()) {
-                return ResponseEntity.ok()
-                        .contentType(MediaType.IMAGE_JPEG)
-                        .body(resource);
-            } else {
-                return ResponseEntity.ok()
-                        .contentType(MediaType.IMAGE_JPEG)
-                        .body(new UrlResource(Paths.get("uploads/notfound.jpeg").toUri()));
-
-            }
-        } catch (Exception e) {
-            return ResponseEntity.notFound().build();
+    public void viewImage(@PathVariable String imageName,
+                          @RequestParam(required = false) String size,
+                          HttpServletRequest request,
+                          HttpServletResponse response) throws IOException {
+        if (size == null || size.isBlank()) {
+            imageFileServer.serve(imageName, request, response);
+            return;
         }
+        String name = imageDerivativeService.resolve(imageName, size);
+        imageFileServer.serve(name, !name.equals(imageName), request, response);
     }
-    private String storeFile(MultipartFile file) throws IOException {
-        if (!isImageFile(file) || file.getOriginalFilename() == null) {
-            throw new IOException("Invalid image format");
-        }
-        String filename = StringUtils.cleanPath(Objects.requireNonNull(file.getOriginalFilename()));
-        // Thêm UUID vào trước tên file để đảm bảo tên file là duy nhất
-        String uniqueFilename = UUID.randomUUID().toString() + "_" + filename;
-        // Đường dẫn đến thư mục mà bạn muốn lưu file
-        java.nio.file.Path uploadDir = Paths.get("uploads");
-        // Kiểm tra và tạo thư mục nếu nó không tồn tại
-        if (!Files.exists(uploadDir)) {
-            Files.createDirectories(uploadDir);
-        }
-        // Đường dẫn đầy đủ đến file
-        java.nio.file.Path destination = Paths.get(uploadDir.toString(), uniqueFilename);
-        // Sao chép file vào thư mục đích
-        Files.copy(file.getInputStream(), destination, StandardCopyOption.REPLACE_EXISTING);
-        return uniqueFilename;
+    //?include=ratings,... : danh sách phần bổ sung, phân tách bằng dấu phẩy
+    private static boolean includes(String include, String part) {
+        return include != null && Arrays.stream(include.split(","))
+                .anyMatch(value -> value.trim().equalsIgnoreCase(part));
     }
     private boolean isImageFile(MultipartFile file) {
         String contentType = file.getContentType();
@@ -174,9 +182,32 @@ public class ProductController {
             @RequestParam(defaultValue = "") String keyword,
             @RequestParam(defaultValue = "0", name = "category_id") Long categoryId,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "12") int limit
+            @RequestParam(defaultValue = "12") int limit,
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) String include
     ) {
         int totalPages = 0;
+        boolean ratings = includes(include, "ratings");
+        if (after != null && sort != null) {
+            throw new IllegalArgumentException("sort is not supported with after");
+        }
+        // Có ?after= thì phân trang keyset (after rỗng là trang đầu), không tính totalPages
+        if (after != null) {
+            Slice<ProductResponse> slice = productService
+                    .getProductsAfter(keyword, categoryId, KeysetCursor.decode(after), limit);
+            List<ProductResponse> content = slice.getContent();
+            return ResponseEntity.ok(ResponseObject.builder()
+                    .message("Get products successfully")
+                    .status(HttpStatus.OK)
+                    .data(ProductListResponse.builder()
+                            .products(ratings ? productService.includeRatings(content) : content)
+                            .nextCursor(slice.hasNext()
+                                    ? KeysetCursor.of(content.get(content.size() - 1).getId()).encode()
+                                    : null)
+                            .build())
+                    .build());
+        }
         // Tạo Pageable từ thông tin trang và giới hạn
         PageRequest pageRequest = PageRequest.of(
                 page, limit
@@ -184,12 +215,13 @@ public class ProductController {
 
         );
         Page<ProductResponse> productResponses =  productService
-                .getAllProducts(keyword, categoryId, pageRequest);
+                .getAllProducts(keyword, categoryId, sort, pageRequest);
 
         totalPages = productResponses.getTotalPages();
+        List<ProductResponse> products = productResponses.getContent();
         ProductListResponse productListResponse = ProductListResponse
                 .builder()
-                .products(productResponses.stream().toList())
+                .products(ratings ? productService.includeRatings(products) : products)
                 .totalPages(totalPages)
                 .build();
 
@@ -200,13 +232,42 @@ public class ProductController {
                 .build());
     }
 
+    //sản phẩm thịnh hành theo cửa sổ 1h | 24h | 7d, đọc từ sketch trong bộ nhớ
+    @GetMapping("/trending")
+    public ResponseEntity<ResponseObject> getTrendingProducts(
+            @RequestParam(defaultValue = "24h") String window,
+            @RequestParam(defaultValue = "12") int limit
+    ) {
+        if (limit < 1 || limit > 50) {
+            throw new IllegalArgumentException("limit must be between 1 and 50");
+        }
+        return ResponseEntity.ok(ResponseObject.builder()
+                .message("Get trending products successfully")
+                .status(HttpStatus.OK)
+                .data(ProductListResponse.builder()
+                        .products(productService.getTrendingProducts(window, limit))
+                        .build())
+                .build());
+    }
+
+    //gợi ý khi gõ ở ô tìm kiếm, đọc hoàn toàn từ bộ nhớ
+    @GetMapping("/suggest")
+    public ResponseEntity<ResponseObject> suggest(
+            @RequestParam(defaultValue = "") String q,
+            @RequestParam(defaultValue = "8") int limit
+    ) {
+        return ResponseEntity.ok(ResponseObject.builder()
+                .status(HttpStatus.OK)
+                .data(productService.suggest(q, limit))
+                .build());
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<ResponseObject> getProductById(
             @PathVariable("id") Long productId
     ) {
 
-        Product existingProduct = productService.getProductById(productId);
-        ProductResponse productResponse = ProductResponse.fromProduct(existingProduct);
+        ProductResponse productResponse = productService.getProductResponseById(productId);
         return ResponseEntity.ok(ResponseObject.builder()
                 .status(HttpStatus.OK)
                 .data(productResponse)
@@ -239,14 +300,18 @@ public class ProductController {
     }
 
     @GetMapping("/by-ids")
-    public ResponseEntity<ResponseObject> getProductsByIds(@RequestParam("ids") String ids) {
+    public ResponseEntity<ResponseObject> getProductsByIds(@RequestParam("ids") String ids,
+                                                           @RequestParam(required = false) String include) {
         //eg: 1,3,5,7
         List<Long> productIds = Arrays.stream(ids.split(","))
                 .map(Long::parseLong)
                 .toList();
-        List<Product> products = productService.findProductsByIds(productIds);
+        List<ProductResponse> products = productService.getProductResponsesByIds(productIds);
+        if (includes(include, "ratings")) {
+            products = productService.includeRatings(products);
+        }
         return ResponseEntity.ok(ResponseObject.builder()
-                .data(products.stream().map(ProductResponse::fromProduct).toList())
+                .data(products)
                 .message("Get products successfully")
                 .status(HttpStatus.OK)
                 .build()
@@ -13,12 +13,6 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
-import java.io.FileNotFoundException;
-import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-
 @RestController
 @RequestMapping("${api.prefix}/product_images")
 @RequiredArgsConstructor
@@ -28,17 +22,10 @@ public class ProductImageController {
 
     @DeleteMapping("/{id}")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
-    public ResponseEntity<ResponseObject> delete(@PathVariable Long id) throws DataNotFoundException, IOException {
+    public ResponseEntity<ResponseObject> delete(@PathVariable Long id) throws DataNotFoundException {
         ProductImage productImage = productImageService.deleteProductImage(id);
-        if( productImage != null) {
-            Path uploadDir = Paths.get("uploads");
-            Path filePath = uploadDir.resolve(productImage.getImageUrl());
-            if(Files.exists(filePath)){
-                Files.delete(filePath);
-            } else {
-                throw new FileNotFoundException(String.format("Cannot find file with url: %s", filePath));
-            }
-        }
+        // File ảnh có thể dùng chung giữa nhiều sản phẩm (lưu theo nội dung),
+        // không xoá ở đây; ImageStore sweeper thu hồi khi không còn tham chiếu
         return ResponseEntity.ok().body(
                 ResponseObject.builder()
                         .message("Delete product image successfully")
@@ -1,20 +1,20 @@
 package com.project.ecommerce.controllers;
 
 
+import com.project.ecommerce.responses.CategoryStatResponse;
 import com.project.ecommerce.responses.ProductStatListResponse;
 import com.project.ecommerce.responses.ProductStatResponse;
 import com.project.ecommerce.responses.ResponseObject;
-import com.project.ecommerce.services.product.IProductService;
+import com.project.ecommerce.responses.RevenueSeriesResponse;
+import com.project.ecommerce.services.revenue.IRevenueRollupService;
+import com.project.ecommerce.services.revenue.IRevenueTimeSeriesService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.web.bind.annotation.GetMapping;
-import org.springframework.web.bind.annotation.RequestMapping;
-import org.springframework.web.bind.annotation.RequestParam;
-import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDate;
 import java.util.List;
@@ -23,7 +23,8 @@ import java.util.List;
 @RequestMapping("${api.prefix}/revenues")
 @RequiredArgsConstructor
 public class RevenueController {
-    private final IProductService productService;
+    private final IRevenueRollupService revenueRollupService;
+    private final IRevenueTimeSeriesService revenueTimeSeriesService;
 
     @GetMapping("/by-product")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
@@ -36,7 +37,8 @@ public class RevenueController {
 
         PageRequest pageRequest = PageRequest.of(page, limit);
         int totalPages = 0;
-        Page<ProductStatResponse> responses = productService.getProductStat(start, end, pageRequest);
+        // đọc từ bảng tổng hợp theo ngày, sắp theo doanh thu giảm dần
+        Page<ProductStatResponse> responses = revenueRollupService.getProductStat(start, end, pageRequest);
         totalPages = responses.getTotalPages();
 
         ProductStatListResponse listResponse = ProductStatListResponse.builder()
@@ -47,4 +49,44 @@ public class RevenueController {
                 .data(listResponse)
                 .status(HttpStatus.OK).build());
     }
+
+    @GetMapping("/by-category")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    public ResponseEntity<ResponseObject> getRevenueByCategory(
+            @RequestParam(required = false) LocalDate start,
+            @RequestParam(required = false) LocalDate end
+    ) {
+        List<CategoryStatResponse> responses = revenueRollupService.getCategoryStat(start, end);
+        return ResponseEntity.ok(ResponseObject.builder()
+                .data(responses)
+                .status(HttpStatus.OK).build());
+    }
+
+    //biểu đồ doanh thu: granularity=day|week|month, groupBy=category|product|paymentMethod
+    @GetMapping("/timeseries")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    public ResponseEntity<ResponseObject> getRevenueTimeSeries(
+            @RequestParam(required = false) LocalDate start,
+            @RequestParam(required = false) LocalDate end,
+            @RequestParam(defaultValue = "day") String granularity,
+            @RequestParam(defaultValue = "category") String groupBy,
+            @RequestParam(defaultValue = "10") int top
+    ) {
+        RevenueSeriesResponse response = revenueTimeSeriesService.getSeries(start, end, granularity, groupBy, top);
+        return ResponseEntity.ok(ResponseObject.builder()
+                .data(response)
+                .status(HttpStatus.OK).build());
+    }
+
+    //tính lại bảng tổng hợp từ toàn bộ đơn đã giao (backfill sau khi chạy migration/sửa dữ liệu tay)
+    @PostMapping("/rebuild")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    public ResponseEntity<ResponseObject> rebuild() {
+        int rows = revenueRollupService.rebuild();
+        revenueTimeSeriesService.reload();
+        return ResponseEntity.ok(ResponseObject.builder()
+                .message("Rebuilt revenue rollups")
+                .data(rows)
+                .status(HttpStatus.OK).build());
+    }
 }
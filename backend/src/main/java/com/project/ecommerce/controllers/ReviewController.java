@@ -8,11 +8,13 @@ import com.project.ecommerce.responses.ReviewListResponse;
 import com.project.ecommerce.responses.ReviewResponse;
 import com.project.ecommerce.services.review.IReviewService;
 import com.project.ecommerce.components.JwtTokenUtils;
+import com.project.ecommerce.utils.KeysetCursor;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -124,9 +126,25 @@ public class ReviewController {
     public ResponseEntity<?> getReviewsByProductId(
             @PathVariable Long productId,
             @RequestParam(defaultValue = "0") Integer page,
-            @RequestParam(defaultValue = "10") Integer limit
+            @RequestParam(defaultValue = "10") Integer limit,
+            @RequestParam(required = false) String after
     ) {
         try {
+            // Có ?after= thì phân trang keyset theo (created_at, id), không tính tổng số trang
+            if (after != null) {
+                Slice<Review> slice = reviewService
+                        .getReviewsByProductIdAfter(productId, KeysetCursor.decode(after), limit);
+                List<Review> content = slice.getContent();
+                String nextCursor = null;
+                if (slice.hasNext()) {
+                    Review last = content.get(content.size() - 1);
+                    nextCursor = KeysetCursor.of(last.getCreatedAt(), last.getId()).encode();
+                }
+                return ResponseEntity.ok(ReviewListResponse.builder()
+                        .reviews(content.stream().map(ReviewResponse::fromReview).toList())
+                        .nextCursor(nextCursor)
+                        .build());
+            }
             Pageable pageable = PageRequest.of(
                     page, limit,
                     Sort.by("createdAt").descending()
@@ -152,16 +170,8 @@ public class ReviewController {
     @GetMapping("/product/{productId}/stats")
     public ResponseEntity<?> getProductReviewStats(@PathVariable Long productId) {
         try {
-            Double averageRating = reviewService.getAverageRatingByProductId(productId);
-            Long reviewCount = reviewService.getReviewCountByProductId(productId);
-            List<Object[]> ratingDistribution = reviewService.getRatingDistributionByProductId(productId);
-
-            Map<String, Object> stats = new HashMap<>();
-            stats.put("averageRating", averageRating != null ? averageRating : 0.0);
-            stats.put("reviewCount", reviewCount);
-            stats.put("ratingDistribution", ratingDistribution);
-
-            return ResponseEntity.ok(stats);
+            // một dòng product_review_stats theo khoá chính
+            return ResponseEntity.ok(reviewService.getReviewStats(productId));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(e.getMessage());
         }
@@ -171,19 +181,27 @@ public class ReviewController {
     @PreAuthorize("hasRole('ROLE_USER')")
     public ResponseEntity<?> getUserReviews(
             @RequestHeader("Authorization") String authorizationHeader,
-            @RequestParam(defaultValue = "0") Integer page,
+            @RequestParam(defaultValue = "") String after,
             @RequestParam(defaultValue = "10") Integer limit
     ) {
         try {
             String token = authorizationHeader.substring(7);
             Long userId = jwtTokenUtils.extractUserId(token);
 
-            List<Review> reviews = reviewService.getReviewsByUserId(userId);
-            List<ReviewResponse> reviewResponses = reviews.stream()
-                    .map(ReviewResponse::fromReview)
-                    .collect(Collectors.toList());
-
-            return ResponseEntity.ok(reviewResponses);
+            // Phân trang keyset theo (created_at, id), after rỗng là trang đầu
+            int pageSize = Math.max(1, Math.min(limit, 50));
+            Slice<Review> slice = reviewService
+                    .getReviewsByUserIdAfter(userId, KeysetCursor.decode(after), pageSize);
+            List<Review> content = slice.getContent();
+            String nextCursor = null;
+            if (slice.hasNext()) {
+                Review last = content.get(content.size() - 1);
+                nextCursor = KeysetCursor.of(last.getCreatedAt(), last.getId()).encode();
+            }
+            return ResponseEntity.ok(ReviewListResponse.builder()
+                    .reviews(content.stream().map(ReviewResponse::fromReviewWithProduct).toList())
+                    .nextCursor(nextCursor)
+                    .build());
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(e.getMessage());
         }
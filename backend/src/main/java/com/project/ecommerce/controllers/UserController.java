@@ -8,12 +8,14 @@ import com.project.ecommerce.dtos.user.UserLoginDTO;
 import com.project.ecommerce.models.User;
 import com.project.ecommerce.responses.*;
 import com.project.ecommerce.services.user.IUserService;
+import com.project.ecommerce.utils.KeysetCursor;
 import com.project.ecommerce.utils.MessageKeys;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -104,9 +106,26 @@ public class UserController {
     public ResponseEntity<ResponseObject> getAllUser(
             @RequestParam(defaultValue = "", required = false) String keyword,
             @RequestParam(defaultValue = "0") Integer page,
-            @RequestParam(defaultValue = "10") Integer limit
+            @RequestParam(defaultValue = "10") Integer limit,
+            @RequestParam(required = false) String after
     ) throws Exception {
 
+            // Có ?after= thì phân trang keyset (after rỗng là trang đầu), không tính totalPages
+            if (after != null) {
+                Slice<UserResponse> slice = userService.findAllAfter(keyword, KeysetCursor.decode(after), limit);
+                List<UserResponse> content = slice.getContent();
+                return ResponseEntity.ok().body(ResponseObject.builder()
+                        .data(UserListResponse.builder()
+                                .users(content)
+                                .nextCursor(slice.hasNext()
+                                        ? KeysetCursor.of(content.get(content.size() - 1).getId()).encode()
+                                        : null)
+                                .build())
+                        .message("Get users successfully")
+                        .status(HttpStatus.OK)
+                        .build());
+            }
+
             // Tạo Pageable từ thông tin trang và giới hạn
             Pageable pageRequest = PageRequest.of(
                     page, limit,
@@ -0,0 +1,297 @@
+package com.project.ecommerce.filters;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.project.ecommerce.components.SecurityUtils;
+import com.project.ecommerce.components.SingleFlight;
+import com.project.ecommerce.models.User;
+import com.project.ecommerce.responses.ResponseObject;
+import com.project.ecommerce.services.idempotency.IIdempotencyStore;
+import com.project.ecommerce.services.idempotency.StoredResponse;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.NonNull;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Header Idempotency-Key cho POST /orders và POST /payments/create_payment_url:
+ * - Key gắn với user đăng nhập; response đầu tiên (trừ lỗi 5xx) được lưu qua IIdempotencyStore,
+ *   lần gửi lại nhận đúng response đó (header Idempotent-Replayed) mà không gọi tới controller
+ * - Các request trùng key đến cùng lúc trên một server chờ request đầu qua SingleFlight;
+ *   trên server khác (key đang được giữ trong DB) thì nhận 409 kèm Retry-After
+ * - Cùng key nhưng khác nội dung request: 422
+ * Chạy sau JwtTokenFilter trong security chain để biết user.
+ */
+@Component
+public class IdempotencyFilter extends OncePerRequestFilter {
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+    private static final int MAX_KEY_LENGTH = 255;
+    private static final int MAX_BODY_BYTES = 1024 * 1024;
+
+    private final IIdempotencyStore idempotencyStore;
+    private final SingleFlight singleFlight;
+    private final SecurityUtils securityUtils;
+    private final ObjectMapper objectMapper;
+    private final Set<String> paths;
+    private final Duration waitTimeout;
+
+    public IdempotencyFilter(IIdempotencyStore idempotencyStore,
+                             SingleFlight singleFlight,
+                             SecurityUtils securityUtils,
+                             ObjectMapper objectMapper,
+                             @Value("${api.prefix}") String apiPrefix,
+                             @Value("${idempotency.wait-timeout-ms:30000}") long waitTimeoutMs) {
+        this.idempotencyStore = idempotencyStore;
+        this.singleFlight = singleFlight;
+        this.securityUtils = securityUtils;
+        this.objectMapper = objectMapper;
+        this.paths = Set.of(
+                String.format("%s/orders", apiPrefix),
+                String.format("%s/payments/create_payment_url", apiPrefix));
+        this.waitTimeout = Duration.ofMillis(waitTimeoutMs);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return !"POST".equalsIgnoreCase(request.getMethod())
+                || request.getHeader(HEADER) == null
+                || !paths.contains(request.getServletPath());
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request,
+                                    @NonNull HttpServletResponse response,
+                                    @NonNull FilterChain filterChain) throws ServletException, IOException {
+        String key = request.getHeader(HEADER).trim();
+        if (key.isEmpty() || key.length() > MAX_KEY_LENGTH) {
+            writeError(response, HttpStatus.BAD_REQUEST, "Invalid " + HEADER + " header");
+            return;
+        }
+        User user = securityUtils.getLoggedInUser();
+        if (user == null) {
+            filterChain.doFilter(request, response); // để security trả 401/403 như bình thường
+            return;
+        }
+        byte[] body = request.getInputStream().readNBytes(MAX_BODY_BYTES + 1);
+        if (body.length > MAX_BODY_BYTES) {
+            writeError(response, HttpStatus.PAYLOAD_TOO_LARGE, "Request body is too large");
+            return;
+        }
+        byte[] keyHash = sha256(user.getId() + ":" + key);
+        byte[] requestHash = sha256(request.getMethod() + " " + request.getServletPath() + "\n",
+                body);
+
+        StoredResponse stored = idempotencyStore.find(keyHash);
+        if (stored != null) {
+            replay(stored, requestHash, response);
+            return;
+        }
+
+        HttpServletRequest cachedRequest = new CachedBodyRequest(request, body);
+        AtomicBoolean handled = new AtomicBoolean();
+        StoredResponse result;
+        try {
+            result = singleFlight.execute("idempotency:" + user.getId() + ":" + key, () -> {
+                //request trùng vừa hoàn tất ngay trước khi vào đây
+                StoredResponse completed = idempotencyStore.find(keyHash);
+                if (completed != null) {
+                    return completed;
+                }
+                if (!idempotencyStore.claim(keyHash, requestHash)) {
+                    return null; // server khác đang xử lý key này
+                }
+                handled.set(true);
+                return execute(keyHash, requestHash, cachedRequest, response, filterChain);
+            }, waitTimeout);
+        } catch (RuntimeException e) {
+            if (!handled.get()) {
+                // request đầu lỗi hoặc chờ quá lâu: key đã được nhả hoặc vẫn đang xử lý, client gửi lại sau
+                writeInProgress(response);
+                return;
+            }
+            if (e instanceof UncheckedIOException io) {
+                throw io.getCause();
+            }
+            if (e instanceof ServletFailure failure) {
+                throw failure.getCause();
+            }
+            throw e;
+        }
+        if (handled.get()) {
+            return; // response đã được ghi bởi chính request này
+        }
+        if (result == null) {
+            writeInProgress(response);
+            return;
+        }
+        replay(result, requestHash, response);
+    }
+
+    //chạy controller, lưu response nếu không phải lỗi server
+    private StoredResponse execute(byte[] keyHash, byte[] requestHash, HttpServletRequest request,
+                                   HttpServletResponse response, FilterChain filterChain) {
+        ContentCachingResponseWrapper captured = new ContentCachingResponseWrapper(response);
+        boolean completed = false;
+        try {
+            filterChain.doFilter(request, captured);
+            StoredResponse result = new StoredResponse(requestHash, captured.getStatus(),
+                    captured.getContentType(), captured.getContentAsByteArray());
+            if (result.status() < HttpStatus.INTERNAL_SERVER_ERROR.value()) {
+                idempotencyStore.complete(keyHash, result);
+                completed = true;
+            }
+            captured.copyBodyToResponse();
+            return result;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (ServletException e) {
+            throw new ServletFailure(e);
+        } finally {
+            if (!completed) {
+                idempotencyStore.abandon(keyHash);
+            }
+        }
+    }
+
+    private void replay(StoredResponse stored, byte[] requestHash,
+                        HttpServletResponse response) throws IOException {
+        if (!MessageDigest.isEqual(stored.requestHash(), requestHash)) {
+            writeError(response, HttpStatus.UNPROCESSABLE_ENTITY,
+                    HEADER + " was already used with a different request");
+            return;
+        }
+        response.setStatus(stored.status());
+        if (stored.contentType() != null) {
+            response.setContentType(stored.contentType());
+        }
+        response.setHeader(REPLAYED_HEADER, "true");
+        byte[] body = stored.body() == null ? new byte[0] : stored.body();
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    private void writeInProgress(HttpServletResponse response) throws IOException {
+        response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+        writeError(response, HttpStatus.CONFLICT, "A request with this " + HEADER + " is still being processed");
+    }
+
+    private void writeError(HttpServletResponse response, HttpStatus status, String message) throws IOException {
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), ResponseObject.builder()
+                .status(status)
+                .message(message)
+                .build());
+    }
+
+    private static byte[] sha256(String text, byte[]... parts) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(text.getBytes(StandardCharsets.UTF_8));
+            for (byte[] part : parts) {
+                digest.update(part);
+            }
+            return digest.digest();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    //SingleFlight chỉ truyền RuntimeException giữa các thread
+    private static class ServletFailure extends RuntimeException {
+        ServletFailure(ServletException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized ServletException getCause() {
+            return (ServletException) super.getCause();
+        }
+    }
+
+    //body đã đọc để tính hash, cho controller đọc lại
+    private static class CachedBodyRequest extends HttpServletRequestWrapper {
+        private final byte[] body;
+
+        CachedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream input = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public boolean isFinished() {
+                    return input.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                //body đã nằm sẵn trong bộ nhớ: báo có dữ liệu rồi đọc xong ngay
+                @Override
+                public void setReadListener(ReadListener readListener) {
+                    try {
+                        if (!isFinished()) {
+                            readListener.onDataAvailable();
+                        }
+                        readListener.onAllDataRead();
+                    } catch (IOException e) {
+                        readListener.onError(e);
+                    }
+                }
+
+                @Override
+                public int read() {
+                    return input.read();
+                }
+
+                @Override
+                public int read(byte[] buffer, int offset, int length) {
+                    return input.read(buffer, offset, length);
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            String encoding = getCharacterEncoding();
+            return new BufferedReader(new InputStreamReader(new ByteArrayInputStream(body),
+                    encoding == null ? StandardCharsets.UTF_8 : Charset.forName(encoding)));
+        }
+
+        @Override
+        public int getContentLength() {
+            return body.length;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return body.length;
+        }
+    }
+}
@@ -56,7 +56,8 @@ public class Coupon extends BaseEntity {
     @Column(name = "usage_limit")
     private Integer usageLimit;
 
-    @Column(name = "used_count")
+    //chỉ tăng bằng UPDATE có điều kiện trong CouponService/HotCouponPool, JPA không ghi đè khi lưu coupon
+    @Column(name = "used_count", updatable = false)
     private Integer usedCount = 0;
 
     // Helper methods
@@ -67,11 +68,4 @@ public class Coupon extends BaseEntity {
                now.isBefore(endDate) &&
                (usageLimit == null || usedCount < usageLimit);
     }
-
-    public void incrementUsedCount() {
-        if (usedCount == null) {
-            usedCount = 0;
-        }
-        usedCount++;
-    }
 }
@@ -13,7 +13,9 @@ import lombok.*;
 @Builder
 public class OrderDetail {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // id lấy theo khối 50 từ sequence (add_order_sequences.sql) để Hibernate batch được INSERT
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_details_seq")
+    @SequenceGenerator(name = "order_details_seq", sequenceName = "order_details_id_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne
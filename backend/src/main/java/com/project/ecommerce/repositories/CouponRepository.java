@@ -17,6 +17,9 @@ public interface CouponRepository extends JpaRepository<Coupon, Long> {
 
     Optional<Coupon> findByCode(String code);
 
+    // mã cũ có thể chỉ khác chữ hoa/thường: lấy mã tạo trước như CouponIndex
+    Optional<Coupon> findFirstByCodeIgnoreCaseOrderByIdAsc(String code);
+
     boolean existsByCode(String code);
 
     Page<Coupon> findAll(Pageable pageable);
@@ -29,6 +32,22 @@ public interface CouponRepository extends JpaRepository<Coupon, Long> {
                         @Param("active") Boolean active,
                         Pageable pageable);
 
+    //search.mode = fulltext: dùng GIN index trên search_vector và trigram index trên lower(code)
+    @Query(value = "SELECT c.* FROM coupons c WHERE " +
+           "(c.search_vector @@ to_tsquery('simple', :tsQuery) " +
+           "OR LOWER(c.code) LIKE CONCAT('%', LOWER(:keyword), '%')) " +
+           "AND (CAST(:active AS BOOLEAN) IS NULL OR c.is_active = CAST(:active AS BOOLEAN)) " +
+           "ORDER BY ts_rank(c.search_vector, to_tsquery('simple', :tsQuery)) DESC, c.id",
+           countQuery = "SELECT COUNT(*) FROM coupons c WHERE " +
+           "(c.search_vector @@ to_tsquery('simple', :tsQuery) " +
+           "OR LOWER(c.code) LIKE CONCAT('%', LOWER(:keyword), '%')) " +
+           "AND (CAST(:active AS BOOLEAN) IS NULL OR c.is_active = CAST(:active AS BOOLEAN))",
+           nativeQuery = true)
+    Page<Coupon> searchFullText(@Param("tsQuery") String tsQuery,
+                                @Param("keyword") String keyword,
+                                @Param("active") Boolean active,
+                                Pageable pageable);
+
     @Query("SELECT c FROM Coupon c WHERE " +
            "c.active = true AND " +
            "c.startDate <= :now AND " +
@@ -36,6 +55,10 @@ public interface CouponRepository extends JpaRepository<Coupon, Long> {
            "(c.usageLimit IS NULL OR c.usedCount < c.usageLimit)")
     List<Coupon> findValidCoupons(@Param("now") LocalDateTime now);
 
+    //nạp CouponIndex: mã đang bật chưa hết hạn, kể cả mã chưa tới ngày bắt đầu
+    @Query("SELECT c FROM Coupon c WHERE c.active = true AND c.endDate > :now ORDER BY c.id")
+    List<Coupon> findUnexpiredActive(@Param("now") LocalDateTime now);
+
     @Query("SELECT COUNT(c) FROM Coupon c WHERE " +
            "c.active = true AND " +
            "c.startDate <= :now AND " +
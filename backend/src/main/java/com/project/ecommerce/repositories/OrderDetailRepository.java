@@ -2,9 +2,18 @@ package com.project.ecommerce.repositories;
 
 import com.project.ecommerce.models.OrderDetail;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
 
 public interface OrderDetailRepository extends JpaRepository<OrderDetail, Long> {
     List<OrderDetail> findByOrderId(Long orderId);
+
+    @Query("SELECT DISTINCT v.product.id FROM OrderDetail od JOIN od.productVariant v WHERE od.order.id = :orderId")
+    List<Long> findProductIdsByOrderId(@Param("orderId") Long orderId);
+
+    @Query("SELECT v.product.id, SUM(od.numberOfProducts) FROM OrderDetail od JOIN od.productVariant v " +
+            "WHERE od.order.id = :orderId GROUP BY v.product.id")
+    List<Object[]> findProductQuantitiesByOrderId(@Param("orderId") Long orderId);
 }
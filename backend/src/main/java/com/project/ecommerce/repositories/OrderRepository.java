@@ -3,27 +3,45 @@ package com.project.ecommerce.repositories;
 import com.project.ecommerce.models.Order;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 public interface OrderRepository extends JpaRepository<Order, Long> {
-    //Tìm các đơn hàng của 1 user nào đó
-    @Query("SELECT o FROM Order o WHERE o.user.id = :userId " +
-            "AND (:status IS NULL OR o.status = :status OR :status = '') " +
-            "AND ((:keyword) IS NULL OR :keyword = '' OR " +
+    //tìm trong các đơn hàng của 1 user (chỉ lọc trên các đơn đã khoanh theo user_id)
+    String USER_ORDER_KEYWORD = "AND ((:keyword) IS NULL OR :keyword = '' OR " +
             "LOWER(o.fullName) LIKE LOWER(CONCAT('%', :keyword, '%'))" +
             "OR LOWER(o.shippingAddress) LIKE LOWER(CONCAT('%', :keyword, '%'))" +
             "OR LOWER(o.note) LIKE LOWER(CONCAT('%', :keyword, '%'))" +
             "OR LOWER(o.email) LIKE LOWER(CONCAT('%', :keyword, '%'))" +
             "OR LOWER(o.phoneNumber) LIKE LOWER(CONCAT('%', :keyword, '%'))" +
             "OR LOWER(o.shippingMethod) LIKE LOWER(CONCAT('%', :keyword, '%'))" +
-            "OR LOWER(o.paymentMethod) LIKE LOWER(CONCAT('%', :keyword, '%')))"
-    )
-    List<Order> findOrders(@Param("userId") Long userId, @Param("status") String status, @Param("keyword") String keyword);
+            "OR LOWER(o.paymentMethod) LIKE LOWER(CONCAT('%', :keyword, '%'))) ";
+
+    //Lịch sử đơn hàng của 1 user: seek giảm dần theo id trên index (user_id, id)
+    @Query("SELECT o.id FROM Order o WHERE o.user.id = :userId AND o.id < :beforeId " +
+            USER_ORDER_KEYWORD + "ORDER BY o.id DESC")
+    Slice<Long> findIdsByUser(@Param("userId") Long userId, @Param("keyword") String keyword,
+                              @Param("beforeId") Long beforeId, Pageable pageable);
+
+    //lọc theo trạng thái bằng so sánh bằng để dùng index (user_id, status, id)
+    @Query("SELECT o.id FROM Order o WHERE o.user.id = :userId AND o.status = :status AND o.id < :beforeId " +
+            USER_ORDER_KEYWORD + "ORDER BY o.id DESC")
+    Slice<Long> findIdsByUserAndStatus(@Param("userId") Long userId, @Param("status") String status,
+                                       @Param("keyword") String keyword,
+                                       @Param("beforeId") Long beforeId, Pageable pageable);
+
+    //cả trang đơn hàng kèm chi tiết, biến thể, sản phẩm trong 1 query
+    @Query("SELECT o FROM Order o JOIN FETCH o.user " +
+            "LEFT JOIN FETCH o.orderDetails d LEFT JOIN FETCH d.productVariant v " +
+            "LEFT JOIN FETCH v.product p LEFT JOIN FETCH p.category " +
+            "WHERE o.id IN :orderIds ORDER BY o.id DESC")
+    List<Order> findWithDetailsByIdIn(@Param("orderIds") Collection<Long> orderIds);
 
     @Query("SELECT o FROM Order o WHERE o.active = true " +
         "AND (:keyword IS NULL OR :keyword = '' OR " +
@@ -33,6 +51,29 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
         "OR LOWER(o.email) LIKE LOWER(CONCAT('%', :keyword, '%'))) ")
     Page<Order> findAll(@Param("keyword") String keyword, Pageable pageable);
 
+    //phân trang keyset (?after=): seek theo id, không cần câu COUNT
+    @Query("SELECT o FROM Order o WHERE o.active = true AND o.id > :afterId " +
+        "AND (:keyword IS NULL OR :keyword = '' OR " +
+        "LOWER(o.fullName) LIKE LOWER(CONCAT('%', :keyword, '%')) " +
+        "OR LOWER(o.shippingAddress) LIKE LOWER(CONCAT('%', :keyword, '%')) " +
+        "OR LOWER(o.note) LIKE LOWER(CONCAT('%', :keyword, '%')) " +
+        "OR LOWER(o.email) LIKE LOWER(CONCAT('%', :keyword, '%'))) " +
+        "ORDER BY o.id")
+    Slice<Order> findAllAfter(@Param("afterId") Long afterId,
+                              @Param("keyword") String keyword, Pageable pageable);
+
+    //search.mode = fulltext: dùng GIN index trên search_vector và trigram index trên phone_number
+    @Query(value = "SELECT o.* FROM orders o WHERE o.active = true " +
+            "AND (o.search_vector @@ to_tsquery('simple', :tsQuery) " +
+            "OR o.phone_number LIKE CONCAT('%', :keyword, '%')) " +
+            "ORDER BY ts_rank(o.search_vector, to_tsquery('simple', :tsQuery)) DESC, o.id",
+            countQuery = "SELECT COUNT(*) FROM orders o WHERE o.active = true " +
+                    "AND (o.search_vector @@ to_tsquery('simple', :tsQuery) " +
+                    "OR o.phone_number LIKE CONCAT('%', :keyword, '%'))",
+            nativeQuery = true)
+    Page<Order> searchFullText(@Param("tsQuery") String tsQuery,
+                               @Param("keyword") String keyword, Pageable pageable);
+
     Optional<Order> findByVnpTxnRef(String vnpTxnRef);
 }
 /*
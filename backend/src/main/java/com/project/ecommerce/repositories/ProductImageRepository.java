@@ -2,9 +2,17 @@ package com.project.ecommerce.repositories;
 
 import com.project.ecommerce.models.ProductImage;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface ProductImageRepository extends JpaRepository<ProductImage, Long> {
     List<ProductImage> findByProductId(Long productId);
+
+    //load ảnh của cả trang sản phẩm trong 1 query, fetch luôn product (eager) để không phát thêm query
+    @Query("SELECT pi FROM ProductImage pi JOIN FETCH pi.product p LEFT JOIN FETCH p.category " +
+            "WHERE p.id IN :productIds ORDER BY pi.id")
+    List<ProductImage> findByProductIdIn(@Param("productIds") Collection<Long> productIds);
 }
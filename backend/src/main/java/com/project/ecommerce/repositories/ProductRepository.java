@@ -1,13 +1,11 @@
 package com.project.ecommerce.repositories;
 
 import com.project.ecommerce.models.Product;
-import com.project.ecommerce.responses.ProductStatResponse;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.domain.*;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
-import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
@@ -18,41 +16,95 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
     @Query("SELECT p.id FROM Product p")
     List<Long> findAllProductIds();
 
-    @Query("SELECT p FROM Product p WHERE " +
+    //JOIN FETCH category để không phát thêm query cho quan hệ eager, nên phải khai báo countQuery
+    @Query(value = "SELECT p FROM Product p JOIN FETCH p.category WHERE " +
             "(:categoryId IS NULL OR :categoryId = 0 OR p.category.id = :categoryId) " +
-            "AND (:keyword IS NULL OR :keyword = '' OR p.name LIKE %:keyword% OR p.description LIKE %:keyword%)")
+            "AND (:keyword IS NULL OR :keyword = '' OR p.name LIKE %:keyword% OR p.description LIKE %:keyword%)",
+            countQuery = "SELECT COUNT(p) FROM Product p WHERE " +
+                    "(:categoryId IS NULL OR :categoryId = 0 OR p.category.id = :categoryId) " +
+                    "AND (:keyword IS NULL OR :keyword = '' OR p.name LIKE %:keyword% OR p.description LIKE %:keyword%)")
     Page<Product> searchProducts
             (@Param("categoryId") Long categoryId,
              @Param("keyword") String keyword, Pageable pageable);
+    //phân trang keyset (?after=): seek theo id, không cần câu COUNT
+    @Query("SELECT p FROM Product p JOIN FETCH p.category WHERE p.id > :afterId " +
+            "AND (:categoryId IS NULL OR :categoryId = 0 OR p.category.id = :categoryId) " +
+            "AND (:keyword IS NULL OR :keyword = '' OR p.name LIKE %:keyword% OR p.description LIKE %:keyword%) " +
+            "ORDER BY p.id")
+    Slice<Product> findProductsAfter(@Param("afterId") Long afterId,
+                                     @Param("categoryId") Long categoryId,
+                                     @Param("keyword") String keyword, Pageable pageable);
+    //search.mode = fulltext: fallback khi index trong bộ nhớ chưa sẵn sàng
+    @Query(value = "SELECT p.* FROM products p WHERE " +
+            "(COALESCE(CAST(:categoryId AS BIGINT), 0) = 0 OR p.category_id = :categoryId) " +
+            "AND p.search_vector @@ to_tsquery('simple', :tsQuery) " +
+            "ORDER BY ts_rank(p.search_vector, to_tsquery('simple', :tsQuery)) DESC, p.id",
+            countQuery = "SELECT COUNT(*) FROM products p WHERE " +
+                    "(COALESCE(CAST(:categoryId AS BIGINT), 0) = 0 OR p.category_id = :categoryId) " +
+                    "AND p.search_vector @@ to_tsquery('simple', :tsQuery)",
+            nativeQuery = true)
+    Page<Product> searchFullText(@Param("categoryId") Long categoryId,
+                                 @Param("tsQuery") String tsQuery, Pageable pageable);
+
+    //sort=popular: các id thịnh hành còn tồn tại và khớp bộ lọc (thứ hạng giữ ở phía Java)
+    @Query("SELECT p.id FROM Product p WHERE p.id IN :productIds " +
+            "AND (:categoryId IS NULL OR :categoryId = 0 OR p.category.id = :categoryId) " +
+            "AND (:keyword IS NULL OR :keyword = '' OR p.name LIKE %:keyword% OR p.description LIKE %:keyword%)")
+    List<Long> findMatchingIds(@Param("productIds") List<Long> productIds,
+                               @Param("categoryId") Long categoryId,
+                               @Param("keyword") String keyword);
+
+    //sort=popular, sau các sản phẩm thịnh hành: phần còn lại theo id trên khoá chính, bỏ các id trong rankedIds ("12,5,9")
+    @Query(value = "SELECT p.id FROM products p WHERE " +
+            "(COALESCE(CAST(:categoryId AS BIGINT), 0) = 0 OR p.category_id = :categoryId) " +
+            "AND (:keyword = '' OR p.name LIKE CONCAT('%', :keyword, '%') " +
+            "OR p.description LIKE CONCAT('%', :keyword, '%')) " +
+            "AND p.id <> ALL(CAST(string_to_array(:rankedIds, ',') AS BIGINT[])) " +
+            "ORDER BY p.id LIMIT :limit OFFSET :offset",
+            nativeQuery = true)
+    List<Long> findUnrankedIds(@Param("categoryId") Long categoryId,
+                               @Param("keyword") String keyword,
+                               @Param("rankedIds") String rankedIds,
+                               @Param("limit") int limit,
+                               @Param("offset") long offset);
+
+    @Query("SELECT COUNT(p) FROM Product p WHERE " +
+            "(:categoryId IS NULL OR :categoryId = 0 OR p.category.id = :categoryId) " +
+            "AND (:keyword IS NULL OR :keyword = '' OR p.name LIKE %:keyword% OR p.description LIKE %:keyword%)")
+    long countProducts(@Param("categoryId") Long categoryId, @Param("keyword") String keyword);
+
+    //dữ liệu để build index tìm kiếm trong bộ nhớ, đọc theo lô bằng id
+    @Query("SELECT p.id, p.name, p.description, p.category.id FROM Product p " +
+            "WHERE p.id > :lastId ORDER BY p.id")
+    List<Object[]> findSearchDocuments(@Param("lastId") Long lastId, Pageable pageable);
+
+    //dữ liệu để build trie gợi ý tìm kiếm, đọc theo lô bằng id
+    @Query("SELECT p.id, p.name, p.category.id FROM Product p " +
+            "WHERE p.id > :lastId ORDER BY p.id")
+    List<Object[]> findSuggestionDocuments(@Param("lastId") Long lastId, Pageable pageable);
+
+    //số lượng đã bán của từng sản phẩm (bỏ đơn đã huỷ), dùng làm độ phổ biến
+    @Query("SELECT v.product.id, SUM(od.numberOfProducts) FROM OrderDetail od " +
+            "JOIN od.productVariant v JOIN od.order o " +
+            "WHERE o.status <> 'cancelled' " +
+            "GROUP BY v.product.id")
+    List<Object[]> findSoldQuantities();
+
     @Query("SELECT DISTINCT p FROM Product p " +
             "LEFT JOIN FETCH p.productImages " +
             "LEFT JOIN FETCH p.productVariants " +
             "WHERE p.id = :productId")
     Optional<Product> getDetailProduct(@Param("productId") Long productId);
 
-    @Query("SELECT p FROM Product p WHERE p.id IN :productIds")
+    @Query("SELECT p FROM Product p JOIN FETCH p.category WHERE p.id IN :productIds")
     List<Product> findProductsByIds(@Param("productIds") List<Long> productIds);
 
-    @Query("SELECT p FROM Product p WHERE p.category.id = :categoryId AND NOT p.id = :productId")
+    @Query(value = "SELECT p FROM Product p JOIN FETCH p.category " +
+            "WHERE p.category.id = :categoryId AND NOT p.id = :productId",
+            countQuery = "SELECT COUNT(p) FROM Product p WHERE p.category.id = :categoryId AND NOT p.id = :productId")
     Page<Product> findByCategoryId(@Param("categoryId") Long categoryId,
                                    @Param("productId") Long productId, Pageable pageable);
 
-    @Query("SELECT " +
-            "p.name , " +
-            "SUM(oi.numberOfProducts) ," +
-            "SUM(oi.price * oi.numberOfProducts) " +
-            "FROM OrderDetail oi " +
-            "JOIN Order o ON oi.order.id = o.id " +
-            "JOIN ProductVariant pv ON oi.productVariant.id = pv.id " +
-            "JOIN Product p ON pv.product.id = p.id " +
-            "WHERE " +
-            "o.status = 'delivered' " +
-            "AND (:start IS NULL OR o.orderDate >= :start) " +
-            "AND (:end IS NULL OR o.orderDate <= :end) " +
-            "GROUP BY p.name ")
-    Page<Object[]> getProductStat(@Param("start") LocalDate start,
-                                             @Param("end") LocalDate end, Pageable pageable);
-
     // Spring Data JPA query methods
     Optional<Product> findByName(String name);
     List<Product> findByNameContainingIgnoreCase(String name);
@@ -1,13 +1,16 @@
 package com.project.ecommerce.repositories;
 
 import com.project.ecommerce.models.Review;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
-import java.util.List;
+import java.time.LocalDateTime;
 import java.util.Optional;
 
 public interface ReviewRepository extends JpaRepository<Review, Long> {
@@ -15,24 +18,35 @@ public interface ReviewRepository extends JpaRepository<Review, Long> {
     // Tìm review theo product ID
     Page<Review> findByProductIdOrderByCreatedAtDesc(Long productId, Pageable pageable);
 
-    // Tìm review theo user ID
-    List<Review> findByUserId(Long userId);
+    // Phân trang keyset (?after=): seek theo (created_at, id) giảm dần, không cần câu COUNT
+    @Query("SELECT r FROM Review r WHERE r.product.id = :productId " +
+            "AND (r.createdAt < :createdAt OR (r.createdAt = :createdAt AND r.id < :id)) " +
+            "ORDER BY r.createdAt DESC, r.id DESC")
+    Slice<Review> findByProductIdAfter(@Param("productId") Long productId,
+                                       @Param("createdAt") LocalDateTime createdAt,
+                                       @Param("id") Long id, Pageable pageable);
+
+    // Lịch sử review của user: seek theo (created_at, id) giảm dần,
+    // product/category/user/role join fetch cùng một query thay vì load eager từng review
+    @Query("SELECT r FROM Review r JOIN FETCH r.product p LEFT JOIN FETCH p.category " +
+            "JOIN FETCH r.user u LEFT JOIN FETCH u.role " +
+            "WHERE u.id = :userId " +
+            "AND (r.createdAt < :createdAt OR (r.createdAt = :createdAt AND r.id < :id)) " +
+            "ORDER BY r.createdAt DESC, r.id DESC")
+    Slice<Review> findByUserIdAfter(@Param("userId") Long userId,
+                                    @Param("createdAt") LocalDateTime createdAt,
+                                    @Param("id") Long id, Pageable pageable);
+
+    // Sửa/xoá review: khoá dòng (SELECT ... FOR UPDATE) tới hết transaction, hai request đồng thời
+    // không cùng đọc mức sao cũ rồi trừ thống kê hai lần
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM Review r WHERE r.id = :id")
+    Optional<Review> findByIdForUpdate(@Param("id") Long id);
 
     // Kiểm tra user đã review sản phẩm này chưa
     boolean existsByUserIdAndProductId(Long userId, Long productId);
 
     // Tìm review theo user và product
     Optional<Review> findByUserIdAndProductId(Long userId, Long productId);
-
-    // Tính rating trung bình của sản phẩm
-    @Query("SELECT AVG(r.rating) FROM Review r WHERE r.product.id = :productId")
-    Double getAverageRatingByProductId(@Param("productId") Long productId);
-
-    // Đếm số lượng review của sản phẩm
-    Long countByProductId(Long productId);
-
-    // Lấy phân phối rating (1-5 sao) của sản phẩm
-    @Query("SELECT r.rating, COUNT(r) FROM Review r WHERE r.product.id = :productId GROUP BY r.rating")
-    List<Object[]> getRatingDistributionByProductId(@Param("productId") Long productId);
 }
 
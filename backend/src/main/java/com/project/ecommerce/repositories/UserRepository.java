@@ -2,6 +2,7 @@ package com.project.ecommerce.repositories;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import com.project.ecommerce.models.*;
 import org.springframework.data.jpa.repository.Query;
@@ -21,6 +22,30 @@ public interface UserRepository extends JpaRepository<User, Long> {
             "ORDER BY o.id")
     Page<User> findAll(@Param("keyword") String keyword, Pageable pageable);
 
+    //phân trang keyset (?after=): seek theo id, không cần câu COUNT
+    @Query("SELECT o FROM User o WHERE o.active = true AND o.id > :afterId AND " +
+            "(:keyword IS NULL OR :keyword = '' OR LOWER(o.fullName) LIKE LOWER(CONCAT('%', :keyword, '%')) " +
+            "OR LOWER(o.address) LIKE LOWER(CONCAT('%', :keyword, '%')) " +
+            "OR LOWER(o.phoneNumber) LIKE LOWER(CONCAT('%', :keyword, '%'))) " +
+            "AND LOWER(o.role.name) = 'user' " +
+            "ORDER BY o.id")
+    Slice<User> findAllAfter(@Param("afterId") Long afterId,
+                             @Param("keyword") String keyword, Pageable pageable);
+
+    //search.mode = fulltext: dùng GIN index trên search_vector và trigram index trên phone_number
+    @Query(value = "SELECT u.* FROM users u JOIN roles r ON r.id = u.role_id " +
+            "WHERE u.is_active = true AND LOWER(r.name) = 'user' " +
+            "AND (u.search_vector @@ to_tsquery('simple', :tsQuery) " +
+            "OR u.phone_number LIKE CONCAT('%', :keyword, '%')) " +
+            "ORDER BY ts_rank(u.search_vector, to_tsquery('simple', :tsQuery)) DESC, u.id",
+            countQuery = "SELECT COUNT(*) FROM users u JOIN roles r ON r.id = u.role_id " +
+                    "WHERE u.is_active = true AND LOWER(r.name) = 'user' " +
+                    "AND (u.search_vector @@ to_tsquery('simple', :tsQuery) " +
+                    "OR u.phone_number LIKE CONCAT('%', :keyword, '%'))",
+            nativeQuery = true)
+    Page<User> searchFullText(@Param("tsQuery") String tsQuery,
+                              @Param("keyword") String keyword, Pageable pageable);
+
 
 }
 
@@ -6,6 +6,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -15,6 +16,15 @@ public interface VariantRepository extends JpaRepository<ProductVariant, Long> {
     @Query("SELECT p FROM ProductVariant p WHERE p.id IN :productIds")
     List<ProductVariant> findVariantsByIds(@Param("productIds") List<Long> productIds);
 
+    //checkout: biến thể của cả giỏ hàng kèm sản phẩm (lấy giá) trong 1 query
+    @Query("SELECT v FROM ProductVariant v JOIN FETCH v.product WHERE v.id IN :variantIds")
+    List<ProductVariant> findWithProductByIdIn(@Param("variantIds") Collection<Long> variantIds);
+
     // Spring Data JPA query method
     List<ProductVariant> findByProductId(Long productId);
+
+    //load biến thể của cả trang sản phẩm trong 1 query, fetch luôn product (eager) để không phát thêm query
+    @Query("SELECT v FROM ProductVariant v JOIN FETCH v.product p LEFT JOIN FETCH p.category " +
+            "WHERE p.id IN :productIds ORDER BY v.id")
+    List<ProductVariant> findByProductIdIn(@Param("productIds") Collection<Long> productIds);
 }
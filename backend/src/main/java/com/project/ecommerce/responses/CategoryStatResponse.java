@@ -0,0 +1,16 @@
+package com.project.ecommerce.responses;
+
+import lombok.*;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class CategoryStatResponse {
+
+    private Long categoryId;
+    private String categoryName;
+    private Long quantitySold;
+    private Double revenue;
+}
@@ -14,4 +14,6 @@ import java.util.List;
 public class OrderListResponse {
     private List<OrderResponse> orders;
     private int totalPages;
+    //chỉ có khi gọi với ?after=..., null khi đã hết dữ liệu
+    private String nextCursor;
 }
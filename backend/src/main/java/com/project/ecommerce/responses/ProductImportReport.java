@@ -0,0 +1,41 @@
+package com.project.ecommerce.responses;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ProductImportReport {
+    @JsonProperty("total_rows")
+    private long totalRows;
+
+    @JsonProperty("imported")
+    private long imported;
+
+    @JsonProperty("failed")
+    private long failed;
+
+    //chỉ giữ tối đa một số lỗi đầu tiên, "failed" vẫn đếm đủ
+    @JsonProperty("errors")
+    @Builder.Default
+    private List<RowError> errors = new ArrayList<>();
+
+    @JsonProperty("elapsed_ms")
+    private long elapsedMs;
+
+    @Getter
+    @AllArgsConstructor
+    public static class RowError {
+        @JsonProperty("line")
+        private long line;
+
+        @JsonProperty("message")
+        private String message;
+    }
+}
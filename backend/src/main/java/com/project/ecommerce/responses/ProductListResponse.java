@@ -14,4 +14,6 @@ import java.util.List;
 public class ProductListResponse {
     private List<ProductResponse> products;
     private int totalPages;
+    //chỉ có khi gọi với ?after=..., null khi đã hết dữ liệu
+    private String nextCursor;
 }
@@ -1,5 +1,6 @@
 package com.project.ecommerce.responses;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.project.ecommerce.models.Product;
 import com.project.ecommerce.models.ProductImage;
@@ -28,7 +29,24 @@ public class ProductResponse extends BaseResponse{
 
     @JsonProperty("category_id")
     private Long categoryId;
+
+    //chỉ có khi gọi với ?include=ratings
+    @JsonProperty("avg_rating")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Double avgRating;
+
+    @JsonProperty("review_count")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long reviewCount;
+
     public static ProductResponse fromProduct(Product product) {
+        return fromProduct(product, product.getProductImages(), product.getProductVariants());
+    }
+
+    //dùng cho danh sách: images/variants đã được load theo lô, không chạm vào collection lazy
+    public static ProductResponse fromProduct(Product product,
+                                              Set<ProductImage> productImages,
+                                              Set<ProductVariant> variants) {
         ProductResponse productResponse = ProductResponse.builder()
                 .id(product.getId())
                 .name(product.getName())
@@ -36,11 +54,30 @@ public class ProductResponse extends BaseResponse{
                 .thumbnail(product.getThumbnail())
                 .description(product.getDescription())
                 .categoryId(product.getCategory().getId())
-                .productImages(product.getProductImages())
-                .variants(product.getProductVariants())
+                .productImages(productImages)
+                .variants(variants)
                 .build();
         productResponse.setCreatedAt(product.getCreatedAt());
         productResponse.setUpdatedAt(product.getUpdatedAt());
         return productResponse;
     }
+
+    //bản sao kèm điểm đánh giá: response gốc có thể đang được dùng chung (cache, SingleFlight)
+    public ProductResponse withRatings(Double avgRating, Long reviewCount) {
+        ProductResponse copy = ProductResponse.builder()
+                .id(id)
+                .name(name)
+                .price(price)
+                .thumbnail(thumbnail)
+                .description(description)
+                .categoryId(categoryId)
+                .productImages(productImages)
+                .variants(variants)
+                .avgRating(avgRating)
+                .reviewCount(reviewCount)
+                .build();
+        copy.setCreatedAt(getCreatedAt());
+        copy.setUpdatedAt(getUpdatedAt());
+        return copy;
+    }
 }
@@ -0,0 +1,33 @@
+package com.project.ecommerce.responses;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@AllArgsConstructor
+@Data
+@Builder
+@NoArgsConstructor
+public class RevenueSeriesResponse {
+    private String granularity;
+    private String groupBy;
+    // ngày bắt đầu của từng kỳ (ngày, thứ Hai đầu tuần, mùng 1 đầu tháng)
+    private List<LocalDate> periods;
+    private List<Series> series;
+
+    @AllArgsConstructor
+    @Data
+    @NoArgsConstructor
+    public static class Series {
+        // id sản phẩm/danh mục; null với phương thức thanh toán và nhóm "Other"
+        private Long id;
+        private String name;
+        // cùng độ dài và thứ tự với periods
+        private double[] revenue;
+        private long[] quantity;
+    }
+}
@@ -18,5 +18,9 @@ public class ReviewListResponse {
 
     @JsonProperty("total_elements")
     private long totalElements;
+
+    //chỉ có khi gọi với ?after=..., null khi đã hết dữ liệu
+    @JsonProperty("next_cursor")
+    private String nextCursor;
 }
 
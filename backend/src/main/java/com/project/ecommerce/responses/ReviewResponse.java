@@ -1,5 +1,6 @@
 package com.project.ecommerce.responses;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.project.ecommerce.models.Review;
 import lombok.*;
@@ -25,6 +26,15 @@ public class ReviewResponse extends BaseResponse {
 
     private String comment;
 
+    //tóm tắt sản phẩm, chỉ có trong lịch sử review của user
+    @JsonProperty("product_name")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String productName;
+
+    @JsonProperty("product_thumbnail")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String productThumbnail;
+
     public static ReviewResponse fromReview(Review review) {
         ReviewResponse reviewResponse = ReviewResponse.builder()
                 .id(review.getId())
@@ -38,4 +48,12 @@ public class ReviewResponse extends BaseResponse {
         reviewResponse.setUpdatedAt(review.getUpdatedAt());
         return reviewResponse;
     }
+
+    //product phải được join fetch sẵn (ReviewRepository.findByUserIdAfter)
+    public static ReviewResponse fromReviewWithProduct(Review review) {
+        ReviewResponse reviewResponse = fromReview(review);
+        reviewResponse.setProductName(review.getProduct().getName());
+        reviewResponse.setProductThumbnail(review.getProduct().getThumbnail());
+        return reviewResponse;
+    }
 }
@@ -0,0 +1,28 @@
+package com.project.ecommerce.responses;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@AllArgsConstructor
+@Data
+@Builder
+@NoArgsConstructor
+public class ReviewStatsResponse {
+    private Long productId;
+    private Double averageRating;
+    private Long reviewCount;
+    // đủ 5 mức, từ 1 đến 5 sao
+    private List<RatingCount> ratingDistribution;
+
+    @AllArgsConstructor
+    @Data
+    @NoArgsConstructor
+    public static class RatingCount {
+        private Integer rating;
+        private Long count;
+    }
+}
@@ -0,0 +1,25 @@
+package com.project.ecommerce.responses;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@AllArgsConstructor
+@Data
+@Builder
+@NoArgsConstructor
+public class SuggestionResponse {
+    private List<Item> products;
+    private List<Item> categories;
+
+    @AllArgsConstructor
+    @Data
+    @NoArgsConstructor
+    public static class Item {
+        private Long id;
+        private String name;
+    }
+}
@@ -0,0 +1,99 @@
+package com.project.ecommerce.services.category;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.project.ecommerce.components.SingleFlight;
+import com.project.ecommerce.models.Category;
+import com.project.ecommerce.repositories.CategoryRepository;
+import com.project.ecommerce.responses.ResponseObject;
+import com.project.ecommerce.utils.TransactionUtils;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Snapshot bất biến của toàn bộ danh mục, phục vụ GET /categories mà không chạm DB.
+ * Mỗi snapshot giữ sẵn body JSON đã serialize và ETag (hash nội dung), được thay
+ * nguyên khối sau khi transaction create/update/delete category commit.
+ */
+@Component
+@RequiredArgsConstructor
+public class CategoryCatalog {
+    private final CategoryRepository categoryRepository;
+    private final ObjectMapper objectMapper;
+    private final SingleFlight singleFlight;
+
+    private final AtomicReference<Snapshot> current = new AtomicReference<>();
+
+    @Getter
+    public static class Snapshot {
+        private final long version;
+        private final List<Category> categories;
+        private final byte[] body;
+        private final String etag;
+
+        private Snapshot(long version, List<Category> categories, byte[] body, String etag) {
+            this.version = version;
+            this.categories = categories;
+            this.body = body;
+            this.etag = etag;
+        }
+    }
+
+    public Snapshot snapshot() {
+        Snapshot snapshot = current.get();
+        if (snapshot != null) {
+            return snapshot;
+        }
+        //lần đầu: các request đồng thời dùng chung 1 lần load
+        return singleFlight.execute("categories:catalog", () -> {
+            Snapshot loaded = current.get();
+            return loaded != null ? loaded : reload();
+        });
+    }
+
+    public void refreshAfterCommit() {
+        TransactionUtils.afterCommit(this::reload);
+    }
+
+    //synchronized: lần reload chạy sau luôn đọc dữ liệu mới hơn và là bản được giữ lại
+    private synchronized Snapshot reload() {
+        List<Category> categories = categoryRepository.findAll()
+                .stream()
+                .map(category -> new Category(category.getId(), category.getName()))
+                .toList();
+        byte[] body = serialize(categories);
+        Snapshot previous = current.get();
+        long version = previous == null ? 1 : previous.getVersion() + 1;
+        Snapshot snapshot = new Snapshot(version, categories, body, "\"" + sha256(body) + "\"");
+        current.set(snapshot);
+        return snapshot;
+    }
+
+    private byte[] serialize(List<Category> categories) {
+        try {
+            return objectMapper.writeValueAsBytes(ResponseObject.builder()
+                    .status(HttpStatus.OK)
+                    .message("Success!")
+                    .data(categories)
+                    .build());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize categories", e);
+        }
+    }
+
+    private static String sha256(byte[] body) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(body));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
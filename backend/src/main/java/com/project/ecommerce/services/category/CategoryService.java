@@ -4,6 +4,8 @@ import com.project.ecommerce.dtos.category.CategoryDTO;
 import com.project.ecommerce.exceptions.DataNotFoundException;
 import com.project.ecommerce.models.Category;
 import com.project.ecommerce.repositories.CategoryRepository;
+import com.project.ecommerce.services.product.search.IProductSuggester;
+import com.project.ecommerce.utils.TransactionUtils;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -14,6 +16,8 @@ import java.util.List;
 @RequiredArgsConstructor
 public class CategoryService implements ICategoryService {
     private final CategoryRepository categoryRepository;
+    private final CategoryCatalog categoryCatalog;
+    private final IProductSuggester productSuggester;
     @Override
     @Transactional
     public Category createCategory(CategoryDTO categoryDTO) {
@@ -21,6 +25,7 @@ public class CategoryService implements ICategoryService {
                 .builder()
                 .name(categoryDTO.getName())
                 .build();
+        refreshAfterCommit();
         return categoryRepository.save(newCategory);
     }
 
@@ -32,7 +37,19 @@ public class CategoryService implements ICategoryService {
 
     @Override
     public List<Category> getAllCategories() {
-        return categoryRepository.findAll();
+        // Đọc từ snapshot trong bộ nhớ, chỉ load DB lần đầu và sau khi có thay đổi
+        return categoryCatalog.snapshot().getCategories();
+    }
+
+    //danh mục đổi thì snapshot danh mục và trie gợi ý (tên danh mục) đều phải làm mới
+    private void refreshAfterCommit() {
+        categoryCatalog.refreshAfterCommit();
+        TransactionUtils.afterCommit(productSuggester::scheduleRebuild);
+    }
+
+    @Override
+    public CategoryCatalog.Snapshot getCatalogSnapshot() {
+        return categoryCatalog.snapshot();
     }
 
     @Override
@@ -42,6 +59,7 @@ public class CategoryService implements ICategoryService {
         Category existingCategory = getCategoryById(categoryId);
         existingCategory.setName(categoryDTO.getName());
         categoryRepository.save(existingCategory);
+        refreshAfterCommit();
         return existingCategory;
     }
 
@@ -50,5 +68,6 @@ public class CategoryService implements ICategoryService {
     public void deleteCategory(long id) {
         //xóa xong
         categoryRepository.deleteById(id);
+        refreshAfterCommit();
     }
 }
@@ -10,6 +10,7 @@ public interface ICategoryService {
     Category createCategory(CategoryDTO category);
     Category getCategoryById(long id);
     List<Category> getAllCategories();
+    CategoryCatalog.Snapshot getCatalogSnapshot();
     Category updateCategory(long categoryId, CategoryDTO category);
     void deleteCategory(long id);
 }
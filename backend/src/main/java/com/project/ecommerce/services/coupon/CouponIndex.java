@@ -0,0 +1,200 @@
+package com.project.ecommerce.services.coupon;
+
+import com.project.ecommerce.models.Coupon;
+import com.project.ecommerce.repositories.CouponRepository;
+import com.project.ecommerce.responses.CouponResponse;
+import com.project.ecommerce.utils.TransactionUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+
+/**
+ * Mã giảm giá đang bật và chưa hết hạn, giữ trong bộ nhớ theo mã đã chuẩn hoá (trim + chữ hoa).
+ * Mỗi mã được "biên dịch" sẵn: khoảng hiệu lực thành epoch millis, giá trị đơn tối thiểu thành
+ * số cent kiểu long, nên kiểm tra một mã chỉ là vài phép so sánh số nguyên;
+ * mã không có trong index là mã không hợp lệ, không cần hỏi DB.
+ * - CouponService tạo/sửa/xoá: thay đúng mã đó sau khi commit; mã vừa dùng hết lượt bị đánh dấu ngay
+ * - Định kỳ (coupon.index.refresh-interval-ms) nạp lại toàn bộ: bỏ mã đã hết hạn,
+ *   nhận thay đổi từ server khác và used_count mới
+ * Index là một Map bất biến, mỗi lần ghi tạo Map mới rồi thay tham chiếu.
+ */
+@Component
+public class CouponIndex implements ICouponIndex {
+    private static final Logger logger = LoggerFactory.getLogger(CouponIndex.class);
+
+    // số lần thử nạp lại khi có mã được ghi trong lúc đang đọc DB
+    private static final int MAX_RELOAD_ATTEMPTS = 3;
+
+    private final CouponRepository couponRepository;
+    private final ZoneId zone = ZoneId.systemDefault();
+
+    // null cho tới lần nạp đầu tiên
+    private volatile Map<String, CompiledCoupon> byCode;
+    // tăng mỗi lần refresh/remove: lần nạp đọc DB trước đó không được ghi đè bản mới hơn
+    private long writes;
+
+    public CouponIndex(CouponRepository couponRepository) {
+        this.couponRepository = couponRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        reload();
+    }
+
+    @Scheduled(fixedDelayString = "${coupon.index.refresh-interval-ms:60000}",
+            initialDelayString = "${coupon.index.refresh-interval-ms:60000}")
+    public void scheduledReload() {
+        reload();
+    }
+
+    @Override
+    public boolean isLoaded() {
+        return byCode != null;
+    }
+
+    @Override
+    public Optional<CouponResponse> findValid(String code, double orderAmount) {
+        Map<String, CompiledCoupon> current = byCode;
+        if (current == null) {
+            return Optional.empty();
+        }
+        CompiledCoupon coupon = current.get(ICouponIndex.normalize(code));
+        if (coupon == null || !coupon.isValid(System.currentTimeMillis(), Math.round(orderAmount * 100))) {
+            return Optional.empty();
+        }
+        return Optional.of(coupon.response());
+    }
+
+    @Override
+    public void refresh(Coupon coupon) {
+        CompiledCoupon compiled = compile(coupon, System.currentTimeMillis());
+        Long couponId = coupon.getId();
+        TransactionUtils.afterCommit(() -> replace(couponId, compiled));
+    }
+
+    @Override
+    public void remove(Long couponId) {
+        TransactionUtils.afterCommit(() -> replace(couponId, null));
+    }
+
+    @Override
+    public void markExhausted(Long couponId) {
+        TransactionUtils.afterCommit(() -> {
+            synchronized (this) {
+                Map<String, CompiledCoupon> current = byCode;
+                CompiledCoupon exhausted = current == null ? null : current.values().stream()
+                        .filter(entry -> entry.id() == couponId)
+                        .findFirst()
+                        .map(CompiledCoupon::exhausted)
+                        .orElse(null);
+                if (exhausted != null) {
+                    replace(couponId, exhausted);
+                }
+            }
+        });
+    }
+
+    @Override
+    public void reload() {
+        for (int attempt = 0; attempt < MAX_RELOAD_ATTEMPTS; attempt++) {
+            long generation;
+            synchronized (this) {
+                generation = writes;
+            }
+            Map<String, CompiledCoupon> fresh;
+            try {
+                fresh = load();
+            } catch (DataAccessException e) {
+                logger.error("Cannot load coupon index", e);
+                return;
+            }
+            synchronized (this) {
+                if (writes == generation) {
+                    byCode = fresh;
+                    return;
+                }
+            }
+        }
+        logger.warn("Coupon index kept changing during reload, retrying on next schedule");
+    }
+
+    private Map<String, CompiledCoupon> load() {
+        long now = System.currentTimeMillis();
+        Map<String, CompiledCoupon> fresh = new HashMap<>();
+        for (Coupon coupon : couponRepository.findUnexpiredActive(LocalDateTime.now())) {
+            CompiledCoupon compiled = compile(coupon, now);
+            if (compiled == null) {
+                continue;
+            }
+            CompiledCoupon existing = fresh.putIfAbsent(ICouponIndex.normalize(coupon.getCode()), compiled);
+            if (existing != null) {
+                // mã cũ chỉ khác nhau chữ hoa/thường: giữ mã tạo trước (id nhỏ hơn)
+                logger.warn("Coupon codes {} and {} collide after normalization, keeping id {}",
+                        existing.response().getCode(), coupon.getCode(), existing.id());
+            }
+        }
+        return Collections.unmodifiableMap(fresh);
+    }
+
+    //thay mã có id couponId bằng compiled (null = bỏ), mã có thể đã đổi nên tìm theo id
+    private synchronized void replace(Long couponId, CompiledCoupon compiled) {
+        writes++;
+        Map<String, CompiledCoupon> current = byCode;
+        if (current == null) {
+            return; // lần nạp đầu sẽ bỏ kết quả đã đọc trước lần ghi này và đọc lại
+        }
+        Map<String, CompiledCoupon> next = new HashMap<>(current);
+        next.values().removeIf(entry -> entry.id() == couponId);
+        if (compiled != null) {
+            next.put(ICouponIndex.normalize(compiled.response().getCode()), compiled);
+        }
+        byCode = Collections.unmodifiableMap(next);
+    }
+
+    //null nếu mã không thể hợp lệ nữa (đã tắt hoặc đã hết hạn)
+    private CompiledCoupon compile(Coupon coupon, long now) {
+        if (!coupon.isActive() || coupon.getStartDate() == null || coupon.getEndDate() == null) {
+            return null;
+        }
+        long endMs = coupon.getEndDate().atZone(zone).toInstant().toEpochMilli();
+        if (endMs <= now) {
+            return null;
+        }
+        long startMs = coupon.getStartDate().atZone(zone).toInstant().toEpochMilli();
+        long minimumCents = coupon.getMinimumOrderAmount() == null ? 0 : toCents(coupon.getMinimumOrderAmount());
+        int usageLimit = coupon.getUsageLimit() == null ? Integer.MAX_VALUE : coupon.getUsageLimit();
+        int usedCount = coupon.getUsedCount() == null ? 0 : coupon.getUsedCount();
+        return new CompiledCoupon(coupon.getId(), startMs, endMs, minimumCents, usageLimit, usedCount,
+                CouponResponse.fromCoupon(coupon));
+    }
+
+    //làm tròn lên: đơn phải đạt đủ giá trị tối thiểu như khi so BigDecimal
+    private static long toCents(BigDecimal amount) {
+        return amount.movePointRight(2).setScale(0, RoundingMode.CEILING).longValueExact();
+    }
+
+    private record CompiledCoupon(long id, long startMs, long endMs, long minimumCents,
+                                  int usageLimit, int usedCount, CouponResponse response) {
+        //cùng điều kiện với Coupon.isValid() và kiểm tra đơn tối thiểu trong CouponService
+        boolean isValid(long now, long orderCents) {
+            return now > startMs && now < endMs
+                    && usedCount < usageLimit
+                    && orderCents >= minimumCents;
+        }
+
+        CompiledCoupon exhausted() {
+            return new CompiledCoupon(id, startMs, endMs, minimumCents, usageLimit, usageLimit, response);
+        }
+    }
+}
@@ -1,11 +1,16 @@
 package com.project.ecommerce.services.coupon;
 
+import com.project.ecommerce.configurations.SearchConfig;
 import com.project.ecommerce.exceptions.DataNotFoundException;
 import com.project.ecommerce.models.Coupon;
 import com.project.ecommerce.repositories.CouponRepository;
+import com.project.ecommerce.responses.CouponResponse;
+import com.project.ecommerce.utils.TransactionUtils;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -18,15 +23,30 @@ import java.util.Optional;
 @RequiredArgsConstructor
 public class CouponService implements ICouponService {
 
+    //một câu UPDATE có điều kiện: DB tự chặn vượt usage_limit, không đọc-sửa-ghi trong Java
+    private static final String REDEEM =
+            "UPDATE coupons SET used_count = used_count + 1 " +
+            "WHERE code = ? AND is_active AND start_date < ? AND end_date > ? " +
+            "AND (usage_limit IS NULL OR used_count < usage_limit) " +
+            "RETURNING id, used_count, usage_limit";
+
     private final CouponRepository couponRepository;
+    private final SearchConfig searchConfig;
+    private final ICouponIndex couponIndex;
+    private final HotCouponPool hotCouponPool;
+    private final JdbcTemplate jdbcTemplate;
 
     @Override
     @Transactional
     public Coupon createCoupon(Coupon coupon) {
+        //mã lưu ở dạng chuẩn hoá, trùng với khoá của CouponIndex
+        coupon.setCode(ICouponIndex.normalize(coupon.getCode()));
         if (couponRepository.existsByCode(coupon.getCode())) {
             throw new IllegalArgumentException("Coupon code already exists: " + coupon.getCode());
         }
-        return couponRepository.save(coupon);
+        Coupon savedCoupon = couponRepository.save(coupon);
+        couponIndex.refresh(savedCoupon);
+        return savedCoupon;
     }
 
     @Override
@@ -41,6 +61,12 @@ public class CouponService implements ICouponService {
 
     @Override
     public Page<Coupon> getAllCoupons(String keyword, Boolean active, Pageable pageable) {
+        String tsQuery = searchConfig.toFullTextQuery(keyword);
+        if (tsQuery != null) {
+            //kết quả full-text được sắp theo ts_rank nên bỏ sort của pageable
+            return couponRepository.searchFullText(tsQuery, keyword.trim(), active,
+                    PageRequest.of(pageable.getPageNumber(), pageable.getPageSize()));
+        }
         return couponRepository.findAll(keyword, active, pageable);
     }
 
@@ -50,6 +76,7 @@ public class CouponService implements ICouponService {
         Coupon existingCoupon = couponRepository.findById(id)
                 .orElseThrow(() -> new DataNotFoundException("Coupon not found with id: " + id));
 
+        coupon.setCode(ICouponIndex.normalize(coupon.getCode()));
         // Check if code is being changed and if it conflicts
         if (!existingCoupon.getCode().equals(coupon.getCode()) &&
             couponRepository.existsByCode(coupon.getCode())) {
@@ -68,9 +95,10 @@ public class CouponService implements ICouponService {
         existingCoupon.setEndDate(coupon.getEndDate());
         existingCoupon.setActive(coupon.isActive());
         existingCoupon.setUsageLimit(coupon.getUsageLimit());
-        existingCoupon.setUsedCount(coupon.getUsedCount());
 
-        return couponRepository.save(existingCoupon);
+        Coupon savedCoupon = couponRepository.save(existingCoupon);
+        couponIndex.refresh(savedCoupon);
+        return savedCoupon;
     }
 
     @Override
@@ -80,6 +108,7 @@ public class CouponService implements ICouponService {
             throw new DataNotFoundException("Coupon not found with id: " + id);
         }
         couponRepository.deleteById(id);
+        couponIndex.remove(id);
     }
 
     @Override
@@ -94,34 +123,67 @@ public class CouponService implements ICouponService {
 
     @Override
     @Transactional
-    public void incrementCouponUsage(String code) {
-        Optional<Coupon> couponOpt = couponRepository.findByCode(code);
-        if (couponOpt.isPresent()) {
-            Coupon coupon = couponOpt.get();
-            coupon.incrementUsedCount();
-            couponRepository.save(coupon);
+    public boolean incrementCouponUsage(String code) {
+        String normalizedCode = ICouponIndex.normalize(code);
+        Long hotCouponId = hotCouponPool.idOf(normalizedCode);
+        if (hotCouponId != null) {
+            HotCouponPool.Take take = hotCouponPool.take(hotCouponId);
+            if (take == HotCouponPool.Take.TAKEN) {
+                // pool nằm ngoài transaction: rollback thì trả lượt lại
+                TransactionUtils.afterRollback(() -> hotCouponPool.give(hotCouponId));
+                return true;
+            }
+            if (take == HotCouponPool.Take.REJECTED) {
+                return false;
+            }
+            // pool tạm hết lượt hoặc mã vừa bị loại khỏi pool: cộng thẳng trên DB
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        List<long[]> redeemed = jdbcTemplate.query(REDEEM,
+                (rs, rowNum) -> new long[]{rs.getLong("id"), rs.getLong("used_count"),
+                        rs.getObject("usage_limit") == null ? Long.MAX_VALUE : rs.getLong("usage_limit")},
+                normalizedCode, now, now);
+        if (redeemed.isEmpty()) {
+            return false;
+        }
+        long[] row = redeemed.get(0);
+        if (row[1] >= row[2]) {
+            couponIndex.markExhausted(row[0]);
         }
+        return true;
     }
 
     @Override
     public boolean validateCoupon(String code, Double orderAmount) {
-        Optional<Coupon> couponOpt = couponRepository.findByCode(code);
+        return findValidCoupon(code, orderAmount).isPresent();
+    }
+
+    @Override
+    public Optional<CouponResponse> findValidCoupon(String code, Double orderAmount) {
+        if (couponIndex.isLoaded()) {
+            return couponIndex.findValid(code, orderAmount);
+        }
+
+        // index chưa nạp xong: đọc DB, so khớp mã giống index (trim, không phân biệt hoa/thường)
+        Optional<Coupon> couponOpt = couponRepository
+                .findFirstByCodeIgnoreCaseOrderByIdAsc(ICouponIndex.normalize(code));
         if (couponOpt.isEmpty()) {
-            return false;
+            return Optional.empty();
         }
 
         Coupon coupon = couponOpt.get();
         if (!coupon.isValid()) {
-            return false;
+            return Optional.empty();
         }
 
         // Check minimum order amount
         if (coupon.getMinimumOrderAmount() != null &&
             BigDecimal.valueOf(orderAmount).compareTo(coupon.getMinimumOrderAmount()) < 0) {
-            return false;
+            return Optional.empty();
         }
 
-        return true;
+        return Optional.of(CouponResponse.fromCoupon(coupon));
     }
 }
 
@@ -0,0 +1,292 @@
+package com.project.ecommerce.services.coupon;
+
+import com.project.ecommerce.services.stock.StripedStock;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lượt dùng trong bộ nhớ cho mã giảm giá chạy khuyến mãi lớn (coupons.high_volume = true),
+ * cùng cách làm với HotStockPool:
+ * - Server lấy trước từng khối lượt dùng bằng UPDATE có điều kiện (used_count cộng cả khối,
+ *   không vượt usage_limit), mỗi lần dùng chỉ trừ trên StripedStock, không khoá dòng coupons
+ * - DB luôn cộng trước khi bộ nhớ có lượt nên nhiều server cùng chạy cũng không vượt usage_limit
+ * - Lease chạy trên thread nền, không trong transaction của đơn hàng: pool hết lượt thì lần đó
+ *   cộng thẳng trên DB (MISS) trong lúc thread nền lease thêm
+ * - Lượt chưa dùng được trả về DB khi mã không còn ai dùng, khi bỏ cờ và khi tắt server.
+ *   Server chết đột ngột thì used_count trong DB cao hơn số lần dùng thật (dùng thiếu, không dùng vượt).
+ */
+@Component
+public class HotCouponPool {
+    private static final Logger logger = LoggerFactory.getLogger(HotCouponPool.class);
+
+    public enum Take {
+        TAKEN,
+        // ngoài thời gian hiệu lực
+        REJECTED,
+        // pool tạm hết lượt, đã yêu cầu lease thêm ở nền: lần này cộng thẳng trên DB
+        MISS,
+        // không phải mã high_volume (hoặc vừa bị loại khỏi pool): cộng thẳng trên DB
+        NOT_HOT
+    }
+
+    //khoá dòng trước để biết số lượt còn lại, lấy tối đa ? nhưng không quá usage_limit
+    private static final String LEASE =
+            "WITH locked AS (SELECT id, COALESCE(usage_limit - used_count, ?) AS remaining FROM coupons " +
+            "WHERE id = ? AND is_active AND start_date < ? AND end_date > ? " +
+            "AND (usage_limit IS NULL OR used_count < usage_limit) FOR UPDATE) " +
+            "UPDATE coupons c SET used_count = c.used_count + LEAST(locked.remaining, ?) " +
+            "FROM locked WHERE c.id = locked.id " +
+            "RETURNING LEAST(locked.remaining, ?) AS leased";
+    private static final String RETURN =
+            "UPDATE coupons SET used_count = GREATEST(used_count - ?, 0) WHERE id = ?";
+    private static final String SELECT_HOT =
+            "SELECT id, code, start_date, end_date FROM coupons WHERE high_volume AND is_active AND end_date > ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate leaseTransaction;
+    private final ZoneId zone = ZoneId.systemDefault();
+    private final int stripes;
+    private final int leaseBlock;
+    private final long idleNanos;
+    private final Map<Long, HotCoupon> coupons = new ConcurrentHashMap<>();
+    private volatile Map<String, Long> idsByCode = Map.of();
+    // mã đang có lease chạy ở nền, mỗi mã tối đa một lease
+    private final Set<Long> leasing = ConcurrentHashMap.newKeySet();
+    private final ExecutorService leaseExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "hot-coupon-lease");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static final class HotCoupon {
+        private final StripedStock redemptions;
+        private volatile long startMs;
+        private volatile long endMs;
+
+        HotCoupon(StripedStock redemptions) {
+            this.redemptions = redemptions;
+        }
+    }
+
+    public HotCouponPool(JdbcTemplate jdbcTemplate,
+                         PlatformTransactionManager transactionManager,
+                         @Value("${coupon.hot.stripes:8}") int stripes,
+                         @Value("${coupon.hot.lease-block:100}") int leaseBlock,
+                         @Value("${coupon.hot.idle-seconds:60}") long idleSeconds) {
+        this.jdbcTemplate = jdbcTemplate;
+        // lease/trả lượt commit riêng, không phụ thuộc transaction nào có rollback hay không
+        this.leaseTransaction = new TransactionTemplate(transactionManager);
+        this.leaseTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.stripes = stripes;
+        this.leaseBlock = leaseBlock;
+        this.idleNanos = TimeUnit.SECONDS.toNanos(idleSeconds);
+    }
+
+    /**
+     * Id của mã high_volume theo mã đã chuẩn hoá, null nếu không phải mã hot
+     */
+    public Long idOf(String normalizedCode) {
+        return idsByCode.get(normalizedCode);
+    }
+
+    public Take take(Long couponId) {
+        HotCoupon coupon = coupons.get(couponId);
+        if (coupon == null) {
+            return Take.NOT_HOT;
+        }
+        long now = System.currentTimeMillis();
+        if (now <= coupon.startMs || now >= coupon.endMs) {
+            return Take.REJECTED;
+        }
+        StripedStock redemptions = coupon.redemptions;
+        if (redemptions.tryTake(1)) {
+            return Take.TAKEN;
+        }
+        // hết lượt ở mọi stripe: lease thêm ở nền, không đụng DB trong transaction của người gọi
+        requestLease(couponId, redemptions);
+        return Take.MISS;
+    }
+
+    /**
+     * Trả lượt đã lấy bằng take (rollback); mã đã bị loại khỏi pool thì trả thẳng về DB
+     */
+    public void give(Long couponId) {
+        HotCoupon coupon = coupons.get(couponId);
+        if (coupon != null) {
+            synchronized (coupon.redemptions) {
+                if (!coupon.redemptions.isRetired()) {
+                    coupon.redemptions.add(1);
+                    return;
+                }
+            }
+        }
+        // được gọi lúc transaction đang kết thúc (rollback): ghi DB ở thread nền
+        try {
+            leaseExecutor.execute(() -> returnQuietly(couponId, 1));
+        } catch (RejectedExecutionException e) {
+            returnQuietly(couponId, 1);
+        }
+    }
+
+    //đồng bộ danh sách mã hot với DB: thêm mã mới, cập nhật mã/thời gian, trả lượt của mã bị bỏ cờ/hết hạn
+    @Scheduled(fixedDelayString = "${coupon.hot.refresh-interval-ms:60000}")
+    public void refresh() {
+        try {
+            Map<String, Long> hotIds = new HashMap<>();
+            jdbcTemplate.query(SELECT_HOT, rs -> {
+                long couponId = rs.getLong("id");
+                HotCoupon coupon = coupons.computeIfAbsent(couponId, id -> new HotCoupon(new StripedStock(stripes)));
+                coupon.startMs = toEpochMillis(rs.getObject("start_date", LocalDateTime.class));
+                coupon.endMs = toEpochMillis(rs.getObject("end_date", LocalDateTime.class));
+                hotIds.put(ICouponIndex.normalize(rs.getString("code")), couponId);
+            }, LocalDateTime.now());
+            idsByCode = Map.copyOf(hotIds);
+            for (Long couponId : List.copyOf(coupons.keySet())) {
+                if (!hotIds.containsValue(couponId)) {
+                    retire(couponId);
+                }
+            }
+        } catch (RuntimeException e) {
+            logger.error("Cannot refresh high-volume coupons", e);
+        }
+    }
+
+    //write-behind: mã không ai dùng trong idle-seconds thì trả phần lượt còn giữ về DB
+    @Scheduled(fixedDelayString = "${coupon.hot.flush-interval-ms:10000}")
+    public void flushIdle() {
+        long now = System.nanoTime();
+        coupons.forEach((couponId, coupon) -> {
+            StripedStock redemptions = coupon.redemptions;
+            if (redemptions.available() == 0 || !redemptions.idleFor(idleNanos, now)) {
+                return;
+            }
+            int available;
+            synchronized (redemptions) {
+                available = redemptions.drain();
+            }
+            try {
+                returnToDatabase(couponId, available);
+            } catch (RuntimeException e) {
+                logger.warn("Cannot flush redemptions of coupon {}: {}", couponId, e.getMessage());
+                synchronized (redemptions) {
+                    if (!redemptions.isRetired()) {
+                        redemptions.add(available);
+                        return;
+                    }
+                }
+                returnQuietly(couponId, available);
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // chờ lease đang chạy xong trước khi trả lượt về DB
+        leaseExecutor.shutdown();
+        try {
+            leaseExecutor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (Long couponId : List.copyOf(coupons.keySet())) {
+            try {
+                retire(couponId);
+            } catch (RuntimeException e) {
+                logger.error("Cannot return redemptions of coupon {}", couponId, e);
+            }
+        }
+    }
+
+    private void retire(Long couponId) {
+        HotCoupon coupon = coupons.remove(couponId);
+        if (coupon == null) {
+            return;
+        }
+        int available;
+        synchronized (coupon.redemptions) {
+            coupon.redemptions.retire();
+            available = coupon.redemptions.drain();
+        }
+        returnToDatabase(couponId, available);
+    }
+
+    private void requestLease(Long couponId, StripedStock redemptions) {
+        if (!leasing.add(couponId)) {
+            return;
+        }
+        try {
+            leaseExecutor.execute(() -> {
+                try {
+                    leaseInto(couponId, redemptions);
+                } catch (RuntimeException e) {
+                    logger.warn("Cannot lease redemptions of coupon {}: {}", couponId, e.getMessage());
+                } finally {
+                    leasing.remove(couponId);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            leasing.remove(couponId); // đang tắt server
+        }
+    }
+
+    private void leaseInto(Long couponId, StripedStock redemptions) {
+        int leased = lease(couponId);
+        if (leased == 0) {
+            return;
+        }
+        synchronized (redemptions) {
+            if (!redemptions.isRetired()) {
+                redemptions.add(leased);
+                return;
+            }
+        }
+        // mã bị loại khỏi pool trong lúc lease
+        returnToDatabase(couponId, leased);
+    }
+
+    private void returnQuietly(Long couponId, int quantity) {
+        try {
+            returnToDatabase(couponId, quantity);
+        } catch (RuntimeException e) {
+            logger.error("Cannot return {} redemptions of coupon {}", quantity, couponId, e);
+        }
+    }
+
+    private int lease(Long couponId) {
+        LocalDateTime now = LocalDateTime.now();
+        List<Integer> leased = leaseTransaction.execute(status -> jdbcTemplate.queryForList(LEASE, Integer.class,
+                leaseBlock, couponId, now, now, leaseBlock, leaseBlock));
+        return leased == null || leased.isEmpty() ? 0 : leased.get(0);
+    }
+
+    private void returnToDatabase(Long couponId, int quantity) {
+        if (quantity <= 0) {
+            return;
+        }
+        leaseTransaction.executeWithoutResult(status -> jdbcTemplate.update(RETURN, quantity, couponId));
+    }
+
+    private long toEpochMillis(LocalDateTime dateTime) {
+        return dateTime.atZone(zone).toInstant().toEpochMilli();
+    }
+}
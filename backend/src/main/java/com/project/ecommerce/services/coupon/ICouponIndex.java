@@ -0,0 +1,42 @@
+package com.project.ecommerce.services.coupon;
+
+import com.project.ecommerce.models.Coupon;
+import com.project.ecommerce.responses.CouponResponse;
+
+import java.util.Locale;
+import java.util.Optional;
+
+public interface ICouponIndex {
+    /**
+     * false cho tới khi lần nạp đầu tiên xong (ApplicationReadyEvent), lúc đó phải tra DB
+     */
+    boolean isLoaded();
+
+    /**
+     * Mã giảm giá còn dùng được cho đơn orderAmount, tra trong bộ nhớ.
+     * Chỉ dùng khi isLoaded(); index chưa nạp thì luôn là Optional.empty()
+     */
+    Optional<CouponResponse> findValid(String code, double orderAmount);
+
+    /**
+     * Cập nhật một mã sau khi transaction hiện tại commit (tạo/sửa)
+     */
+    void refresh(Coupon coupon);
+
+    /**
+     * Bỏ một mã khỏi index sau khi transaction hiện tại commit (xoá)
+     */
+    void remove(Long couponId);
+
+    /**
+     * Đánh dấu mã đã dùng hết usage_limit sau khi transaction hiện tại commit,
+     * không phải chờ lần nạp lại kế tiếp mới thấy
+     */
+    void markExhausted(Long couponId);
+
+    void reload();
+
+    static String normalize(String code) {
+        return code == null ? "" : code.trim().toUpperCase(Locale.ROOT);
+    }
+}
@@ -1,6 +1,7 @@
 package com.project.ecommerce.services.coupon;
 
 import com.project.ecommerce.models.Coupon;
+import com.project.ecommerce.responses.CouponResponse;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
@@ -25,9 +26,18 @@ public interface ICouponService {
 
     List<Coupon> getValidCoupons();
 
-    void incrementCouponUsage(String code);
+    /**
+     * Dùng một lượt của mã. false khi mã không tồn tại, ngoài thời gian hiệu lực hoặc đã hết usage_limit.
+     * Gọi trong transaction của đơn: rollback thì lượt được hoàn lại.
+     */
+    boolean incrementCouponUsage(String code);
 
     boolean validateCoupon(String code, Double orderAmount);
+
+    /**
+     * Mã còn dùng được cho đơn orderAmount, tra trong CouponIndex (không hỏi DB khi mã không tồn tại)
+     */
+    Optional<CouponResponse> findValidCoupon(String code, Double orderAmount);
 }
 
 
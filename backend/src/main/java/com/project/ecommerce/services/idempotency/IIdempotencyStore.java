@@ -0,0 +1,25 @@
+package com.project.ecommerce.services.idempotency;
+
+public interface IIdempotencyStore {
+    /**
+     * Response đã hoàn tất của key (cache trước, rồi DB), null nếu chưa có, đã hết hạn hoặc đang xử lý
+     */
+    StoredResponse find(byte[] keyHash);
+
+    /**
+     * Giữ key cho request đang xử lý; false nếu request khác đang giữ hoặc key đã có response
+     */
+    boolean claim(byte[] keyHash, byte[] requestHash);
+
+    void complete(byte[] keyHash, StoredResponse response);
+
+    /**
+     * Bỏ key đã giữ (request lỗi) để client gửi lại được
+     */
+    void abandon(byte[] keyHash);
+
+    /**
+     * Xoá key hết hạn, trả về số key đã xoá
+     */
+    int purgeExpired();
+}
@@ -0,0 +1,106 @@
+package com.project.ecommerce.services.idempotency;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Response theo Idempotency-Key: bảng idempotency_keys là nguồn chính (dùng chung giữa các server),
+ * Caffeine phía trước giữ các response đã hoàn tất để lần gửi lại không chạm DB.
+ * Key đang xử lý chỉ được giữ trong pending-timeout-seconds: server chết giữa chừng thì key
+ * tự nhả, response đã hoàn tất giữ trong ttl-hours.
+ */
+@Service
+public class IdempotencyStore implements IIdempotencyStore {
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyStore.class);
+
+    //chỉ ghi đè key đã hết hạn
+    private static final String CLAIM =
+            "INSERT INTO idempotency_keys (key_hash, request_hash, expires_at) " +
+            "VALUES (?, ?, NOW() + ? * INTERVAL '1 second') " +
+            "ON CONFLICT (key_hash) DO UPDATE SET request_hash = EXCLUDED.request_hash, status_code = NULL, " +
+            "content_type = NULL, body = NULL, expires_at = EXCLUDED.expires_at " +
+            "WHERE idempotency_keys.expires_at < NOW()";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Cache<String, StoredResponse> cache;
+    private final long ttlSeconds;
+    private final long pendingTimeoutSeconds;
+
+    public IdempotencyStore(JdbcTemplate jdbcTemplate,
+                            @Value("${idempotency.ttl-hours:24}") long ttlHours,
+                            @Value("${idempotency.pending-timeout-seconds:60}") long pendingTimeoutSeconds,
+                            @Value("${idempotency.cache.max-size:10000}") long cacheMaxSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.ttlSeconds = Duration.ofHours(ttlHours).toSeconds();
+        this.pendingTimeoutSeconds = pendingTimeoutSeconds;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfterWrite(Duration.ofHours(ttlHours))
+                .build();
+    }
+
+    @Override
+    public StoredResponse find(byte[] keyHash) {
+        String cacheKey = HexFormat.of().formatHex(keyHash);
+        StoredResponse cached = cache.getIfPresent(cacheKey);
+        if (cached != null) {
+            return cached;
+        }
+        List<StoredResponse> rows = jdbcTemplate.query(
+                "SELECT request_hash, status_code, content_type, body FROM idempotency_keys " +
+                "WHERE key_hash = ? AND status_code IS NOT NULL AND expires_at >= NOW()",
+                (rs, rowNum) -> new StoredResponse(rs.getBytes("request_hash"), rs.getInt("status_code"),
+                        rs.getString("content_type"), rs.getBytes("body")),
+                keyHash);
+        if (rows.isEmpty()) {
+            return null;
+        }
+        cache.put(cacheKey, rows.get(0));
+        return rows.get(0);
+    }
+
+    @Override
+    public boolean claim(byte[] keyHash, byte[] requestHash) {
+        return jdbcTemplate.update(CLAIM, keyHash, requestHash, pendingTimeoutSeconds) > 0;
+    }
+
+    @Override
+    public void complete(byte[] keyHash, StoredResponse response) {
+        jdbcTemplate.update("UPDATE idempotency_keys SET status_code = ?, content_type = ?, body = ?, " +
+                        "expires_at = NOW() + ? * INTERVAL '1 second' WHERE key_hash = ?",
+                response.status(), response.contentType(), response.body(), ttlSeconds, keyHash);
+        cache.put(HexFormat.of().formatHex(keyHash), response);
+    }
+
+    @Override
+    public void abandon(byte[] keyHash) {
+        jdbcTemplate.update("DELETE FROM idempotency_keys WHERE key_hash = ? AND status_code IS NULL", keyHash);
+    }
+
+    @Scheduled(fixedDelayString = "${idempotency.purge-interval-ms:3600000}")
+    public void scheduledPurge() {
+        try {
+            int purged = purgeExpired();
+            if (purged > 0) {
+                logger.info("Purged {} expired idempotency keys", purged);
+            }
+        } catch (RuntimeException e) {
+            logger.error("Cannot purge idempotency keys", e);
+        }
+    }
+
+    @Override
+    public int purgeExpired() {
+        return jdbcTemplate.update("DELETE FROM idempotency_keys WHERE expires_at < NOW()");
+    }
+}
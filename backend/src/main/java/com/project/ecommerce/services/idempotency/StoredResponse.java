@@ -0,0 +1,7 @@
+package com.project.ecommerce.services.idempotency;
+
+/**
+ * Response đã lưu của request đầu tiên với một Idempotency-Key
+ */
+public record StoredResponse(byte[] requestHash, int status, String contentType, byte[] body) {
+}
@@ -0,0 +1,14 @@
+package com.project.ecommerce.services.image;
+
+public interface IImageDerivativeService {
+    /**
+     * Đưa ảnh gốc vừa upload vào hàng đợi tạo ảnh thu nhỏ, không chờ xử lý xong
+     */
+    void submit(String originalName);
+
+    /**
+     * Tên file cần trả cho ?size= (thumb | detail): ảnh thu nhỏ nếu đã có,
+     * ngược lại là ảnh gốc (và ảnh thu nhỏ được xếp hàng tạo)
+     */
+    String resolve(String originalName, String size);
+}
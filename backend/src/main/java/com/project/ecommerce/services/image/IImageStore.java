@@ -0,0 +1,19 @@
+package com.project.ecommerce.services.image;
+
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.util.List;
+
+public interface IImageStore {
+    /**
+     * Lưu các file song song theo nội dung (sha256), trả về tên file theo đúng thứ tự đầu vào.
+     * File trùng nội dung với file đã có không được ghi lại.
+     */
+    List<String> store(List<MultipartFile> files) throws IOException;
+
+    /**
+     * Xoá các file không còn được product_images/products.thumbnail tham chiếu, trả về số file đã xoá
+     */
+    int sweep() throws IOException;
+}
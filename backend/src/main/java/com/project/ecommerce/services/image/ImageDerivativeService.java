@@ -0,0 +1,274 @@
+package com.project.ecommerce.services.image;
+
+import com.project.ecommerce.components.ImageFileServer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tạo ảnh thu nhỏ cho ảnh sản phẩm trên một pool worker cố định với hàng đợi giới hạn:
+ * - thumb (danh sách sản phẩm) và detail (trang chi tiết), JPEG
+ * Tên file theo nội dung ảnh gốc: {sha256}_{size}.jpg, nằm cạnh ảnh gốc trong uploads,
+ * nên các ảnh gốc trùng nội dung dùng chung ảnh thu nhỏ.
+ * Hàng đợi đầy thì bỏ qua; ảnh thu nhỏ sẽ được tạo lại ở lần đầu có request ?size=.
+ */
+@Service
+public class ImageDerivativeService implements IImageDerivativeService {
+    private static final Logger logger = LoggerFactory.getLogger(ImageDerivativeService.class);
+
+    // ảnh gốc lớn hơn ngưỡng này không decode (chống ảnh bom giải nén)
+    private static final long MAX_SOURCE_PIXELS = 50_000_000L;
+    private static final float JPEG_QUALITY = 0.82f;
+    static final String TEMP_PREFIX = ".derivative-";
+
+    public enum Size {
+        THUMB("thumb", 320),
+        DETAIL("detail", 960);
+
+        private final String key;
+        private final int maxDimension;
+
+        Size(String key, int maxDimension) {
+            this.key = key;
+            this.maxDimension = maxDimension;
+        }
+
+        public static Size of(String key) {
+            for (Size size : values()) {
+                if (size.key.equalsIgnoreCase(key)) {
+                    return size;
+                }
+            }
+            throw new IllegalArgumentException("Invalid image size: " + key);
+        }
+    }
+
+    private final ImageFileServer imageFileServer;
+    private final ThreadPoolExecutor executor;
+    // ảnh gốc đang chờ/đang xử lý, tránh xếp hàng trùng khi nhiều request ?size= cùng lúc
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+
+    public ImageDerivativeService(ImageFileServer imageFileServer,
+                                  @Value("${image.derivatives.workers:2}") int workers,
+                                  @Value("${image.derivatives.queue-capacity:1000}") int queueCapacity) {
+        this.imageFileServer = imageFileServer;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "image-derivatives-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        logger.info("Image derivatives: {} workers", workers);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Override
+    public void submit(String originalName) {
+        if (!pending.add(originalName)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    generate(originalName);
+                } finally {
+                    pending.remove(originalName);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pending.remove(originalName);
+            logger.warn("Image derivative queue is full, skipping {}", originalName);
+        }
+    }
+
+    @Override
+    public String resolve(String originalName, String size) {
+        Size target = Size.of(size);
+        String hash = imageFileServer.contentHash(originalName);
+        if (hash == null) {
+            return originalName; // không có ảnh gốc: ImageFileServer trả ảnh notfound
+        }
+        String jpeg = derivativeName(hash, target, "jpg");
+        if (imageFileServer.exists(jpeg)) {
+            return jpeg;
+        }
+        submit(originalName);
+        return originalName;
+    }
+
+    public static String derivativeName(String hash, Size size, String extension) {
+        return hash + "_" + size.key + "." + extension;
+    }
+
+    private void generate(String originalName) {
+        String hash = imageFileServer.contentHash(originalName);
+        Path source = imageFileServer.resolve(originalName);
+        if (hash == null || source == null) {
+            return;
+        }
+        if (derivativesExist(hash)) {
+            return; // ảnh trùng nội dung đã có ảnh thu nhỏ
+        }
+        try {
+            BufferedImage original = read(source);
+            if (original == null) {
+                logger.warn("Unsupported or too large image {}, no derivatives generated", originalName);
+                return;
+            }
+            for (Size size : Size.values()) {
+                BufferedImage scaled = scale(original, size.maxDimension);
+                write(scaled, derivativeName(hash, size, "jpg"), JPEG_QUALITY);
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.error("Cannot generate derivatives for {}", originalName, e);
+        }
+    }
+
+    private boolean derivativesExist(String hash) {
+        for (Size size : Size.values()) {
+            Path jpeg = imageFileServer.resolve(derivativeName(hash, size, "jpg"));
+            if (jpeg == null || !Files.exists(jpeg)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    //đọc kích thước trước khi decode, bỏ qua ảnh quá lớn
+    private static BufferedImage read(Path source) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(source.toFile())) {
+            if (input == null) {
+                return null;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                if ((long) reader.getWidth(0) * reader.getHeight(0) > MAX_SOURCE_PIXELS) {
+                    return null;
+                }
+                return reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    // thu nhỏ từng nửa rồi mới về kích thước cuối: nét hơn một lần bilinear, nhanh hơn bicubic toàn ảnh
+    private static BufferedImage scale(BufferedImage source, int maxDimension) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        double ratio = Math.min(1.0, (double) maxDimension / Math.max(width, height));
+        int targetWidth = Math.max(1, (int) Math.round(width * ratio));
+        int targetHeight = Math.max(1, (int) Math.round(height * ratio));
+
+        BufferedImage current = toRgb(source);
+        while (width / 2 >= targetWidth && height / 2 >= targetHeight) {
+            width /= 2;
+            height /= 2;
+            current = resize(current, width, height);
+        }
+        if (width != targetWidth || height != targetHeight) {
+            current = resize(current, targetWidth, targetHeight);
+        }
+        return current;
+    }
+
+    //JPEG không có kênh alpha: vẽ lên nền trắng
+    private static BufferedImage toRgb(BufferedImage source) {
+        if (source.getType() == BufferedImage.TYPE_INT_RGB) {
+            return source;
+        }
+        BufferedImage rgb = new BufferedImage(source.getWidth(), source.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = rgb.createGraphics();
+        try {
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, rgb.getWidth(), rgb.getHeight());
+            graphics.drawImage(source, 0, 0, null);
+        } finally {
+            graphics.dispose();
+        }
+        return rgb;
+    }
+
+    private static BufferedImage resize(BufferedImage source, int width, int height) {
+        BufferedImage target = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    //ghi ra file tạm rồi đổi tên, request đang đọc không bao giờ thấy file ghi dở
+    private void write(BufferedImage image, String name, float quality) throws IOException {
+        Path target = imageFileServer.resolve(name);
+        if (target == null || Files.exists(target)) {
+            return; // cùng nội dung đã có sẵn
+        }
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByMIMEType("image/jpeg");
+        if (!writers.hasNext()) {
+            return;
+        }
+        ImageWriter writer = writers.next();
+        Path temp = Files.createTempFile(target.getParent(), TEMP_PREFIX, ".tmp");
+        try {
+            try (ImageOutputStream output = ImageIO.createImageOutputStream(temp.toFile())) {
+                writer.setOutput(output);
+                ImageWriteParam param = writer.getDefaultWriteParam();
+                if (param.canWriteCompressed()) {
+                    param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                    param.setCompressionQuality(quality);
+                }
+                writer.write(null, new IIOImage(image, null, null), param);
+            } finally {
+                writer.dispose();
+            }
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            imageFileServer.evict(name);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+}
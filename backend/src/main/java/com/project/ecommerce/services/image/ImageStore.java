@@ -0,0 +1,277 @@
+package com.project.ecommerce.services.image;
+
+import com.project.ecommerce.components.ImageFileServer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Kho ảnh theo nội dung trong thư mục uploads: mỗi ảnh là một blob {sha256}.{ext},
+ * cùng một ảnh upload cho nhiều sản phẩm/biến thể chỉ lưu một lần.
+ * - Các part của một request upload được ghi song song; mỗi blob fsync trước khi đổi tên,
+ *   thư mục fsync một lần ở cuối
+ * - Số tham chiếu của blob tính từ product_images.image_url và products.thumbnail;
+ *   sweeper chạy nền xoá blob (và ảnh thu nhỏ của nó) không còn tham chiếu
+ * - Blob mới ghi hoặc vừa được dùng lại có mtime mới, sweeper chừa ra trong khoảng grace
+ *   để không xoá ảnh của request upload đang chờ ghi DB; upload dùng lại blob và sweeper xoá blob
+ *   cùng giữ khoá theo hash nên mtime vừa làm mới không bị sweeper bỏ qua
+ */
+@Service
+public class ImageStore implements IImageStore {
+    private static final Logger logger = LoggerFactory.getLogger(ImageStore.class);
+
+    private static final Pattern BLOB_NAME = Pattern.compile("([0-9a-f]{64})\\.[a-z]+");
+    private static final Pattern DERIVATIVE_NAME = Pattern.compile("([0-9a-f]{64})_[a-z]+\\.[a-z]+");
+    private static final String TEMP_PREFIX = ".upload-";
+    private static final int LOCK_STRIPES = 64;
+
+    private final ImageFileServer imageFileServer;
+    private final JdbcTemplate jdbcTemplate;
+    private final Duration grace;
+    private final ExecutorService executor;
+    private final Object[] hashLocks = new Object[LOCK_STRIPES];
+
+    public ImageStore(ImageFileServer imageFileServer,
+                      JdbcTemplate jdbcTemplate,
+                      @Value("${image.store.upload-threads:4}") int uploadThreads,
+                      @Value("${image.store.sweep-grace-minutes:60}") long graceMinutes) {
+        this.imageFileServer = imageFileServer;
+        this.jdbcTemplate = jdbcTemplate;
+        this.grace = Duration.ofMinutes(graceMinutes);
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(uploadThreads, runnable -> {
+            Thread thread = new Thread(runnable, "image-store-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < hashLocks.length; i++) {
+            hashLocks[i] = new Object();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Override
+    public List<String> store(List<MultipartFile> files) throws IOException {
+        Path root = imageFileServer.getRoot();
+        Files.createDirectories(root);
+        List<Future<String>> writes = new ArrayList<>(files.size());
+        for (MultipartFile file : files) {
+            writes.add(executor.submit(() -> write(root, file)));
+        }
+        List<String> names = new ArrayList<>(files.size());
+        IOException failure = null;
+        // chờ hết các part kể cả khi có part lỗi; blob đã ghi mà không dùng sẽ được sweeper thu hồi
+        for (Future<String> write : writes) {
+            try {
+                names.add(write.get());
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof IllegalArgumentException invalid) {
+                    throw invalid;
+                }
+                if (failure == null) {
+                    failure = cause instanceof IOException io ? io : new IOException(cause);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while storing images", e);
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        syncDirectory(root);
+        return names;
+    }
+
+    private String write(Path root, MultipartFile file) throws IOException {
+        Path temp = Files.createTempFile(root, TEMP_PREFIX, ".tmp");
+        try {
+            MessageDigest digest = sha256();
+            byte[] header = new byte[12];
+            int headerLength = 0;
+            try (InputStream input = file.getInputStream();
+                 FileChannel output = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                byte[] buffer = new byte[64 * 1024];
+                int read;
+                while ((read = input.read(buffer)) > 0) {
+                    if (headerLength < header.length) {
+                        int copied = Math.min(read, header.length - headerLength);
+                        System.arraycopy(buffer, 0, header, headerLength, copied);
+                        headerLength += copied;
+                    }
+                    digest.update(buffer, 0, read);
+                    ByteBuffer chunk = ByteBuffer.wrap(buffer, 0, read);
+                    while (chunk.hasRemaining()) {
+                        output.write(chunk);
+                    }
+                }
+                // blob phải nằm trọn trên đĩa trước khi có tên theo hash, nếu không dedupe sẽ tin nhầm file hỏng
+                output.force(true);
+            }
+            String extension = extensionOf(ImageFileServer.detectContentType(header, headerLength));
+            String hash = HexFormat.of().formatHex(digest.digest());
+            String name = hash + "." + extension;
+            Path target = root.resolve(name);
+            synchronized (lockFor(hash)) {
+                if (Files.exists(target)) {
+                    // đã có cùng nội dung: dùng lại, làm mới mtime để sweeper không xoá trước khi DB ghi tham chiếu
+                    Files.setLastModifiedTime(target, FileTime.from(Instant.now()));
+                } else {
+                    Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+                    imageFileServer.evict(name);
+                }
+            }
+            return name;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${image.store.sweep-interval-ms:3600000}",
+            initialDelayString = "${image.store.sweep-initial-delay-ms:600000}")
+    public void scheduledSweep() {
+        try {
+            int deleted = sweep();
+            if (deleted > 0) {
+                logger.info("Image sweeper removed {} unreferenced files", deleted);
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.error("Image sweeper failed", e);
+        }
+    }
+
+    @Override
+    public int sweep() throws IOException {
+        Path root = imageFileServer.getRoot();
+        if (!Files.isDirectory(root)) {
+            return 0;
+        }
+        Set<String> referenced = new HashSet<>();
+        jdbcTemplate.query("SELECT image_url FROM product_images WHERE image_url IS NOT NULL " +
+                "UNION SELECT thumbnail FROM products WHERE thumbnail IS NOT NULL", rs -> {
+            referenced.add(rs.getString(1));
+        });
+        // ảnh thu nhỏ đặt tên theo hash ảnh gốc; ảnh gốc tên cũ (UUID_tên) thì phải đọc file để lấy hash
+        Set<String> referencedHashes = new HashSet<>();
+        for (String name : referenced) {
+            Matcher blob = BLOB_NAME.matcher(name);
+            String hash = blob.matches() ? blob.group(1) : imageFileServer.contentHash(name);
+            if (hash != null) {
+                referencedHashes.add(hash);
+            }
+        }
+
+        Instant cutoff = Instant.now().minus(grace);
+        int deleted = 0;
+        try (DirectoryStream<Path> directory = Files.newDirectoryStream(root)) {
+            for (Path path : directory) {
+                String name = path.getFileName().toString();
+                Matcher blob = BLOB_NAME.matcher(name);
+                Matcher derivative = DERIVATIVE_NAME.matcher(name);
+                try {
+                    if (blob.matches()) {
+                        if (!referenced.contains(name)) {
+                            // kiểm tra mtime và xoá trong cùng khoá với upload dùng lại blob này
+                            synchronized (lockFor(blob.group(1))) {
+                                deleted += deleteIfStale(path, cutoff);
+                            }
+                        }
+                    } else if (derivative.matches()) {
+                        if (!referencedHashes.contains(derivative.group(1))) {
+                            deleted += deleteIfStale(path, cutoff);
+                        }
+                    } else if (name.startsWith(TEMP_PREFIX) || name.startsWith(ImageDerivativeService.TEMP_PREFIX)) {
+                        // file tạm bỏ dở khi tiến trình dừng giữa chừng; ảnh tên cũ và notfound.jpeg giữ nguyên
+                        deleted += deleteIfStale(path, cutoff);
+                    }
+                } catch (IOException e) {
+                    logger.warn("Cannot sweep image {}: {}", name, e.getMessage());
+                }
+            }
+        }
+        return deleted;
+    }
+
+    private int deleteIfStale(Path path, Instant cutoff) throws IOException {
+        try {
+            if (Files.getLastModifiedTime(path).toInstant().isAfter(cutoff)) {
+                return 0;
+            }
+        } catch (NoSuchFileException e) {
+            return 0;
+        }
+        if (!Files.deleteIfExists(path)) {
+            return 0;
+        }
+        imageFileServer.evict(path.getFileName().toString());
+        return 1;
+    }
+
+    private Object lockFor(String hash) {
+        return hashLocks[Math.floorMod(hash.hashCode(), hashLocks.length)];
+    }
+
+    //fsync thư mục để các lần đổi tên ở trên bền vững (một lần cho cả request)
+    private static void syncDirectory(Path root) {
+        try (FileChannel directory = FileChannel.open(root, StandardOpenOption.READ)) {
+            directory.force(true);
+        } catch (IOException e) {
+            // một số hệ điều hành/filesystem không cho mở thư mục, bỏ qua
+            logger.debug("Cannot fsync {}: {}", root, e.getMessage());
+        }
+    }
+
+    private static String extensionOf(String contentType) {
+        return switch (contentType) {
+            case MediaType.IMAGE_JPEG_VALUE -> "jpg";
+            case MediaType.IMAGE_PNG_VALUE -> "png";
+            case MediaType.IMAGE_GIF_VALUE -> "gif";
+            case "image/webp" -> "webp";
+            case "image/bmp" -> "bmp";
+            default -> throw new IllegalArgumentException("Invalid image format");
+        };
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -4,17 +4,18 @@ import com.project.ecommerce.dtos.order.OrderDTO;
 import com.project.ecommerce.exceptions.DataNotFoundException;
 import com.project.ecommerce.models.Order;
 import com.project.ecommerce.responses.OrderResponse;
+import com.project.ecommerce.utils.KeysetCursor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
-
-import java.util.List;
+import org.springframework.data.domain.Slice;
 
 public interface IOrderService {
     Order createOrder(OrderDTO orderDTO);
     Order getOrderById(Long id);
     Order updateOrder(Long id, OrderDTO orderDTO);
     void deleteOrder(Long id);
-    List<OrderResponse> findOrders(Long userId, String status, String keyword);
+    Slice<OrderResponse> findOrders(Long userId, String status, String keyword, KeysetCursor cursor, int limit);
     Page<OrderResponse> getOrdersByKeyword(String keyword, Pageable pageable);
+    Slice<OrderResponse> getOrdersByKeywordAfter(String keyword, KeysetCursor cursor, int limit);
     Order updateOrderStatus( Long id, String status);
 }
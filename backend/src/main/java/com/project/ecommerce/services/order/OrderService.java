@@ -1,5 +1,6 @@
 package com.project.ecommerce.services.order;
 
+import com.project.ecommerce.configurations.SearchConfig;
 import com.project.ecommerce.dtos.order.CartItemDTO;
 import com.project.ecommerce.dtos.order.OrderDTO;
 import com.project.ecommerce.dtos.order.OrderDetailDTO;
@@ -8,10 +9,20 @@ import com.project.ecommerce.exceptions.DataNotFoundException;
 import com.project.ecommerce.models.*;
 import com.project.ecommerce.repositories.*;
 import com.project.ecommerce.responses.OrderResponse;
+import com.project.ecommerce.services.product.related.IRelatedProductIndex;
+import com.project.ecommerce.services.product.trending.ITrendingTracker;
+import com.project.ecommerce.services.revenue.IRevenueRollupService;
+import com.project.ecommerce.services.revenue.IRevenueTimeSeriesService;
+import com.project.ecommerce.services.stock.IStockReservationService;
+import com.project.ecommerce.utils.KeysetCursor;
+import com.project.ecommerce.utils.TransactionUtils;
 import lombok.RequiredArgsConstructor;
 import org.modelmapper.ModelMapper;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -25,6 +36,12 @@ public class OrderService implements IOrderService{
     private final OrderRepository orderRepository;
     private final OrderDetailRepository orderDetailRepository;
     private final VariantRepository variantRepository;
+    private final SearchConfig searchConfig;
+    private final IRelatedProductIndex relatedProductIndex;
+    private final IStockReservationService stockReservationService;
+    private final IRevenueRollupService revenueRollupService;
+    private final IRevenueTimeSeriesService revenueTimeSeriesService;
+    private final ITrendingTracker trendingTracker;
 
     private final ModelMapper modelMapper;
 
@@ -36,10 +53,7 @@ public class OrderService implements IOrderService{
                 .findById(orderDTO.getUserId())
                 .orElseThrow(() -> new DataNotFoundException("Cannot find user with id: "+ orderDTO.getUserId()));
         //convert orderDTO => Order
-        //dùng thư viện Model Mapper
-        // Tạo một luồng bảng ánh xạ riêng để kiểm soát việc ánh xạ
-        modelMapper.typeMap(OrderDTO.class, Order.class)
-                .addMappings(mapper -> mapper.skip(Order::setId));
+        //dùng thư viện Model Mapper (TypeMap cấu hình sẵn trong MapperConfiguration)
         // Cập nhật các trường của đơn hàng từ orderDTO
         Order order = new Order();
         modelMapper.map(orderDTO, order);
@@ -62,6 +76,15 @@ public class OrderService implements IOrderService{
         }
 
         orderRepository.save(order);
+        // Load tất cả biến thể (kèm sản phẩm) của giỏ hàng trong 1 query
+        List<Long> variantIds = orderDTO.getCartItems().stream()
+                .map(CartItemDTO::getVariantId)
+                .distinct()
+                .toList();
+        Map<Long, ProductVariant> variantsById = new HashMap<>();
+        for (ProductVariant variant : variantRepository.findWithProductByIdIn(variantIds)) {
+            variantsById.put(variant.getId(), variant);
+        }
         // Tạo danh sách các đối tượng OrderDetail từ cartItems
         List<OrderDetail> orderDetails = new ArrayList<>();
         for (CartItemDTO cartItemDTO : orderDTO.getCartItems()) {
@@ -73,9 +96,10 @@ public class OrderService implements IOrderService{
             Long variantId = cartItemDTO.getVariantId();
             int quantity = cartItemDTO.getQuantity();
 
-            // Tìm thông tin sản phẩm từ cơ sở dữ liệu
-            ProductVariant variant = variantRepository.findById(variantId)
-                    .orElseThrow(() -> new DataNotFoundException("Product not found with id: " + variantId));
+            ProductVariant variant = variantsById.get(variantId);
+            if (variant == null) {
+                throw new DataNotFoundException("Product not found with id: " + variantId);
+            }
 
             // Đặt thông tin cho OrderDetail
             orderDetail.setProductVariant(variant);
@@ -89,15 +113,25 @@ public class OrderService implements IOrderService{
             orderDetails.add(orderDetail);
         }
 
+        // Trừ kho (UPDATE có điều kiện / pool biến thể hot), thiếu hàng thì rollback cả đơn
+        stockReservationService.reserve(order, orderDetails);
+
         order.setOrderDetails(orderDetails);
         // Lưu danh sách OrderDetail vào cơ sở dữ liệu
+        // (id lấy theo khối từ sequence nên các INSERT được gửi theo batch lúc flush)
         orderDetailRepository.saveAll(orderDetails);
+
+        // Đơn mới tính vào độ thịnh hành sau khi commit
+        Map<Long, Integer> quantitiesByProduct = new HashMap<>();
+        for (OrderDetail orderDetail : orderDetails) {
+            quantitiesByProduct.merge(orderDetail.getProductVariant().getProduct().getId(),
+                    orderDetail.getNumberOfProducts(), Integer::sum);
+        }
+        TransactionUtils.afterCommit(() -> trendingTracker.recordOrdered(quantitiesByProduct));
         return order;
     }
     @Transactional
     public Order updateOrderWithDetails(OrderWithDetailsDTO orderWithDetailsDTO) {
-        modelMapper.typeMap(OrderWithDetailsDTO.class, Order.class)
-                .addMappings(mapper -> mapper.skip(Order::setId));
         Order order = new Order();
         modelMapper.map(orderWithDetailsDTO, order);
         Order savedOrder = orderRepository.save(order);
@@ -135,9 +169,6 @@ public class OrderService implements IOrderService{
         User existingUser = userRepository.findById(
                 orderDTO.getUserId()).orElseThrow(() ->
                 new DataNotFoundException("Cannot find user with id: " + id));
-        // Tạo một luồng bảng ánh xạ riêng để kiểm soát việc ánh xạ
-        modelMapper.typeMap(OrderDTO.class, Order.class)
-                .addMappings(mapper -> mapper.skip(Order::setId));
         // Cập nhật các trường của đơn hàng từ orderDTO
         modelMapper.map(orderDTO, order);
         order.setUser(existingUser);
@@ -155,18 +186,45 @@ public class OrderService implements IOrderService{
         }
     }
     @Override
-    public List<OrderResponse> findOrders(Long userId, String status, String keyword) {
-        List<Order> orders = orderRepository.findOrders(userId, status, keyword);
-        return orders.stream().map(OrderResponse::fromOrder).toList();
+    public Slice<OrderResponse> findOrders(Long userId, String status, String keyword,
+                                          KeysetCursor cursor, int limit) {
+        // Đơn mới nhất trước: trang sau lấy các id nhỏ hơn id cuối của trang trước
+        long beforeId = cursor == null ? Long.MAX_VALUE : cursor.getId();
+        Pageable pageable = PageRequest.of(0, limit);
+        Slice<Long> orderIds = status == null || status.isBlank()
+                ? orderRepository.findIdsByUser(userId, keyword, beforeId, pageable)
+                : orderRepository.findIdsByUserAndStatus(userId, status, keyword, beforeId, pageable);
+        if (orderIds.isEmpty()) {
+            return new SliceImpl<>(List.of(), pageable, false);
+        }
+        // Chi tiết, biến thể, sản phẩm của cả trang trong 1 query thay vì lazy load từng đơn
+        List<OrderResponse> orders = orderRepository.findWithDetailsByIdIn(orderIds.getContent())
+                .stream()
+                .map(OrderResponse::fromOrder)
+                .toList();
+        return new SliceImpl<>(orders, pageable, orderIds.hasNext());
     }
 
     @Override
     public Page<OrderResponse> getOrdersByKeyword(String keyword, Pageable pageable) {
         Page<Order> orderPages;
+        String tsQuery = searchConfig.toFullTextQuery(keyword);
+        if (tsQuery != null) {
+            //kết quả full-text được sắp theo ts_rank nên bỏ sort của pageable
+            orderPages = orderRepository.searchFullText(tsQuery, keyword.trim(),
+                    PageRequest.of(pageable.getPageNumber(), pageable.getPageSize()));
+            return orderPages.map(OrderResponse::fromOrder);
+        }
         orderPages = orderRepository.findAll(keyword, pageable);
         return orderPages.map(OrderResponse::fromOrder);
     }
 
+    @Override
+    public Slice<OrderResponse> getOrdersByKeywordAfter(String keyword, KeysetCursor cursor, int limit) {
+        return orderRepository.findAllAfter(KeysetCursor.afterId(cursor), keyword, PageRequest.of(0, limit))
+                .map(OrderResponse::fromOrder);
+    }
+
     @Override
     @Transactional
     public Order updateOrderStatus(Long id, String status) {
@@ -197,9 +255,33 @@ public class OrderService implements IOrderService{
                 throw new IllegalArgumentException("Order can only be cancelled from PENDING status");
             }
 
+        // Huỷ đơn thì trả lại hàng đã giữ; các trạng thái khác (kể cả callback thanh toán VNPay) chốt giữ hàng
+        if (status.equals(OrderStatus.CANCELLED)) {
+            stockReservationService.release(order.getId());
+        } else {
+            stockReservationService.confirm(order.getId());
+        }
+
+        // Doanh thu tổng hợp: cộng khi đơn vào delivered, trừ khi ra khỏi delivered (returned)
+        revenueRollupService.onStatusChange(order.getId(), currentStatus, status);
+        revenueTimeSeriesService.onStatusChange(order.getId(), currentStatus, status);
+
         // Cập nhật trạng thái đơn hàng
         order.setStatus(status);
 
+        // Đơn được giao/trả làm thay đổi số lần mua cùng: tính lại sản phẩm liên quan của các sản phẩm trong đơn
+        if (status.equals(OrderStatus.DELIVERED) || status.equals(OrderStatus.RETURNED)) {
+            List<Long> productIds = orderDetailRepository.findProductIdsByOrderId(order.getId());
+            TransactionUtils.afterCommit(() -> relatedProductIndex.refresh(productIds));
+        }
+        if (status.equals(OrderStatus.DELIVERED)) {
+            Map<Long, Integer> quantitiesByProduct = new HashMap<>();
+            for (Object[] row : orderDetailRepository.findProductQuantitiesByOrderId(order.getId())) {
+                quantitiesByProduct.put((Long) row[0], ((Number) row[1]).intValue());
+            }
+            TransactionUtils.afterCommit(() -> trendingTracker.recordDelivered(quantitiesByProduct));
+        }
+
         // Lưu đơn hàng đã cập nhật
         return orderRepository.save(order);
     }
@@ -5,19 +5,27 @@ import com.project.ecommerce.dtos.product.ProductImageDTO;
 import com.project.ecommerce.models.Product;
 import com.project.ecommerce.models.ProductImage;
 import com.project.ecommerce.responses.ProductResponse;
-import com.project.ecommerce.responses.ProductStatResponse;
+import com.project.ecommerce.responses.SuggestionResponse;
+import com.project.ecommerce.utils.KeysetCursor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 
-import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 
 public interface IProductService {
     Product createProduct(ProductDTO productDTO);
     Product getProductById(long id);
+    ProductResponse getProductResponseById(long id);
     Page<ProductResponse> getAllProducts(String keyword,
-                                                Long categoryId, PageRequest pageRequest);
+                                                Long categoryId, String sort, PageRequest pageRequest);
+    List<ProductResponse> getTrendingProducts(String window, int limit);
+    //gắn avg_rating/review_count cho cả danh sách bằng một lần tra thống kê đánh giá
+    List<ProductResponse> includeRatings(List<ProductResponse> products);
+    SuggestionResponse suggest(String query, int limit);
+    Slice<ProductResponse> getProductsAfter(String keyword, Long categoryId,
+                                            KeysetCursor cursor, int limit);
     Product updateProduct(long id, ProductDTO productDTO) ;
     void deleteProduct(long id);
     boolean existsByName(String name);
@@ -29,7 +37,8 @@ public interface IProductService {
 
     List<Product> findProductsByIds(List<Long> productIds);
 
+    List<ProductResponse> getProductResponsesByIds(List<Long> productIds);
+
     Page<ProductResponse> findByCategoryId(Long categoryId, Long productId, PageRequest pageRequest);
 
-    Page<ProductStatResponse> getProductStat(LocalDate start, LocalDate end, PageRequest pageRequest);
 }
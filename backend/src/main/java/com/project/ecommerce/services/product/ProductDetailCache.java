@@ -0,0 +1,61 @@
+package com.project.ecommerce.services.product;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.project.ecommerce.components.GuardedCache;
+import com.project.ecommerce.components.SingleFlight;
+import com.project.ecommerce.responses.ProductResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+/**
+ * Cache ProductResponse đã dựng sẵn cho GET /products/{id}.
+ * Caffeine giới hạn số phần tử và loại bỏ theo W-TinyLFU; hit/miss/eviction
+ * được đăng ký vào actuator với tên cache "product_detail".
+ * Mọi thao tác ghi lên sản phẩm, ảnh, biến thể phải gọi invalidate(productId).
+ * Các lần miss đồng thời cùng một id được gộp qua SingleFlight (1 lần load DB);
+ * lần load chỉ bị bỏ khi chính sản phẩm đó bị invalidate trong lúc load (GuardedCache).
+ */
+@Component
+public class ProductDetailCache {
+    private final GuardedCache<Long, ProductResponse> cache;
+    private final SingleFlight singleFlight;
+
+    public ProductDetailCache(MeterRegistry meterRegistry,
+                              SingleFlight singleFlight,
+                              @Value("${cache.product-detail.max-size:10000}") long maxSize,
+                              @Value("${cache.product-detail.ttl-minutes:30}") long ttlMinutes) {
+        Cache<Long, ProductResponse> cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                //TTL chỉ là lưới an toàn, dữ liệu chủ yếu được làm mới qua invalidate
+                .expireAfterWrite(Duration.ofMinutes(ttlMinutes))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "product_detail");
+        this.cache = new GuardedCache<>(cache);
+        this.singleFlight = singleFlight;
+    }
+
+    public ProductResponse get(Long productId, Function<Long, ProductResponse> loader) {
+        ProductResponse cached = cache.getIfPresent(productId);
+        if (cached != null) {
+            return cached;
+        }
+        return singleFlight.execute("product-detail:" + productId, () -> cache.load(productId, loader));
+    }
+
+    /**
+     * Xoá ngay và xoá lại sau khi transaction commit (xem GuardedCache.invalidate)
+     */
+    public void invalidate(Long productId) {
+        if (productId == null) {
+            return;
+        }
+        cache.invalidate(productId);
+    }
+}
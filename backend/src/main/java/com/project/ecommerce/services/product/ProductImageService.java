@@ -13,12 +13,20 @@ import java.util.Optional;
 @RequiredArgsConstructor
 public class ProductImageService implements IProductImageService{
     private final ProductImageRepository productImageRepository;
+    private final ProductDetailCache productDetailCache;
 
     @Override
     @Transactional
     public ProductImage deleteProductImage(Long imageId)
             throws DataNotFoundException {
-        productImageRepository.deleteById(imageId);
-        return null;
+        // Lấy ảnh trước để biết cần xoá cache của sản phẩm nào
+        Optional<ProductImage> optionalImage = productImageRepository.findById(imageId);
+        optionalImage.ifPresent(image -> {
+            productImageRepository.delete(image);
+            if (image.getProduct() != null) {
+                productDetailCache.invalidate(image.getProduct().getId());
+            }
+        });
+        return optionalImage.orElse(null);
     }
 }
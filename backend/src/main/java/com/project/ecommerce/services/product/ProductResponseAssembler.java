@@ -0,0 +1,60 @@
+package com.project.ecommerce.services.product;
+
+import com.project.ecommerce.models.Product;
+import com.project.ecommerce.models.ProductImage;
+import com.project.ecommerce.models.ProductVariant;
+import com.project.ecommerce.repositories.ProductImageRepository;
+import com.project.ecommerce.repositories.VariantRepository;
+import com.project.ecommerce.responses.ProductResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Dựng ProductResponse cho cả một trang sản phẩm: ảnh và biến thể được load
+ * bằng 2 query IN rồi ghép trong bộ nhớ, thay vì mỗi sản phẩm 2 query lazy.
+ */
+@Component
+@RequiredArgsConstructor
+public class ProductResponseAssembler {
+    private final ProductImageRepository productImageRepository;
+    private final VariantRepository variantRepository;
+
+    public List<ProductResponse> toResponses(List<Product> products) {
+        if (products.isEmpty()) {
+            return List.of();
+        }
+        List<Long> productIds = products.stream().map(Product::getId).toList();
+        Map<Long, Set<ProductImage>> imagesByProduct = productImageRepository
+                .findByProductIdIn(productIds)
+                .stream()
+                .collect(Collectors.groupingBy(image -> image.getProduct().getId(),
+                        Collectors.toCollection(LinkedHashSet::new)));
+        Map<Long, Set<ProductVariant>> variantsByProduct = variantRepository
+                .findByProductIdIn(productIds)
+                .stream()
+                .collect(Collectors.groupingBy(variant -> variant.getProduct().getId(),
+                        Collectors.toCollection(LinkedHashSet::new)));
+        return products.stream()
+                .map(product -> ProductResponse.fromProduct(product,
+                        imagesByProduct.getOrDefault(product.getId(), new HashSet<>()),
+                        variantsByProduct.getOrDefault(product.getId(), new HashSet<>())))
+                .toList();
+    }
+
+    public Page<ProductResponse> toResponses(Page<Product> productPage) {
+        return new PageImpl<>(toResponses(productPage.getContent()),
+                productPage.getPageable(), productPage.getTotalElements());
+    }
+
+    public Slice<ProductResponse> toResponses(Slice<Product> productSlice) {
+        return new SliceImpl<>(toResponses(productSlice.getContent()),
+                productSlice.getPageable(), productSlice.hasNext());
+    }
+}
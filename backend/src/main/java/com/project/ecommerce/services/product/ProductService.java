@@ -1,5 +1,7 @@
 package com.project.ecommerce.services.product;
 
+import com.project.ecommerce.components.SingleFlight;
+import com.project.ecommerce.configurations.SearchConfig;
 import com.project.ecommerce.dtos.product.ProductDTO;
 import com.project.ecommerce.dtos.product.ProductImageDTO;
 import com.project.ecommerce.exceptions.DataNotFoundException;
@@ -12,29 +14,61 @@ import com.project.ecommerce.repositories.ProductImageRepository;
 import com.project.ecommerce.repositories.ProductRepository;
 import com.project.ecommerce.repositories.VariantRepository;
 import com.project.ecommerce.responses.ProductResponse;
-import com.project.ecommerce.responses.ProductStatResponse;
+import com.project.ecommerce.responses.ReviewStatsResponse;
+import com.project.ecommerce.responses.SuggestionResponse;
+import com.project.ecommerce.services.product.related.IRelatedProductIndex;
+import com.project.ecommerce.services.product.search.IProductSearchEngine;
+import com.project.ecommerce.services.product.search.IProductSuggester;
+import com.project.ecommerce.services.product.trending.ITrendingTracker;
+import com.project.ecommerce.services.review.ReviewStatsCache;
+import com.project.ecommerce.utils.KeysetCursor;
+import com.project.ecommerce.utils.TransactionUtils;
 import lombok.RequiredArgsConstructor;
 import org.modelmapper.ModelMapper;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
-import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class ProductService implements IProductService{
+    // sort=popular xếp theo độ thịnh hành trong 7 ngày
+    private static final String POPULAR_WINDOW = "7d";
+    private static final int MAX_POPULAR_RANK = 1000;
+
     private final ProductRepository productRepository;
     private final CategoryRepository categoryRepository;
     private final ProductImageRepository productImageRepository;
+    private final IProductSearchEngine productSearchEngine;
+    private final IProductSuggester productSuggester;
+    private final IRelatedProductIndex relatedProductIndex;
+    private final ITrendingTracker trendingTracker;
+    private final SearchConfig searchConfig;
+    private final ProductResponseAssembler productResponseAssembler;
+    private final ProductDetailCache productDetailCache;
+    private final SingleFlight singleFlight;
+    private final ReviewStatsCache reviewStatsCache;
+    private final PlatformTransactionManager transactionManager;
 
     @Override
     @Transactional
@@ -52,7 +86,9 @@ public class ProductService implements IProductService{
                 .description(productDTO.getDescription())
                 .category(existingCategory)
                 .build();
-        return productRepository.save(newProduct);
+        Product savedProduct = productRepository.save(newProduct);
+        indexAfterCommit(savedProduct);
+        return savedProduct;
     }
 
     @Override
@@ -63,41 +99,189 @@ public class ProductService implements IProductService{
         }
         throw new DataNotFoundException("Cannot find product with id = " + productId);
     }
+
+    @Override
+    public ProductResponse getProductResponseById(long productId) {
+        return productDetailCache.get(productId, this::loadProductResponse);
+    }
+
+    //ảnh và biến thể load bằng 2 query riêng, tránh tích Descartes của 2 LEFT JOIN FETCH
+    private ProductResponse loadProductResponse(Long productId) {
+        List<Product> products = productRepository.findProductsByIds(List.of(productId));
+        if (products.isEmpty()) {
+            throw new DataNotFoundException("Cannot find product with id = " + productId);
+        }
+        return productResponseAssembler.toResponses(products).get(0);
+    }
     @Override
     public List<Product> findProductsByIds(List<Long> productIds) {
         return productRepository.findProductsByIds(productIds);
     }
 
+    @Override
+    public List<ProductResponse> getProductResponsesByIds(List<Long> productIds) {
+        // Các request cùng tập id (vd giỏ hàng của một chiến dịch) dùng chung 1 lần load.
+        // Không mở transaction ở đây và nơi gọi cũng không được nằm trong transaction:
+        // request đang chờ chỉ không giữ connection khi chưa query JPA nào trước đó trong request
+        // (open-in-view giữ connection của EntityManager tới hết request). sort=popular query id trước
+        // nên request chờ trên nhánh đó vẫn giữ một connection rảnh, chấp nhận để DB chỉ load trang một lần
+        List<Long> distinctIds = productIds.stream().distinct().sorted().toList();
+        Map<Long, ProductResponse> responsesById = singleFlight.execute(
+                "products-by-ids:" + distinctIds,
+                () -> productResponseAssembler.toResponses(productRepository.findProductsByIds(distinctIds))
+                        .stream()
+                        .collect(Collectors.toMap(ProductResponse::getId, Function.identity())));
+        return productIds.stream()
+                .map(responsesById::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
     @Override
     public Page<ProductResponse> findByCategoryId(Long categoryId, Long productId, PageRequest pageRequest) {
+        // danh sách liên quan tính sẵn (tối đa related.neighbors id): load cả danh sách theo IN,
+        // bỏ sản phẩm đã bị xoá từ sau lần tính rồi mới cắt trang, không cần COUNT
+        long[] neighborIds = relatedProductIndex.neighborsOf(productId);
+        if (neighborIds != null) {
+            List<ProductResponse> live = neighborIds.length == 0
+                    ? List.of()
+                    : getProductResponsesByIds(Arrays.stream(neighborIds).boxed().toList());
+            int from = (int) Math.min(pageRequest.getOffset(), live.size());
+            int to = Math.min(from + pageRequest.getPageSize(), live.size());
+            return new PageImpl<>(live.subList(from, to), pageRequest, live.size());
+        }
+        //sản phẩm chưa có danh sách (mới tạo, index chưa load xong): lấy theo danh mục như cũ
         Page<Product> productPage;
         productPage = productRepository.findByCategoryId(categoryId, productId, pageRequest);
-        return productPage.map(ProductResponse::fromProduct);
+        return productResponseAssembler.toResponses(productPage);
     }
 
     @Override
-    public Page<ProductStatResponse> getProductStat(LocalDate start, LocalDate end, PageRequest pageRequest) {
-        Page<Object[]> page = productRepository.getProductStat(start, end, pageRequest);
-
-        List<ProductStatResponse> responses = page.stream().map(row -> {
-            new ProductStatResponse();
-            return ProductStatResponse.builder()
-                    .productName((String) row[0])
-                    .quantitySold((Long) row[1])
-                    .revenue((Double) row[2])
-                    .build();
-        }).toList();
-
-        return new PageImpl<>(responses, pageRequest, page.getTotalElements());
+    public Page<ProductResponse> getAllProducts(String keyword,
+                                                Long categoryId, String sort, PageRequest pageRequest) {
+        // Xếp theo độ thịnh hành: lọc bằng LIKE như chế độ cursor, không xếp theo độ liên quan.
+        // Chạy ngoài transaction vì load trang đi qua single-flight của getProductResponsesByIds
+        if ("popular".equalsIgnoreCase(sort)) {
+            return getPopularProducts(keyword == null ? "" : keyword, categoryId, pageRequest);
+        }
+        if (sort != null && !sort.isBlank()) {
+            throw new IllegalArgumentException("Unsupported sort: " + sort);
+        }
+        TransactionTemplate readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+        return readOnlyTransaction.execute(status -> searchProducts(keyword, categoryId, pageRequest));
     }
 
-    @Override
-    public Page<ProductResponse> getAllProducts(String keyword,
-                                                Long categoryId, PageRequest pageRequest) {
+    private Page<ProductResponse> searchProducts(String keyword, Long categoryId, PageRequest pageRequest) {
+        // Có keyword thì tìm trên index trong bộ nhớ, chỉ fallback về LIKE khi index chưa sẵn sàng
+        if (keyword != null && !keyword.isBlank() && productSearchEngine.isReady()) {
+            Page<Long> idPage = productSearchEngine.search(keyword, categoryId, pageRequest);
+            List<ProductResponse> responses = productResponseAssembler
+                    .toResponses(findProductsInOrder(idPage.getContent()));
+            return new PageImpl<>(responses, pageRequest, idPage.getTotalElements());
+        }
         // Lấy danh sách sản phẩm theo trang (page), giới hạn (limit), và categoryId (nếu có)
         Page<Product> productsPage;
+        String tsQuery = searchConfig.toFullTextQuery(keyword);
+        if (tsQuery != null) {
+            productsPage = productRepository.searchFullText(categoryId, tsQuery,
+                    PageRequest.of(pageRequest.getPageNumber(), pageRequest.getPageSize()));
+            return productResponseAssembler.toResponses(productsPage);
+        }
         productsPage = productRepository.searchProducts(categoryId, keyword, pageRequest);
-        return productsPage.map(ProductResponse::fromProduct);
+        return productResponseAssembler.toResponses(productsPage);
+    }
+
+    // Sản phẩm thịnh hành khớp bộ lọc đứng trước theo thứ hạng, còn lại theo id.
+    // Cắt trang trên danh sách id ở Java rồi chỉ load sản phẩm của trang theo IN, không sort cả bảng;
+    // COUNT chỉ chạy khi không suy ra được tổng từ trang hiện tại
+    private Page<ProductResponse> getPopularProducts(String keyword, Long categoryId, PageRequest pageRequest) {
+        List<Long> rankedIds = trendingTracker.top(POPULAR_WINDOW, MAX_POPULAR_RANK);
+        Set<Long> matching = rankedIds.isEmpty()
+                ? Set.of()
+                : new HashSet<>(productRepository.findMatchingIds(rankedIds, categoryId, keyword));
+        List<Long> ranked = rankedIds.stream().filter(matching::contains).toList();
+
+        long offset = pageRequest.getOffset();
+        int pageSize = pageRequest.getPageSize();
+        int from = (int) Math.min(offset, ranked.size());
+        int to = (int) Math.min(offset + pageSize, ranked.size());
+        List<Long> pageIds = new ArrayList<>(ranked.subList(from, to));
+        if (pageIds.size() < pageSize) {
+            String excluded = ranked.stream().map(String::valueOf).collect(Collectors.joining(","));
+            pageIds.addAll(productRepository.findUnrankedIds(categoryId, keyword, excluded,
+                    pageSize - pageIds.size(), Math.max(0, offset - ranked.size())));
+        }
+        List<ProductResponse> content = pageIds.isEmpty() ? List.of() : getProductResponsesByIds(pageIds);
+        return PageableExecutionUtils.getPage(content, pageRequest,
+                () -> productRepository.countProducts(categoryId, keyword));
+    }
+
+    @Override
+    public List<ProductResponse> getTrendingProducts(String window, int limit) {
+        // lấy dư vài id phòng sản phẩm trong sketch đã bị xoá
+        List<Long> productIds = trendingTracker.top(window, limit + limit / 2);
+        if (productIds.isEmpty()) {
+            return List.of();
+        }
+        List<ProductResponse> responses = getProductResponsesByIds(productIds);
+        return responses.subList(0, Math.min(limit, responses.size()));
+    }
+
+    @Override
+    public List<ProductResponse> includeRatings(List<ProductResponse> products) {
+        if (products.isEmpty()) {
+            return products;
+        }
+        Map<Long, ReviewStatsResponse> statsById = reviewStatsCache.getAll(
+                products.stream().map(ProductResponse::getId).toList());
+        return products.stream()
+                .map(product -> {
+                    ReviewStatsResponse stats = statsById.get(product.getId());
+                    return stats == null ? product
+                            : product.withRatings(stats.getAverageRating(), stats.getReviewCount());
+                })
+                .toList();
+    }
+
+    @Override
+    public SuggestionResponse suggest(String query, int limit) {
+        return productSuggester.suggest(query, limit);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Slice<ProductResponse> getProductsAfter(String keyword, Long categoryId,
+                                                   KeysetCursor cursor, int limit) {
+        // Chế độ cursor luôn seek theo id nên dùng bộ lọc LIKE, không xếp hạng theo độ liên quan
+        return productResponseAssembler.toResponses(productRepository.findProductsAfter(
+                KeysetCursor.afterId(cursor), categoryId, keyword, PageRequest.of(0, limit)));
+    }
+
+    //load theo 1 query IN rồi giữ nguyên thứ tự của danh sách id
+    private List<Product> findProductsInOrder(List<Long> productIds) {
+        if (productIds.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, Product> productsById = productRepository.findProductsByIds(productIds)
+                .stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+        return productIds.stream()
+                .map(productsById::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    private void indexAfterCommit(Product product) {
+        Long productId = product.getId();
+        String name = product.getName();
+        String description = product.getDescription();
+        Long categoryId = product.getCategory() != null ? product.getCategory().getId() : null;
+        TransactionUtils.afterCommit(() -> {
+            productSearchEngine.index(productId, name, description, categoryId);
+            productSuggester.index(productId, name);
+            relatedProductIndex.refresh(List.of(productId));
+        });
     }
     @Override
     @Transactional
@@ -129,7 +313,10 @@ public class ProductService implements IProductService{
                     !productDTO.getThumbnail().isEmpty()) {
                 existingProduct.setThumbnail(productDTO.getThumbnail());
             }
-            return productRepository.save(existingProduct);
+            Product savedProduct = productRepository.save(existingProduct);
+            indexAfterCommit(savedProduct);
+            productDetailCache.invalidate(savedProduct.getId());
+            return savedProduct;
         }
         return null;
 
@@ -140,6 +327,11 @@ public class ProductService implements IProductService{
     public void deleteProduct(long id) {
         Optional<Product> optionalProduct = productRepository.findById(id);
         optionalProduct.ifPresent(productRepository::delete);
+        productDetailCache.invalidate(id);
+        TransactionUtils.afterCommit(() -> {
+            productSearchEngine.remove(id);
+            productSuggester.remove(id);
+        });
     }
 
     @Override
@@ -167,6 +359,7 @@ public class ProductService implements IProductService{
                     "Number of images must be <= "
                     +ProductImage.MAXIMUM_IMAGES_PER_PRODUCT);
         }
+        productDetailCache.invalidate(productId);
         return productImageRepository.save(newProductImage);
     }
 
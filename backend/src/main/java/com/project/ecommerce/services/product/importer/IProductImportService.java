@@ -0,0 +1,18 @@
+package com.project.ecommerce.services.product.importer;
+
+import com.project.ecommerce.responses.ProductImportReport;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+public interface IProductImportService {
+    /**
+     * Đọc CSV hoặc NDJSON theo luồng từ input và ghi sản phẩm (kèm biến thể, ảnh) theo lô.
+     * Dòng lỗi được bỏ qua và ghi vào báo cáo, không làm hỏng cả lần import.
+     */
+    ProductImportReport importProducts(InputStream input, ImportFormat format) throws IOException;
+
+    enum ImportFormat {
+        CSV, NDJSON
+    }
+}
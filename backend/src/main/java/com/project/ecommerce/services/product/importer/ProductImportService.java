@@ -0,0 +1,385 @@
+package com.project.ecommerce.services.product.importer;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.project.ecommerce.models.Category;
+import com.project.ecommerce.models.ProductImage;
+import com.project.ecommerce.repositories.CategoryRepository;
+import com.project.ecommerce.responses.ProductImportReport;
+import com.project.ecommerce.services.product.search.IProductSearchEngine;
+import com.project.ecommerce.services.product.search.IProductSuggester;
+import com.project.ecommerce.utils.CsvReader;
+import com.project.ecommerce.utils.TextNormalizer;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Import sản phẩm số lượng lớn bằng JDBC batch thay vì JPA:
+ * - Product dùng IDENTITY nên Hibernate không batch được; ở đây id được lấy trước
+ *   theo lô từ products_id_seq rồi insert products/variants/images bằng batchUpdate
+ * - Mỗi lô một transaction; lô lỗi được ghi lại từng dòng để tách đúng dòng hỏng
+ * - Danh mục được tra trong map dựng một lần đầu mỗi lần import
+ *
+ * CSV: header gồm name, price, thumbnail, description, category_id hoặc category,
+ * variants ("Đỏ:10|Xanh:5"), images ("a.jpg|b.jpg").
+ * NDJSON: mỗi dòng một object cùng tên field, variants là mảng {name, stock}, images là mảng chuỗi.
+ */
+@Service
+@RequiredArgsConstructor
+public class ProductImportService implements IProductImportService {
+    private static final Logger logger = LoggerFactory.getLogger(ProductImportService.class);
+
+    private static final int BATCH_SIZE = 1000;
+    private static final int MAX_REPORTED_ERRORS = 1000;
+    private static final int PROGRESS_LOG_INTERVAL = 50_000;
+    private static final float MAX_PRICE = 10_000_000;
+
+    private static final String INSERT_PRODUCT = "INSERT INTO products " +
+            "(id, name, price, thumbnail, description, category_id, created_at, updated_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final int[] INSERT_PRODUCT_TYPES = {
+            Types.BIGINT, Types.VARCHAR, Types.REAL, Types.VARCHAR, Types.VARCHAR,
+            Types.BIGINT, Types.TIMESTAMP, Types.TIMESTAMP};
+    private static final String INSERT_VARIANT =
+            "INSERT INTO product_variants (name, quantity, product_id) VALUES (?, ?, ?)";
+    private static final int[] INSERT_VARIANT_TYPES = {Types.VARCHAR, Types.INTEGER, Types.BIGINT};
+    private static final String INSERT_IMAGE =
+            "INSERT INTO product_images (product_id, image_url) VALUES (?, ?)";
+    private static final int[] INSERT_IMAGE_TYPES = {Types.BIGINT, Types.VARCHAR};
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final CategoryRepository categoryRepository;
+    private final IProductSearchEngine productSearchEngine;
+    private final IProductSuggester productSuggester;
+    private final ObjectMapper objectMapper;
+
+    private static class ImportRow {
+        long line;
+        long id;
+        String name;
+        Float price;
+        String thumbnail;
+        String description;
+        Long categoryId;
+        List<String> variantNames = new ArrayList<>();
+        List<Integer> variantStocks = new ArrayList<>();
+        List<String> images = new ArrayList<>();
+    }
+
+    //danh mục tra theo id hoặc theo tên đã chuẩn hoá
+    private record CategoryLookup(Set<Long> ids, Map<String, Long> idsByName) {
+        Long resolve(Long categoryId, String categoryName) {
+            if (categoryId != null) {
+                if (!ids.contains(categoryId)) {
+                    throw new IllegalArgumentException("Category not found: " + categoryId);
+                }
+                return categoryId;
+            }
+            if (categoryName != null && !categoryName.isBlank()) {
+                Long id = idsByName.get(TextNormalizer.normalize(categoryName.trim()));
+                if (id == null) {
+                    throw new IllegalArgumentException("Category not found: " + categoryName);
+                }
+                return id;
+            }
+            throw new IllegalArgumentException("Category is required");
+        }
+    }
+
+    @Override
+    public ProductImportReport importProducts(InputStream input, ImportFormat format) throws IOException {
+        long startedAt = System.currentTimeMillis();
+        ProductImportReport report = new ProductImportReport();
+        CategoryLookup categories = loadCategories();
+        List<ImportRow> batch = new ArrayList<>(BATCH_SIZE);
+
+        BufferedReader reader = new BufferedReader(
+                new InputStreamReader(input, StandardCharsets.UTF_8), 64 * 1024);
+        if (format == ImportFormat.CSV) {
+            CsvReader csv = new CsvReader(reader);
+            List<String> header = csv.readRecord();
+            if (header == null) {
+                throw new IllegalArgumentException("CSV header is required");
+            }
+            Map<String, Integer> columns = new HashMap<>();
+            for (int i = 0; i < header.size(); i++) {
+                columns.put(header.get(i).trim().toLowerCase(Locale.ROOT), i);
+            }
+            if (!columns.containsKey("name")) {
+                throw new IllegalArgumentException("CSV header must contain column 'name'");
+            }
+            List<String> record;
+            while ((record = csv.readRecord()) != null) {
+                if (record.size() == 1 && record.get(0).isBlank()) {
+                    continue;
+                }
+                List<String> current = record;
+                accept(report, batch, csv.getRecordLineNumber(), () -> fromCsv(current, columns, categories));
+            }
+        } else {
+            String text;
+            long line = 0;
+            while ((text = reader.readLine()) != null) {
+                line++;
+                if (text.isBlank()) {
+                    continue;
+                }
+                String current = text;
+                accept(report, batch, line, () -> fromJson(objectMapper.readTree(current), categories));
+            }
+        }
+        flush(batch, report);
+
+        productSuggester.scheduleRebuild();
+        report.setElapsedMs(System.currentTimeMillis() - startedAt);
+        logger.info("Product import finished: {} rows, {} imported, {} failed in {} ms",
+                report.getTotalRows(), report.getImported(), report.getFailed(), report.getElapsedMs());
+        return report;
+    }
+
+    private interface RowParser {
+        ImportRow parse() throws Exception;
+    }
+
+    private void accept(ProductImportReport report, List<ImportRow> batch, long line, RowParser parser) {
+        report.setTotalRows(report.getTotalRows() + 1);
+        try {
+            ImportRow row = parser.parse();
+            row.line = line;
+            batch.add(row);
+        } catch (Exception e) {
+            addError(report, line, e.getMessage());
+        }
+        if (batch.size() >= BATCH_SIZE) {
+            flush(batch, report);
+        }
+        if (report.getTotalRows() % PROGRESS_LOG_INTERVAL == 0) {
+            logger.info("Product import progress: {} rows read, {} imported, {} failed",
+                    report.getTotalRows(), report.getImported(), report.getFailed());
+        }
+    }
+
+    private void flush(List<ImportRow> batch, ProductImportReport report) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> insert(batch));
+            indexImported(batch);
+            report.setImported(report.getImported() + batch.size());
+        } catch (DataAccessException batchError) {
+            // lô lỗi: ghi lại từng dòng trong transaction riêng để tách dòng hỏng
+            for (ImportRow row : batch) {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> insert(List.of(row)));
+                    indexImported(List.of(row));
+                    report.setImported(report.getImported() + 1);
+                } catch (DataAccessException rowError) {
+                    addError(report, row.line, rowError.getMostSpecificCause().getMessage());
+                }
+            }
+        }
+        batch.clear();
+    }
+
+    private void insert(List<ImportRow> rows) {
+        List<Long> ids = jdbcTemplate.queryForList(
+                "SELECT nextval('products_id_seq') FROM generate_series(1, ?)", Long.class, rows.size());
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> productArgs = new ArrayList<>(rows.size());
+        List<Object[]> variantArgs = new ArrayList<>();
+        List<Object[]> imageArgs = new ArrayList<>();
+        for (int i = 0; i < rows.size(); i++) {
+            ImportRow row = rows.get(i);
+            row.id = ids.get(i);
+            productArgs.add(new Object[]{row.id, row.name, row.price, row.thumbnail,
+                    row.description, row.categoryId, now, now});
+            for (int v = 0; v < row.variantNames.size(); v++) {
+                variantArgs.add(new Object[]{row.variantNames.get(v), row.variantStocks.get(v), row.id});
+            }
+            for (String image : row.images) {
+                imageArgs.add(new Object[]{row.id, image});
+            }
+        }
+        jdbcTemplate.batchUpdate(INSERT_PRODUCT, productArgs, INSERT_PRODUCT_TYPES);
+        if (!variantArgs.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_VARIANT, variantArgs, INSERT_VARIANT_TYPES);
+        }
+        if (!imageArgs.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_IMAGE, imageArgs, INSERT_IMAGE_TYPES);
+        }
+    }
+
+    //lô đã commit: đưa vào index tìm kiếm trong bộ nhớ; trie gợi ý được rebuild một lần ở cuối
+    private void indexImported(List<ImportRow> rows) {
+        for (ImportRow row : rows) {
+            productSearchEngine.index(row.id, row.name, row.description, row.categoryId);
+        }
+    }
+
+    private CategoryLookup loadCategories() {
+        Set<Long> ids = new HashSet<>();
+        Map<String, Long> idsByName = new HashMap<>();
+        for (Category category : categoryRepository.findAll()) {
+            ids.add(category.getId());
+            idsByName.putIfAbsent(TextNormalizer.normalize(category.getName().trim()), category.getId());
+        }
+        return new CategoryLookup(ids, idsByName);
+    }
+
+    private ImportRow fromCsv(List<String> record, Map<String, Integer> columns, CategoryLookup categories) {
+        ImportRow row = new ImportRow();
+        row.name = column(record, columns, "name");
+        row.price = parsePrice(column(record, columns, "price"));
+        row.thumbnail = column(record, columns, "thumbnail");
+        row.description = column(record, columns, "description");
+        String categoryId = column(record, columns, "category_id");
+        row.categoryId = categories.resolve(
+                categoryId == null ? null : parseLong(categoryId, "category_id"),
+                column(record, columns, "category"));
+        String variants = column(record, columns, "variants");
+        if (variants != null) {
+            for (String variant : variants.split("\\|")) {
+                if (variant.isBlank()) {
+                    continue;
+                }
+                int separator = variant.lastIndexOf(':');
+                String stock = separator < 0 ? "0" : variant.substring(separator + 1).trim();
+                addVariant(row, separator < 0 ? variant : variant.substring(0, separator), stock);
+            }
+        }
+        String images = column(record, columns, "images");
+        if (images != null) {
+            for (String image : images.split("\\|")) {
+                if (!image.isBlank()) {
+                    row.images.add(image.trim());
+                }
+            }
+        }
+        return validate(row);
+    }
+
+    private ImportRow fromJson(JsonNode node, CategoryLookup categories) {
+        if (!node.isObject()) {
+            throw new IllegalArgumentException("Each line must be a JSON object");
+        }
+        ImportRow row = new ImportRow();
+        row.name = text(node, "name");
+        row.price = parsePrice(text(node, "price"));
+        row.thumbnail = text(node, "thumbnail");
+        row.description = text(node, "description");
+        String categoryId = text(node, "category_id");
+        row.categoryId = categories.resolve(
+                categoryId == null ? null : parseLong(categoryId, "category_id"),
+                text(node, "category"));
+        for (JsonNode variant : node.path("variants")) {
+            String name = text(variant, "name");
+            String stock = text(variant, "stock");
+            addVariant(row, name != null ? name : text(variant, "variant"), stock != null ? stock : "0");
+        }
+        for (JsonNode image : node.path("images")) {
+            if (image.isTextual() && !image.asText().isBlank()) {
+                row.images.add(image.asText().trim());
+            }
+        }
+        return validate(row);
+    }
+
+    //cùng ràng buộc với ProductDTO
+    private ImportRow validate(ImportRow row) {
+        if (row.name == null || row.name.length() < 3 || row.name.length() > 200) {
+            throw new IllegalArgumentException("Name must be between 3 and 200 characters");
+        }
+        if (row.images.size() > ProductImage.MAXIMUM_IMAGES_PER_PRODUCT) {
+            throw new IllegalArgumentException("Number of images must be <= "
+                    + ProductImage.MAXIMUM_IMAGES_PER_PRODUCT);
+        }
+        if (row.thumbnail == null && !row.images.isEmpty()) {
+            row.thumbnail = row.images.get(0);
+        }
+        return row;
+    }
+
+    private void addVariant(ImportRow row, String name, String stock) {
+        if (name == null || name.isBlank()) {
+            throw new IllegalArgumentException("Variant name is required");
+        }
+        int quantity;
+        try {
+            quantity = Integer.parseInt(stock.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid variant stock: " + stock);
+        }
+        if (quantity < 0) {
+            throw new IllegalArgumentException("Variant stock must be >= 0");
+        }
+        row.variantNames.add(name.trim());
+        row.variantStocks.add(quantity);
+    }
+
+    private static Float parsePrice(String value) {
+        if (value == null) {
+            return null;
+        }
+        float price;
+        try {
+            price = Float.parseFloat(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid price: " + value);
+        }
+        if (price < 0 || price > MAX_PRICE) {
+            throw new IllegalArgumentException("Price must be between 0 and 10,000,000");
+        }
+        return price;
+    }
+
+    private static Long parseLong(String value, String field) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + field + ": " + value);
+        }
+    }
+
+    //ô rỗng coi như null
+    private static String column(List<String> record, Map<String, Integer> columns, String name) {
+        Integer index = columns.get(name);
+        if (index == null || index >= record.size()) {
+            return null;
+        }
+        String value = record.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    private static String text(JsonNode node, String field) {
+        JsonNode value = node.get(field);
+        if (value == null || value.isNull()) {
+            return null;
+        }
+        String text = value.asText().trim();
+        return text.isEmpty() ? null : text;
+    }
+
+    private static void addError(ProductImportReport report, long line, String message) {
+        report.setFailed(report.getFailed() + 1);
+        if (report.getErrors().size() < MAX_REPORTED_ERRORS) {
+            report.getErrors().add(new ProductImportReport.RowError(line, message));
+        }
+    }
+}
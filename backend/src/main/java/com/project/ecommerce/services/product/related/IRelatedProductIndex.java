@@ -0,0 +1,18 @@
+package com.project.ecommerce.services.product.related;
+
+import java.util.Collection;
+
+public interface IRelatedProductIndex {
+    /**
+     * Id các sản phẩm liên quan, liên quan nhất đứng đầu.
+     * null nếu chưa tính cho sản phẩm này (sản phẩm mới, index chưa load xong).
+     */
+    long[] neighborsOf(Long productId);
+
+    /**
+     * Tính lại danh sách của các sản phẩm (vd các sản phẩm trong đơn vừa giao), chạy nền
+     */
+    void refresh(Collection<Long> productIds);
+
+    void rebuild();
+}
@@ -0,0 +1,287 @@
+package com.project.ecommerce.services.product.related;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Array;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Danh sách sản phẩm liên quan tính sẵn cho từng sản phẩm, lưu ở bảng product_neighbors
+ * (add_product_neighbors.sql) và giữ trong bộ nhớ dạng long[].
+ * Điểm liên quan của một ứng viên:
+ * - cùng danh mục: CATEGORY_WEIGHT + PRICE_WEIGHT * độ gần giá (1 khi cùng giá, về 0 khi chênh lệch lớn)
+ * - được mua cùng trong đơn đã giao: CO_PURCHASE_WEIGHT * log(1 + số đơn)
+ * Build toàn bộ mỗi đêm; khi đơn được giao chỉ tính lại các sản phẩm trong đơn.
+ * Mọi lần tính chạy tuần tự trên một thread riêng, không chặn request.
+ */
+@Component
+public class RelatedProductIndex implements IRelatedProductIndex {
+    private static final Logger logger = LoggerFactory.getLogger(RelatedProductIndex.class);
+
+    // số sản phẩm giá gần nhất mỗi phía được xét trong cùng danh mục
+    private static final int PRICE_WINDOW = 20;
+    private static final int MAX_CO_PURCHASED = 50;
+    private static final double CATEGORY_WEIGHT = 1.0;
+    private static final double PRICE_WEIGHT = 1.0;
+    private static final double CO_PURCHASE_WEIGHT = 2.0;
+    private static final int STORE_BATCH_SIZE = 1000;
+
+    private static final String SELECT_PRODUCTS =
+            "SELECT id, COALESCE(category_id, 0), COALESCE(price, 0) FROM products " +
+            "ORDER BY category_id, price, id";
+    private static final String SELECT_PRODUCT =
+            "SELECT COALESCE(category_id, 0), COALESCE(price, 0) FROM products WHERE id = ?";
+    private static final String SELECT_PRICE_PEERS =
+            "(SELECT id, COALESCE(price, 0) FROM products " +
+            " WHERE category_id = ? AND id <> ? AND price >= ? ORDER BY price, id LIMIT ?) " +
+            "UNION ALL " +
+            "(SELECT id, COALESCE(price, 0) FROM products " +
+            " WHERE category_id = ? AND id <> ? AND price < ? ORDER BY price DESC, id DESC LIMIT ?)";
+    private static final String CO_PURCHASE_JOINS =
+            "FROM order_details od1 " +
+            "JOIN orders o ON o.id = od1.order_id " +
+            "JOIN product_variants v1 ON v1.id = od1.variant_id " +
+            "JOIN order_details od2 ON od2.order_id = od1.order_id " +
+            "JOIN product_variants v2 ON v2.id = od2.variant_id " +
+            "WHERE o.status = 'delivered' AND o.active = true AND v1.product_id <> v2.product_id ";
+    private static final String SELECT_CO_PURCHASES =
+            "SELECT v1.product_id, v2.product_id, COUNT(DISTINCT od1.order_id) " + CO_PURCHASE_JOINS +
+            "GROUP BY v1.product_id, v2.product_id";
+    private static final String SELECT_CO_PURCHASES_OF =
+            "SELECT v2.product_id, COUNT(DISTINCT od1.order_id) " + CO_PURCHASE_JOINS +
+            "AND v1.product_id = ? GROUP BY v2.product_id ORDER BY 2 DESC, 1 LIMIT ?";
+    private static final String UPSERT_NEIGHBORS =
+            "INSERT INTO product_neighbors (product_id, neighbor_ids, updated_at) VALUES (?, ?, NOW()) " +
+            "ON CONFLICT (product_id) DO UPDATE SET neighbor_ids = EXCLUDED.neighbor_ids, updated_at = NOW()";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int neighborCount;
+
+    private volatile Map<Long, long[]> neighbors = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "related-products");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public RelatedProductIndex(JdbcTemplate jdbcTemplate,
+                               @Value("${related.neighbors:24}") int neighborCount) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.neighborCount = neighborCount;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        executor.execute(this::loadOrRebuild);
+    }
+
+    @Scheduled(cron = "${related.rebuild-cron:0 30 3 * * *}")
+    public void scheduledRebuild() {
+        executor.execute(this::rebuild);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Override
+    public long[] neighborsOf(Long productId) {
+        return neighbors.get(productId);
+    }
+
+    @Override
+    public void refresh(Collection<Long> productIds) {
+        List<Long> ids = List.copyOf(productIds);
+        executor.execute(() -> {
+            try {
+                Map<Long, long[]> updated = new HashMap<>();
+                for (Long productId : ids) {
+                    long[] related = compute(productId);
+                    if (related == null) {
+                        neighbors.remove(productId); // sản phẩm đã bị xoá
+                    } else {
+                        updated.put(productId, related);
+                    }
+                }
+                store(updated);
+                neighbors.putAll(updated);
+            } catch (DataAccessException e) {
+                logger.error("Cannot refresh related products for {}", ids, e);
+            }
+        });
+    }
+
+    @Override
+    public void rebuild() {
+        long startedAt = System.currentTimeMillis();
+        try {
+            Map<Long, long[]> fresh = computeAll();
+            store(fresh);
+            neighbors = new ConcurrentHashMap<>(fresh);
+            logger.info("Related products rebuilt for {} products in {} ms",
+                    fresh.size(), System.currentTimeMillis() - startedAt);
+        } catch (DataAccessException e) {
+            logger.error("Cannot rebuild related products", e);
+        }
+    }
+
+    //khởi động: đọc danh sách đã lưu, chỉ tính lại khi bảng còn trống
+    private void loadOrRebuild() {
+        Map<Long, long[]> loaded = new ConcurrentHashMap<>();
+        try {
+            jdbcTemplate.query("SELECT product_id, neighbor_ids FROM product_neighbors", rs -> {
+                Array array = rs.getArray(2);
+                Long[] ids = (Long[]) array.getArray();
+                long[] related = new long[ids.length];
+                for (int i = 0; i < ids.length; i++) {
+                    related[i] = ids[i];
+                }
+                loaded.put(rs.getLong(1), related);
+            });
+        } catch (DataAccessException e) {
+            logger.warn("Cannot load product_neighbors, falling back to category listing: {}",
+                    e.getMostSpecificCause().getMessage());
+            return;
+        }
+        if (loaded.isEmpty()) {
+            rebuild();
+        } else {
+            neighbors = loaded;
+            logger.info("Related products loaded for {} products", loaded.size());
+        }
+    }
+
+    private Map<Long, long[]> computeAll() {
+        // sản phẩm đã sắp theo (danh mục, giá): mỗi danh mục là một khoảng liên tiếp
+        ProductTable products = new ProductTable();
+        jdbcTemplate.query(SELECT_PRODUCTS, rs -> {
+            products.add(rs.getLong(1), rs.getLong(2), rs.getDouble(3));
+        });
+
+        Map<Long, Map<Long, Integer>> coPurchases = new HashMap<>();
+        jdbcTemplate.query(SELECT_CO_PURCHASES, rs -> {
+            coPurchases.computeIfAbsent(rs.getLong(1), key -> new HashMap<>())
+                    .put(rs.getLong(2), rs.getInt(3));
+        });
+
+        long[] ids = products.ids;
+        long[] categories = products.categories;
+        double[] prices = products.prices;
+        Map<Long, long[]> result = new HashMap<>(products.size * 2);
+        int groupStart = 0;
+        for (int i = 0; i < products.size; i++) {
+            if (categories[i] != categories[groupStart]) {
+                groupStart = i;
+            }
+            int from = Math.max(groupStart, i - PRICE_WINDOW);
+            int to = i + 1;
+            while (to < products.size && to <= i + PRICE_WINDOW && categories[to] == categories[i]) {
+                to++;
+            }
+            Map<Long, Double> scores = new HashMap<>();
+            if (categories[i] != 0) {
+                for (int j = from; j < to; j++) {
+                    if (j != i) {
+                        scores.put(ids[j], similarity(prices[i], prices[j]));
+                    }
+                }
+            }
+            addCoPurchases(scores, coPurchases.getOrDefault(ids[i], Map.of()));
+            result.put(ids[i], top(scores));
+        }
+        return result;
+    }
+
+    private static final class ProductTable {
+        long[] ids = new long[1024];
+        long[] categories = new long[1024];
+        double[] prices = new double[1024];
+        int size;
+
+        void add(long id, long categoryId, double price) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                categories = Arrays.copyOf(categories, size * 2);
+                prices = Arrays.copyOf(prices, size * 2);
+            }
+            ids[size] = id;
+            categories[size] = categoryId;
+            prices[size] = price;
+            size++;
+        }
+    }
+
+    //null nếu sản phẩm không còn tồn tại
+    private long[] compute(Long productId) {
+        List<Object[]> rows = jdbcTemplate.query(SELECT_PRODUCT,
+                (rs, rowNum) -> new Object[]{rs.getLong(1), rs.getDouble(2)}, productId);
+        if (rows.isEmpty()) {
+            return null;
+        }
+        long categoryId = (Long) rows.get(0)[0];
+        double price = (Double) rows.get(0)[1];
+
+        Map<Long, Double> scores = new HashMap<>();
+        if (categoryId != 0) {
+            jdbcTemplate.query(SELECT_PRICE_PEERS, rs -> {
+                scores.put(rs.getLong(1), similarity(price, rs.getDouble(2)));
+            }, categoryId, productId, price, PRICE_WINDOW, categoryId, productId, price, PRICE_WINDOW);
+        }
+        Map<Long, Integer> coPurchased = new HashMap<>();
+        jdbcTemplate.query(SELECT_CO_PURCHASES_OF, rs -> {
+            coPurchased.put(rs.getLong(1), rs.getInt(2));
+        }, productId, MAX_CO_PURCHASED);
+        addCoPurchases(scores, coPurchased);
+        return top(scores);
+    }
+
+    private static double similarity(double price, double otherPrice) {
+        double max = Math.max(Math.abs(price), Math.abs(otherPrice));
+        double proximity = max == 0 ? 1.0 : 1.0 - Math.abs(price - otherPrice) / max;
+        return CATEGORY_WEIGHT + PRICE_WEIGHT * proximity;
+    }
+
+    private static void addCoPurchases(Map<Long, Double> scores, Map<Long, Integer> coPurchased) {
+        for (Map.Entry<Long, Integer> entry : coPurchased.entrySet()) {
+            scores.merge(entry.getKey(), CO_PURCHASE_WEIGHT * Math.log1p(entry.getValue()), Double::sum);
+        }
+    }
+
+    //điểm giảm dần, hoà thì id nhỏ trước để thứ tự ổn định giữa các lần build
+    private long[] top(Map<Long, Double> scores) {
+        return scores.entrySet().stream()
+                .sorted(Map.Entry.<Long, Double>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .limit(neighborCount)
+                .mapToLong(Map.Entry::getKey)
+                .toArray();
+    }
+
+    private void store(Map<Long, long[]> lists) {
+        if (lists.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(UPSERT_NEIGHBORS, lists.entrySet(), STORE_BATCH_SIZE, (ps, entry) -> {
+            long[] related = entry.getValue();
+            Long[] boxed = new Long[related.length];
+            for (int i = 0; i < related.length; i++) {
+                boxed[i] = related[i];
+            }
+            ps.setLong(1, entry.getKey());
+            ps.setArray(2, ps.getConnection().createArrayOf("bigint", boxed));
+        });
+    }
+}
@@ -0,0 +1,22 @@
+package com.project.ecommerce.services.product.search;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+public interface IProductSearchEngine {
+    /**
+     * false khi index chưa build xong, lúc đó caller phải fallback về query DB
+     */
+    boolean isReady();
+
+    /**
+     * Trả về 1 trang product id đã xếp hạng theo độ liên quan
+     */
+    Page<Long> search(String keyword, Long categoryId, Pageable pageable);
+
+    void index(Long productId, String name, String description, Long categoryId);
+
+    void remove(Long productId);
+
+    void rebuild();
+}
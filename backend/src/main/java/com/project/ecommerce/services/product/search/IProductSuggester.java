@@ -0,0 +1,22 @@
+package com.project.ecommerce.services.product.search;
+
+import com.project.ecommerce.responses.SuggestionResponse;
+
+public interface IProductSuggester {
+    /**
+     * Gợi ý sản phẩm và danh mục có tên (hoặc một từ trong tên) bắt đầu bằng query,
+     * sắp theo độ phổ biến
+     */
+    SuggestionResponse suggest(String query, int limit);
+
+    void index(Long productId, String name);
+
+    void remove(Long productId);
+
+    /**
+     * Gộp nhiều thay đổi rồi mới build lại trie (vd khi danh mục thay đổi)
+     */
+    void scheduleRebuild();
+
+    void rebuild();
+}
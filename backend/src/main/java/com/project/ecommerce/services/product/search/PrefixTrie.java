@@ -0,0 +1,334 @@
+package com.project.ecommerce.services.product.search;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ * Radix trie bất biến dùng cho gợi ý tìm kiếm, toàn bộ nằm trong mảng primitive.
+ * - Mỗi key là một đoạn [start, end) của mảng char chung, trỏ về 1 doc (int)
+ * - Doc được đánh số theo độ phổ biến: doc càng nhỏ càng phổ biến
+ * - Mỗi node giữ khoảng [lo, hi) của các key đã sắp xếp nằm dưới nó; node có
+ *   nhiều key lưu sẵn top-k doc, node nhỏ thì quét thẳng khoảng key khi truy vấn
+ */
+final class PrefixTrie {
+    static final int TOP_K = 16;
+    // node có ít key hơn ngưỡng này không lưu top-k, quét khi truy vấn
+    private static final int SCAN_LIMIT = 64;
+    // giới hạn quét khi top-k lưu sẵn bị lọc bớt (doc đã bị sửa/xoá)
+    private static final int MAX_FALLBACK_SCAN = 4096;
+
+    private final char[] pool;
+    private final int[] entryStart;
+    private final int[] entryEnd;
+    private final int[] entryDoc;
+
+    private int[] firstChild;
+    private int[] nextSibling;
+    private int[] depth;
+    private int[] lo;
+    private int[] hi;
+    private int[] topOffset;
+    private int[] topPool;
+    private int nodeCount;
+    private int topPoolSize;
+
+    private PrefixTrie(char[] pool, int[] entryStart, int[] entryEnd, int[] entryDoc) {
+        this.pool = pool;
+        this.entryStart = entryStart;
+        this.entryEnd = entryEnd;
+        this.entryDoc = entryDoc;
+    }
+
+    /**
+     * Các mảng entry được sắp xếp tại chỗ theo key.
+     */
+    static PrefixTrie build(char[] pool, int[] entryStart, int[] entryEnd, int[] entryDoc, int entryCount) {
+        PrefixTrie trie = new PrefixTrie(pool,
+                Arrays.copyOf(entryStart, entryCount),
+                Arrays.copyOf(entryEnd, entryCount),
+                Arrays.copyOf(entryDoc, entryCount));
+        trie.sortEntries();
+        int capacity = Math.max(16, entryCount * 2);
+        trie.firstChild = new int[capacity];
+        trie.nextSibling = new int[capacity];
+        trie.depth = new int[capacity];
+        trie.lo = new int[capacity];
+        trie.hi = new int[capacity];
+        trie.topOffset = new int[capacity];
+        trie.topPool = new int[Math.max(16, entryCount / 4)];
+        trie.buildNode(0, entryCount, 0);
+        trie.trim();
+        return trie;
+    }
+
+    int size() {
+        return entryDoc.length;
+    }
+
+    /**
+     * Ghi tối đa max doc (tăng dần = phổ biến giảm dần) có key bắt đầu bằng prefix vào out.
+     * Trả về số doc đã ghi.
+     */
+    int collect(char[] prefix, int prefixLength, int[] out, int max, IntPredicate accept) {
+        int node = find(prefix, prefixLength);
+        if (node < 0 || max <= 0) {
+            return 0;
+        }
+        TopK top = new TopK(max);
+        if (topOffset[node] >= 0) {
+            int offset = topOffset[node];
+            int count = topPool[offset];
+            for (int i = 1; i <= count; i++) {
+                if (accept.test(topPool[offset + i])) {
+                    top.add(topPool[offset + i]);
+                }
+            }
+            // top-k lưu sẵn đã đủ, hoặc node không còn doc nào khác
+            if (top.size == max || hi[node] - lo[node] <= count) {
+                return top.copyTo(out);
+            }
+        }
+        int end = Math.min(hi[node], lo[node] + MAX_FALLBACK_SCAN);
+        for (int e = lo[node]; e < end; e++) {
+            if (accept.test(entryDoc[e])) {
+                top.add(entryDoc[e]);
+            }
+        }
+        return top.copyTo(out);
+    }
+
+    private int find(char[] prefix, int prefixLength) {
+        int node = 0;
+        int pos = 0;
+        while (pos < prefixLength) {
+            char c = prefix[pos];
+            int child = firstChild[node];
+            while (child >= 0 && charAt(lo[child], depth[node]) != c) {
+                child = nextSibling[child];
+            }
+            if (child < 0) {
+                return -1;
+            }
+            int end = Math.min(depth[child], prefixLength);
+            int keyStart = entryStart[lo[child]];
+            for (int i = pos + 1; i < end; i++) {
+                if (pool[keyStart + i] != prefix[i]) {
+                    return -1;
+                }
+            }
+            node = child;
+            pos = end;
+        }
+        return node;
+    }
+
+    private int buildNode(int from, int to, int nodeDepth) {
+        int node = newNode(from, to, nodeDepth);
+        // key ngắn đúng bằng độ sâu của node kết thúc tại đây và luôn đứng đầu khoảng
+        int i = from;
+        while (i < to && length(i) == nodeDepth) {
+            i++;
+        }
+        int previous = -1;
+        while (i < to) {
+            char c = charAt(i, nodeDepth);
+            int j = i + 1;
+            while (j < to && charAt(j, nodeDepth) == c) {
+                j++;
+            }
+            int child = buildNode(i, j, commonPrefix(i, j - 1, nodeDepth + 1));
+            if (previous < 0) {
+                firstChild[node] = child;
+            } else {
+                nextSibling[previous] = child;
+            }
+            previous = child;
+            i = j;
+        }
+        if (to - from > SCAN_LIMIT) {
+            storeTop(node);
+        }
+        return node;
+    }
+
+    //gộp top-k của các node con (hoặc quét node con nhỏ) và các key kết thúc tại node
+    private void storeTop(int node) {
+        TopK top = new TopK(TOP_K);
+        int e = lo[node];
+        while (e < hi[node] && length(e) == depth[node]) {
+            top.add(entryDoc[e++]);
+        }
+        for (int child = firstChild[node]; child >= 0; child = nextSibling[child]) {
+            if (topOffset[child] >= 0) {
+                int offset = topOffset[child];
+                for (int k = 1; k <= topPool[offset]; k++) {
+                    top.add(topPool[offset + k]);
+                }
+            } else {
+                for (int k = lo[child]; k < hi[child]; k++) {
+                    top.add(entryDoc[k]);
+                }
+            }
+        }
+        if (topPoolSize + TOP_K + 1 > topPool.length) {
+            topPool = Arrays.copyOf(topPool, Math.max(topPool.length * 2, topPoolSize + TOP_K + 1));
+        }
+        topOffset[node] = topPoolSize;
+        topPool[topPoolSize] = top.size;
+        System.arraycopy(top.docs, 0, topPool, topPoolSize + 1, top.size);
+        topPoolSize += top.size + 1;
+    }
+
+    private int newNode(int from, int to, int nodeDepth) {
+        if (nodeCount == firstChild.length) {
+            int capacity = nodeCount * 2;
+            firstChild = Arrays.copyOf(firstChild, capacity);
+            nextSibling = Arrays.copyOf(nextSibling, capacity);
+            depth = Arrays.copyOf(depth, capacity);
+            lo = Arrays.copyOf(lo, capacity);
+            hi = Arrays.copyOf(hi, capacity);
+            topOffset = Arrays.copyOf(topOffset, capacity);
+        }
+        int node = nodeCount++;
+        firstChild[node] = -1;
+        nextSibling[node] = -1;
+        depth[node] = nodeDepth;
+        lo[node] = from;
+        hi[node] = to;
+        topOffset[node] = -1;
+        return node;
+    }
+
+    private void trim() {
+        firstChild = Arrays.copyOf(firstChild, nodeCount);
+        nextSibling = Arrays.copyOf(nextSibling, nodeCount);
+        depth = Arrays.copyOf(depth, nodeCount);
+        lo = Arrays.copyOf(lo, nodeCount);
+        hi = Arrays.copyOf(hi, nodeCount);
+        topOffset = Arrays.copyOf(topOffset, nodeCount);
+        topPool = Arrays.copyOf(topPool, topPoolSize);
+    }
+
+    //độ dài tiền tố chung của 2 key (đã sắp xếp nên đây cũng là tiền tố chung của cả khoảng)
+    private int commonPrefix(int a, int b, int from) {
+        int max = Math.min(length(a), length(b));
+        int i = from;
+        while (i < max && charAt(a, i) == charAt(b, i)) {
+            i++;
+        }
+        return i;
+    }
+
+    private int length(int entry) {
+        return entryEnd[entry] - entryStart[entry];
+    }
+
+    private char charAt(int entry, int index) {
+        return pool[entryStart[entry] + index];
+    }
+
+    private int compare(int a, int b) {
+        int lengthA = length(a);
+        int lengthB = length(b);
+        int max = Math.min(lengthA, lengthB);
+        for (int i = 0; i < max; i++) {
+            char ca = charAt(a, i);
+            char cb = charAt(b, i);
+            if (ca != cb) {
+                return ca - cb;
+            }
+        }
+        if (lengthA != lengthB) {
+            return lengthA - lengthB;
+        }
+        return entryDoc[a] - entryDoc[b];
+    }
+
+    private void sortEntries() {
+        quickSort(0, entryDoc.length - 1);
+    }
+
+    private void quickSort(int left, int right) {
+        while (right - left > 16) {
+            int middle = (left + right) >>> 1;
+            if (compare(middle, left) < 0) swap(middle, left);
+            if (compare(right, left) < 0) swap(right, left);
+            if (compare(right, middle) < 0) swap(right, middle);
+            swap(middle, right - 1);
+            int pivot = right - 1;
+            int i = left;
+            int j = right - 1;
+            while (true) {
+                while (compare(++i, pivot) < 0) { }
+                while (compare(--j, pivot) > 0) { }
+                if (i >= j) {
+                    break;
+                }
+                swap(i, j);
+            }
+            swap(i, right - 1);
+            // đệ quy nhánh nhỏ, lặp nhánh lớn để giới hạn độ sâu stack
+            if (i - left < right - i) {
+                quickSort(left, i - 1);
+                left = i + 1;
+            } else {
+                quickSort(i + 1, right);
+                right = i - 1;
+            }
+        }
+        for (int i = left + 1; i <= right; i++) {
+            for (int j = i; j > left && compare(j, j - 1) < 0; j--) {
+                swap(j, j - 1);
+            }
+        }
+    }
+
+    private void swap(int a, int b) {
+        int start = entryStart[a];
+        entryStart[a] = entryStart[b];
+        entryStart[b] = start;
+        int end = entryEnd[a];
+        entryEnd[a] = entryEnd[b];
+        entryEnd[b] = end;
+        int doc = entryDoc[a];
+        entryDoc[a] = entryDoc[b];
+        entryDoc[b] = doc;
+    }
+
+    /**
+     * k doc nhỏ nhất (phổ biến nhất), không trùng, giữ tăng dần trong mảng cố định.
+     */
+    static final class TopK {
+        final int[] docs;
+        int size;
+
+        TopK(int k) {
+            this.docs = new int[k];
+        }
+
+        void add(int doc) {
+            if (size == docs.length && doc >= docs[size - 1]) {
+                return;
+            }
+            int position = Arrays.binarySearch(docs, 0, size, doc);
+            if (position >= 0) {
+                return;
+            }
+            position = -position - 1;
+            int moved = Math.min(size, docs.length - 1) - position;
+            if (moved > 0) {
+                System.arraycopy(docs, position, docs, position + 1, moved);
+            }
+            docs[position] = doc;
+            if (size < docs.length) {
+                size++;
+            }
+        }
+
+        int copyTo(int[] out) {
+            int count = Math.min(size, out.length);
+            System.arraycopy(docs, 0, out, 0, count);
+            return count;
+        }
+    }
+}
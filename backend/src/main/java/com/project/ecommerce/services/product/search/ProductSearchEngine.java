@@ -0,0 +1,266 @@
+package com.project.ecommerce.services.product.search;
+
+import com.project.ecommerce.repositories.ProductRepository;
+import com.project.ecommerce.utils.TextNormalizer;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Inverted index trong bộ nhớ trên name + description của sản phẩm.
+ * - Bỏ dấu tiếng Việt (TextNormalizer)
+ * - Từ cuối của keyword được match theo tiền tố ("iph" -> "iphone")
+ * - Xếp hạng BM25, tên sản phẩm được tính trọng số cao hơn mô tả
+ */
+@Component
+@RequiredArgsConstructor
+public class ProductSearchEngine implements IProductSearchEngine {
+    private static final Logger logger = LoggerFactory.getLogger(ProductSearchEngine.class);
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final int NAME_WEIGHT = 3;
+    private static final double PREFIX_MATCH_FACTOR = 0.8;
+    private static final int MAX_PREFIX_EXPANSIONS = 64;
+    private static final int REBUILD_BATCH_SIZE = 5000;
+
+    private final ProductRepository productRepository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Index index = new Index();
+    // Các thay đổi xảy ra trong lúc rebuild, sẽ được áp dụng lại lên index mới
+    private List<Consumer<Index>> pendingChanges;
+    private volatile boolean ready = false;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    @Override
+    public boolean isReady() {
+        return ready;
+    }
+
+    @Override
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            if (pendingChanges != null) {
+                return; // đang rebuild ở thread khác
+            }
+            pendingChanges = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Index fresh = new Index();
+        try {
+            long lastId = 0L;
+            while (true) {
+                List<Object[]> rows = productRepository.findSearchDocuments(
+                        lastId, PageRequest.of(0, REBUILD_BATCH_SIZE));
+                for (Object[] row : rows) {
+                    fresh.put((Long) row[0], (String) row[1], (String) row[2], (Long) row[3]);
+                }
+                if (rows.size() < REBUILD_BATCH_SIZE) {
+                    break;
+                }
+                lastId = (Long) rows.get(rows.size() - 1)[0];
+            }
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                pendingChanges = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            logger.error("Cannot build product search index", e);
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            pendingChanges.forEach(change -> change.accept(fresh));
+            pendingChanges = null;
+            index = fresh;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.info("Product search index built with {} products", fresh.documents.size());
+    }
+
+    @Override
+    public void index(Long productId, String name, String description, Long categoryId) {
+        applyChange(target -> target.put(productId, name, description, categoryId));
+    }
+
+    @Override
+    public void remove(Long productId) {
+        applyChange(target -> target.remove(productId));
+    }
+
+    private void applyChange(Consumer<Index> change) {
+        lock.writeLock().lock();
+        try {
+            change.accept(index);
+            if (pendingChanges != null) {
+                pendingChanges.add(change);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Page<Long> search(String keyword, Long categoryId, Pageable pageable) {
+        List<String> queryTerms = new ArrayList<>(new LinkedHashSet<>(TextNormalizer.tokenize(keyword)));
+        if (queryTerms.isEmpty()) {
+            return Page.empty(pageable);
+        }
+        Long categoryFilter = categoryId == null || categoryId == 0 ? null : categoryId;
+
+        List<Map.Entry<Long, Double>> ranked;
+        lock.readLock().lock();
+        try {
+            Map<Long, Double> scores = index.score(queryTerms, categoryFilter);
+            ranked = new ArrayList<>(scores.entrySet());
+        } finally {
+            lock.readLock().unlock();
+        }
+        ranked.sort(Map.Entry.<Long, Double>comparingByValue().reversed()
+                .thenComparing(Map.Entry.comparingByKey()));
+
+        int from = (int) Math.min(pageable.getOffset(), ranked.size());
+        int to = Math.min(from + pageable.getPageSize(), ranked.size());
+        List<Long> ids = ranked.subList(from, to).stream().map(Map.Entry::getKey).toList();
+        return new PageImpl<>(ids, pageable, ranked.size());
+    }
+
+    private record Document(Long categoryId, String[] terms, int length) {
+    }
+
+    private static class Index {
+        // term -> (productId -> tần suất có trọng số)
+        private final NavigableMap<String, Map<Long, Integer>> postings = new TreeMap<>();
+        private final Map<Long, Document> documents = new HashMap<>();
+        private long totalLength = 0;
+
+        void put(Long productId, String name, String description, Long categoryId) {
+            remove(productId);
+            Map<String, Integer> frequencies = new HashMap<>();
+            for (String term : TextNormalizer.tokenize(name)) {
+                frequencies.merge(term, NAME_WEIGHT, Integer::sum);
+            }
+            for (String term : TextNormalizer.tokenize(description)) {
+                frequencies.merge(term, 1, Integer::sum);
+            }
+            int length = 0;
+            for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+                postings.computeIfAbsent(entry.getKey(), k -> new HashMap<>())
+                        .put(productId, entry.getValue());
+                length += entry.getValue();
+            }
+            documents.put(productId, new Document(
+                    categoryId, frequencies.keySet().toArray(new String[0]), length));
+            totalLength += length;
+        }
+
+        void remove(Long productId) {
+            Document document = documents.remove(productId);
+            if (document == null) {
+                return;
+            }
+            for (String term : document.terms()) {
+                Map<Long, Integer> postingList = postings.get(term);
+                if (postingList != null) {
+                    postingList.remove(productId);
+                    if (postingList.isEmpty()) {
+                        postings.remove(term);
+                    }
+                }
+            }
+            totalLength -= document.length();
+        }
+
+        /**
+         * Mọi từ trong keyword đều phải khớp (AND), điểm của mỗi từ là BM25 của
+         * term khớp tốt nhất (chính xác, hoặc tiền tố với từ cuối).
+         */
+        Map<Long, Double> score(List<String> queryTerms, Long categoryFilter) {
+            int documentCount = documents.size();
+            if (documentCount == 0) {
+                return Collections.emptyMap();
+            }
+            double averageLength = (double) totalLength / documentCount;
+            Map<Long, Double> scores = null;
+            for (int i = 0; i < queryTerms.size(); i++) {
+                String queryTerm = queryTerms.get(i);
+                boolean prefix = i == queryTerms.size() - 1;
+                Map<Long, Double> termScores = new HashMap<>();
+                for (Map.Entry<String, Map<Long, Integer>> entry : expand(queryTerm, prefix)) {
+                    Map<Long, Integer> postingList = entry.getValue();
+                    double idf = Math.log(1 + (documentCount - postingList.size() + 0.5)
+                            / (postingList.size() + 0.5));
+                    double factor = entry.getKey().equals(queryTerm) ? 1.0 : PREFIX_MATCH_FACTOR;
+                    for (Map.Entry<Long, Integer> posting : postingList.entrySet()) {
+                        if (scores != null && !scores.containsKey(posting.getKey())) {
+                            continue;
+                        }
+                        Document document = documents.get(posting.getKey());
+                        if (categoryFilter != null && !categoryFilter.equals(document.categoryId())) {
+                            continue;
+                        }
+                        int tf = posting.getValue();
+                        double score = factor * idf * tf * (K1 + 1)
+                                / (tf + K1 * (1 - B + B * document.length() / averageLength));
+                        termScores.merge(posting.getKey(), score, Math::max);
+                    }
+                }
+                if (scores == null) {
+                    scores = termScores;
+                } else {
+                    scores.keySet().retainAll(termScores.keySet());
+                    for (Map.Entry<Long, Double> entry : termScores.entrySet()) {
+                        scores.computeIfPresent(entry.getKey(), (id, score) -> score + entry.getValue());
+                    }
+                }
+                if (scores.isEmpty()) {
+                    break;
+                }
+            }
+            return scores;
+        }
+
+        private List<Map.Entry<String, Map<Long, Integer>>> expand(String queryTerm, boolean prefix) {
+            if (!prefix) {
+                Map<Long, Integer> postingList = postings.get(queryTerm);
+                return postingList == null
+                        ? Collections.emptyList()
+                        : List.of(Map.entry(queryTerm, postingList));
+            }
+            List<Map.Entry<String, Map<Long, Integer>>> expansions = new ArrayList<>();
+            for (Map.Entry<String, Map<Long, Integer>> entry
+                    : postings.subMap(queryTerm, true, queryTerm + Character.MAX_VALUE, false).entrySet()) {
+                expansions.add(entry);
+                if (expansions.size() >= MAX_PREFIX_EXPANSIONS) {
+                    break;
+                }
+            }
+            return expansions;
+        }
+    }
+}
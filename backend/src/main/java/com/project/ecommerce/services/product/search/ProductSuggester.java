@@ -0,0 +1,296 @@
+package com.project.ecommerce.services.product.search;
+
+import com.project.ecommerce.models.Category;
+import com.project.ecommerce.repositories.CategoryRepository;
+import com.project.ecommerce.repositories.ProductRepository;
+import com.project.ecommerce.responses.SuggestionResponse;
+import com.project.ecommerce.utils.TextNormalizer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Gợi ý khi gõ (GET /products/suggest) trên 2 PrefixTrie: tên sản phẩm và tên danh mục.
+ * - Key là tên đã chuẩn hoá bắt đầu từ mỗi từ ("iphone 15 pro" khớp cả "15 p", "pro")
+ * - Sản phẩm xếp theo số lượng đã bán, danh mục theo số sản phẩm
+ * - Trie bất biến; sản phẩm thêm/sửa/xoá sau lần build được giữ trong overlay nhỏ
+ *   và được gộp vào trie ở lần rebuild kế tiếp (debounce)
+ */
+@Component
+public class ProductSuggester implements IProductSuggester {
+    private static final Logger logger = LoggerFactory.getLogger(ProductSuggester.class);
+
+    private static final int REBUILD_BATCH_SIZE = 5000;
+    private static final int MAX_WORD_STARTS = 8;
+    private static final int MAX_KEY_LENGTH = 64;
+
+    private final ProductRepository productRepository;
+    private final CategoryRepository categoryRepository;
+    private final long rebuildDelaySeconds;
+
+    private volatile Snapshot snapshot;
+    // productId -> thay đổi chưa có trong trie (name == null nghĩa là đã xoá)
+    private final Map<Long, Change> changes = new ConcurrentHashMap<>();
+    private final AtomicLong changeSequence = new AtomicLong();
+    private final AtomicBoolean rebuildScheduled = new AtomicBoolean();
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "product-suggester");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public ProductSuggester(ProductRepository productRepository,
+                            CategoryRepository categoryRepository,
+                            @Value("${search.suggest.rebuild-delay-seconds:30}") long rebuildDelaySeconds) {
+        this.productRepository = productRepository;
+        this.categoryRepository = categoryRepository;
+        this.rebuildDelaySeconds = rebuildDelaySeconds;
+    }
+
+    // sortedIds/docOfSortedId: tra doc theo productId bằng binary search
+    private record Snapshot(PrefixTrie productTrie, long[] productIds, String[] productNames,
+                            long[] sortedIds, int[] docOfSortedId,
+                            PrefixTrie categoryTrie, long[] categoryIds, String[] categoryNames) {
+    }
+
+    private record Change(String name, String key, int rank, long sequence) {
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        scheduler.execute(this::rebuild);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    @Override
+    public SuggestionResponse suggest(String query, int limit) {
+        Snapshot current = snapshot;
+        String prefix = String.join(" ", TextNormalizer.tokenize(query));
+        if (current == null || prefix.isEmpty()) {
+            return SuggestionResponse.builder().products(List.of()).categories(List.of()).build();
+        }
+        int max = Math.max(1, Math.min(limit, PrefixTrie.TOP_K));
+        char[] prefixChars = prefix.toCharArray();
+        int[] docs = new int[max];
+
+        // sản phẩm trong trie, bỏ những sản phẩm đã thay đổi sau lần build
+        List<Candidate> candidates = new ArrayList<>();
+        int count = current.productTrie().collect(prefixChars, prefixChars.length, docs, max,
+                doc -> changes.isEmpty() || !changes.containsKey(current.productIds()[doc]));
+        for (int i = 0; i < count; i++) {
+            candidates.add(new Candidate(docs[i], current.productIds()[docs[i]], current.productNames()[docs[i]]));
+        }
+        // sản phẩm trong overlay
+        for (Map.Entry<Long, Change> entry : changes.entrySet()) {
+            Change change = entry.getValue();
+            if (change.name() != null && matchesWordStart(change.key(), prefix)) {
+                candidates.add(new Candidate(change.rank(), entry.getKey(), change.name()));
+            }
+        }
+        candidates.sort(Comparator.comparingInt(Candidate::rank).thenComparingLong(Candidate::id));
+
+        List<SuggestionResponse.Item> products = candidates.stream()
+                .limit(max)
+                .map(candidate -> new SuggestionResponse.Item(candidate.id(), candidate.name()))
+                .toList();
+
+        count = current.categoryTrie().collect(prefixChars, prefixChars.length, docs, max, doc -> true);
+        List<SuggestionResponse.Item> categories = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            categories.add(new SuggestionResponse.Item(
+                    current.categoryIds()[docs[i]], current.categoryNames()[docs[i]]));
+        }
+        return SuggestionResponse.builder().products(products).categories(categories).build();
+    }
+
+    private record Candidate(int rank, long id, String name) {
+    }
+
+    @Override
+    public void index(Long productId, String name) {
+        changes.put(productId, new Change(name, toKey(name), rankOf(productId), changeSequence.incrementAndGet()));
+        scheduleRebuild();
+    }
+
+    @Override
+    public void remove(Long productId) {
+        changes.put(productId, new Change(null, null, Integer.MAX_VALUE, changeSequence.incrementAndGet()));
+        scheduleRebuild();
+    }
+
+    //sản phẩm đã có trong trie giữ nguyên thứ hạng cũ, sản phẩm mới xếp cuối
+    private int rankOf(Long productId) {
+        Snapshot current = snapshot;
+        if (current != null) {
+            int position = Arrays.binarySearch(current.sortedIds(), productId);
+            if (position >= 0) {
+                return current.docOfSortedId()[position];
+            }
+        }
+        return Integer.MAX_VALUE;
+    }
+
+    @Override
+    public void scheduleRebuild() {
+        if (rebuildScheduled.compareAndSet(false, true)) {
+            scheduler.schedule(() -> {
+                rebuildScheduled.set(false);
+                rebuild();
+            }, rebuildDelaySeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    @Override
+    public void rebuild() {
+        if (!rebuilding.compareAndSet(false, true)) {
+            return; // đang rebuild ở thread khác
+        }
+        try {
+            long sequence = changeSequence.get();
+            Snapshot fresh = load();
+            snapshot = fresh;
+            // các thay đổi đã commit trước khi bắt đầu đọc DB đã nằm trong trie mới
+            changes.values().removeIf(change -> change.sequence() <= sequence);
+            logger.info("Product suggestion trie built with {} products", fresh.productIds().length);
+        } catch (RuntimeException e) {
+            logger.error("Cannot build product suggestion trie", e);
+        } finally {
+            rebuilding.set(false);
+        }
+    }
+
+    private Snapshot load() {
+        int size = 0;
+        long[] ids = new long[1024];
+        String[] names = new String[1024];
+        long[] categoryOfProduct = new long[1024];
+        long lastId = 0L;
+        while (true) {
+            List<Object[]> rows = productRepository.findSuggestionDocuments(
+                    lastId, PageRequest.of(0, REBUILD_BATCH_SIZE));
+            for (Object[] row : rows) {
+                if (size == ids.length) {
+                    ids = Arrays.copyOf(ids, size * 2);
+                    names = Arrays.copyOf(names, size * 2);
+                    categoryOfProduct = Arrays.copyOf(categoryOfProduct, size * 2);
+                }
+                ids[size] = (Long) row[0];
+                names[size] = (String) row[1];
+                categoryOfProduct[size] = row[2] == null ? 0L : (Long) row[2];
+                size++;
+            }
+            if (rows.size() < REBUILD_BATCH_SIZE) {
+                break;
+            }
+            lastId = (Long) rows.get(rows.size() - 1)[0];
+        }
+
+        // sắp theo số lượng đã bán giảm dần, hoà thì theo id: khoá long = (MAX - sold) << 32 | vị trí
+        Map<Long, Long> soldByProduct = new HashMap<>();
+        for (Object[] row : productRepository.findSoldQuantities()) {
+            soldByProduct.put((Long) row[0], ((Number) row[1]).longValue());
+        }
+        long[] order = new long[size];
+        for (int i = 0; i < size; i++) {
+            long sold = Math.min(soldByProduct.getOrDefault(ids[i], 0L), Integer.MAX_VALUE);
+            order[i] = ((Integer.MAX_VALUE - sold) << 32) | i;
+        }
+        Arrays.sort(order);
+        long[] productIds = new long[size];
+        String[] productNames = new String[size];
+        String[] productKeys = new String[size];
+        int[] docOfSortedId = new int[size];
+        Map<Long, Integer> productsPerCategory = new HashMap<>();
+        for (int doc = 0; doc < size; doc++) {
+            int position = (int) order[doc];
+            docOfSortedId[position] = doc;
+            productIds[doc] = ids[position];
+            productNames[doc] = names[position];
+            productKeys[doc] = toKey(names[position]);
+            productsPerCategory.merge(categoryOfProduct[position], 1, Integer::sum);
+        }
+
+        List<Category> categories = new ArrayList<>(categoryRepository.findAll());
+        categories.sort(Comparator.comparingInt((Category category) ->
+                -productsPerCategory.getOrDefault(category.getId(), 0)).thenComparing(Category::getId));
+        long[] categoryIds = new long[categories.size()];
+        String[] categoryNames = new String[categories.size()];
+        String[] categoryKeys = new String[categories.size()];
+        for (int doc = 0; doc < categories.size(); doc++) {
+            categoryIds[doc] = categories.get(doc).getId();
+            categoryNames[doc] = categories.get(doc).getName();
+            categoryKeys[doc] = toKey(categories.get(doc).getName());
+        }
+        //ids được đọc theo id tăng dần nên đã sắp xếp sẵn
+        return new Snapshot(buildTrie(productKeys), productIds, productNames,
+                Arrays.copyOf(ids, size), docOfSortedId,
+                buildTrie(categoryKeys), categoryIds, categoryNames);
+    }
+
+    //mỗi doc một đoạn trong mảng char chung, mỗi vị trí đầu từ là một key
+    private static PrefixTrie buildTrie(String[] keys) {
+        int totalLength = 0;
+        for (String key : keys) {
+            totalLength += key.length();
+        }
+        char[] pool = new char[totalLength];
+        int[] entryStart = new int[1024];
+        int[] entryEnd = new int[1024];
+        int[] entryDoc = new int[1024];
+        int entryCount = 0;
+        int offset = 0;
+        for (int doc = 0; doc < keys.length; doc++) {
+            String key = keys[doc];
+            key.getChars(0, key.length(), pool, offset);
+            int words = 0;
+            for (int i = 0; i < key.length() && words < MAX_WORD_STARTS; i++) {
+                if (i > 0 && key.charAt(i - 1) != ' ') {
+                    continue;
+                }
+                if (entryCount == entryDoc.length) {
+                    entryStart = Arrays.copyOf(entryStart, entryCount * 2);
+                    entryEnd = Arrays.copyOf(entryEnd, entryCount * 2);
+                    entryDoc = Arrays.copyOf(entryDoc, entryCount * 2);
+                }
+                entryStart[entryCount] = offset + i;
+                entryEnd[entryCount] = offset + Math.min(key.length(), i + MAX_KEY_LENGTH);
+                entryDoc[entryCount] = doc;
+                entryCount++;
+                words++;
+            }
+            offset += key.length();
+        }
+        return PrefixTrie.build(pool, entryStart, entryEnd, entryDoc, entryCount);
+    }
+
+    private static String toKey(String name) {
+        return String.join(" ", TextNormalizer.tokenize(name));
+    }
+
+    private static boolean matchesWordStart(String key, String prefix) {
+        for (int i = 0; i < key.length(); i++) {
+            if ((i == 0 || key.charAt(i - 1) == ' ') && key.startsWith(prefix, i)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
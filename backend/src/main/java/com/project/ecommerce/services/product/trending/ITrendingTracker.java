@@ -0,0 +1,21 @@
+package com.project.ecommerce.services.product.trending;
+
+import java.util.List;
+import java.util.Map;
+
+public interface ITrendingTracker {
+    /**
+     * Số lượng theo sản phẩm của một đơn vừa đặt
+     */
+    void recordOrdered(Map<Long, Integer> quantitiesByProduct);
+
+    /**
+     * Số lượng theo sản phẩm của một đơn vừa được giao
+     */
+    void recordDelivered(Map<Long, Integer> quantitiesByProduct);
+
+    /**
+     * Id sản phẩm thịnh hành nhất trong cửa sổ (1h, 24h, 7d), giảm dần theo độ phổ biến
+     */
+    List<Long> top(String window, int limit);
+}
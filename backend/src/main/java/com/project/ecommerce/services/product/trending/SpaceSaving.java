@@ -0,0 +1,170 @@
+package com.project.ecommerce.services.product.trending;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Sketch Space-Saving có trọng số: giữ tối đa capacity khoá, bộ nhớ không phụ thuộc số sản phẩm.
+ * Khoá mới khi đã đầy thay chỗ khoá có count nhỏ nhất và kế thừa count đó (ghi vào error),
+ * nên count luôn >= giá trị thật và count - error <= giá trị thật.
+ * Các khoá nằm trong min-heap theo count để tìm khoá nhỏ nhất trong O(1), cập nhật O(log capacity).
+ * Không thread-safe.
+ */
+final class SpaceSaving {
+    private final int capacity;
+    private final long[] ids;
+    private final double[] counts;
+    private final double[] errors;
+    private final Map<Long, Integer> positions;
+    private int size;
+
+    SpaceSaving(int capacity) {
+        this.capacity = capacity;
+        this.ids = new long[capacity];
+        this.counts = new double[capacity];
+        this.errors = new double[capacity];
+        this.positions = new HashMap<>(capacity * 2);
+    }
+
+    void offer(long id, double weight) {
+        Integer position = positions.get(id);
+        if (position != null) {
+            counts[position] += weight;
+            siftDown(position);
+            return;
+        }
+        if (size < capacity) {
+            ids[size] = id;
+            counts[size] = weight;
+            errors[size] = 0;
+            positions.put(id, size);
+            siftUp(size++);
+            return;
+        }
+        // thay khoá nhỏ nhất ở gốc heap
+        positions.remove(ids[0]);
+        ids[0] = id;
+        errors[0] = counts[0];
+        counts[0] += weight;
+        positions.put(id, 0);
+        siftDown(0);
+    }
+
+    //nhân mọi count với cùng một hệ số dương, thứ tự heap không đổi
+    void scale(double factor) {
+        for (int i = 0; i < size; i++) {
+            counts[i] *= factor;
+            errors[i] *= factor;
+        }
+    }
+
+    //cộng các khoá của sketch khác vào (count của nó coi như lượt mới)
+    void addAll(SpaceSaving other) {
+        for (int i = 0; i < other.size; i++) {
+            offer(other.ids[i], other.counts[i]);
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Tối đa limit khoá xếp theo cận dưới count - error, giảm dần: khoá vừa thay chỗ
+     * (count thừa kế lớn nhưng chưa có mấy lượt thật) không nhảy lên đầu
+     */
+    long[] top(int limit) {
+        return IntStream.range(0, size)
+                .boxed()
+                .sorted(Comparator.comparingDouble((Integer i) -> counts[i] - errors[i]).reversed()
+                        .thenComparingLong(i -> ids[i]))
+                .limit(limit)
+                .mapToLong(i -> ids[i])
+                .toArray();
+    }
+
+    void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(size);
+        for (int i = 0; i < size; i++) {
+            out.writeLong(ids[i]);
+            out.writeDouble(counts[i]);
+            out.writeDouble(errors[i]);
+        }
+    }
+
+    //đọc sketch đã lưu, capacity mới nhỏ hơn thì giữ các khoá count lớn nhất
+    static SpaceSaving readFrom(DataInputStream in, int capacity) throws IOException {
+        int stored = in.readInt();
+        long[] ids = new long[stored];
+        double[] counts = new double[stored];
+        double[] errors = new double[stored];
+        for (int i = 0; i < stored; i++) {
+            ids[i] = in.readLong();
+            counts[i] = in.readDouble();
+            errors[i] = in.readDouble();
+        }
+        Integer[] order = IntStream.range(0, stored).boxed().toArray(Integer[]::new);
+        Arrays.sort(order, Comparator.comparingDouble((Integer i) -> counts[i]).reversed());
+        SpaceSaving sketch = new SpaceSaving(capacity);
+        for (int i = 0; i < Math.min(stored, capacity); i++) {
+            int from = order[i];
+            int to = sketch.size;
+            sketch.ids[to] = ids[from];
+            sketch.counts[to] = counts[from];
+            sketch.errors[to] = errors[from];
+            sketch.positions.put(ids[from], to);
+            sketch.siftUp(sketch.size++);
+        }
+        return sketch;
+    }
+
+    private void siftUp(int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (counts[parent] <= counts[index]) {
+                return;
+            }
+            swap(index, parent);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int index) {
+        while (true) {
+            int smallest = index;
+            int left = 2 * index + 1;
+            int right = left + 1;
+            if (left < size && counts[left] < counts[smallest]) {
+                smallest = left;
+            }
+            if (right < size && counts[right] < counts[smallest]) {
+                smallest = right;
+            }
+            if (smallest == index) {
+                return;
+            }
+            swap(index, smallest);
+            index = smallest;
+        }
+    }
+
+    private void swap(int a, int b) {
+        long id = ids[a];
+        ids[a] = ids[b];
+        ids[b] = id;
+        double count = counts[a];
+        counts[a] = counts[b];
+        counts[b] = count;
+        double error = errors[a];
+        errors[a] = errors[b];
+        errors[b] = error;
+        positions.put(ids[a], a);
+        positions.put(ids[b], b);
+    }
+}
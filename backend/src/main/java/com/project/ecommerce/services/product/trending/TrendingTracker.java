@@ -0,0 +1,197 @@
+package com.project.ecommerce.services.product.trending;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.*;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sản phẩm thịnh hành theo 3 cửa sổ (1h, 24h, 7d), mỗi cửa sổ một sketch Space-Saving top-K.
+ * Suy giảm theo thời gian bằng forward decay: sự kiện lúc t có trọng số w * e^((t - mốc) / tau)
+ * (tau = độ dài cửa sổ), nên sự kiện cũ giảm dần mà không phải cập nhật lại các count;
+ * khi số mũ quá lớn thì chia cả sketch về mốc mới.
+ * Sketch được ghi xuống trending_sketches định kỳ và khi tắt server, đọc lại khi ứng dụng sẵn sàng
+ * (không đọc DB trong lúc khởi tạo bean); đơn ghi nhận trước lúc đó được cộng dồn vào sketch đã lưu.
+ * Mỗi server chỉ thấy đơn đi qua chính nó; checkpoint của server ghi sau cùng thắng.
+ */
+@Component
+public class TrendingTracker implements ITrendingTracker {
+    private static final Logger logger = LoggerFactory.getLogger(TrendingTracker.class);
+
+    // e^40 còn xa giới hạn double, chia lại trước khi tới đó
+    private static final double RESCALE_EXPONENT = 40;
+    private static final String UPSERT =
+            "INSERT INTO trending_sketches (window_name, landmark_ms, data, updated_at) VALUES (?, ?, ?, NOW()) " +
+            "ON CONFLICT (window_name) DO UPDATE SET landmark_ms = EXCLUDED.landmark_ms, " +
+            "data = EXCLUDED.data, updated_at = NOW()";
+
+    enum Window {
+        HOUR("1h", Duration.ofHours(1)),
+        DAY("24h", Duration.ofHours(24)),
+        WEEK("7d", Duration.ofDays(7));
+
+        private final String param;
+        private final double tauMs;
+
+        Window(String param, Duration length) {
+            this.param = param;
+            this.tauMs = length.toMillis();
+        }
+
+        static Window parse(String value) {
+            return Arrays.stream(values())
+                    .filter(window -> window.param.equalsIgnoreCase(value))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalArgumentException("window must be one of 1h, 24h, 7d"));
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int capacity;
+    private final double deliveredWeight;
+    private final Map<Window, DecayedSketch> sketches = new EnumMap<>(Window.class);
+    // chưa đọc lại sketch đã lưu thì không checkpoint, tránh ghi đè bằng sketch gần như rỗng
+    private volatile boolean restored;
+
+    public TrendingTracker(JdbcTemplate jdbcTemplate,
+                           @Value("${trending.capacity:1000}") int capacity,
+                           @Value("${trending.delivered-weight:1.0}") double deliveredWeight) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.capacity = capacity;
+        this.deliveredWeight = deliveredWeight;
+        long now = System.currentTimeMillis();
+        for (Window window : Window.values()) {
+            sketches.put(window, new DecayedSketch(window.tauMs, now, new SpaceSaving(capacity)));
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void restore() {
+        try {
+            jdbcTemplate.query("SELECT window_name, landmark_ms, data FROM trending_sketches", rs -> {
+                Window window;
+                try {
+                    window = Window.parse(rs.getString(1));
+                } catch (IllegalArgumentException e) {
+                    return; // cửa sổ không còn dùng
+                }
+                try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(rs.getBytes(3)))) {
+                    sketches.get(window).restore(rs.getLong(2), SpaceSaving.readFrom(in, capacity));
+                } catch (IOException e) {
+                    logger.warn("Cannot read trending sketch {}: {}", window.param, e.getMessage());
+                }
+            });
+        } catch (DataAccessException e) {
+            logger.warn("Cannot load trending_sketches, starting empty: {}",
+                    e.getMostSpecificCause().getMessage());
+        }
+        restored = true;
+    }
+
+    @Scheduled(fixedDelayString = "${trending.checkpoint-interval-ms:60000}",
+            initialDelayString = "${trending.checkpoint-interval-ms:60000}")
+    public void scheduledCheckpoint() {
+        checkpoint();
+    }
+
+    @PreDestroy
+    public void checkpoint() {
+        if (!restored) {
+            return;
+        }
+        for (Map.Entry<Window, DecayedSketch> entry : sketches.entrySet()) {
+            try {
+                DecayedSketch.Checkpoint checkpoint = entry.getValue().checkpoint();
+                jdbcTemplate.update(UPSERT, entry.getKey().param, checkpoint.landmarkMs(), checkpoint.data());
+            } catch (DataAccessException e) {
+                logger.error("Cannot checkpoint trending sketch {}", entry.getKey().param, e);
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void recordOrdered(Map<Long, Integer> quantitiesByProduct) {
+        record(quantitiesByProduct, 1.0);
+    }
+
+    @Override
+    public void recordDelivered(Map<Long, Integer> quantitiesByProduct) {
+        record(quantitiesByProduct, deliveredWeight);
+    }
+
+    @Override
+    public List<Long> top(String window, int limit) {
+        return Arrays.stream(sketches.get(Window.parse(window)).top(limit)).boxed().toList();
+    }
+
+    private void record(Map<Long, Integer> quantitiesByProduct, double weight) {
+        long now = System.currentTimeMillis();
+        for (DecayedSketch sketch : sketches.values()) {
+            sketch.offer(quantitiesByProduct, weight, now);
+        }
+    }
+
+    private static final class DecayedSketch {
+        private final double tauMs;
+        private long landmarkMs;
+        private SpaceSaving sketch;
+
+        DecayedSketch(double tauMs, long landmarkMs, SpaceSaving sketch) {
+            this.tauMs = tauMs;
+            this.landmarkMs = landmarkMs;
+            this.sketch = sketch;
+        }
+
+        synchronized void offer(Map<Long, Integer> quantitiesByProduct, double weight, long now) {
+            double exponent = (now - landmarkMs) / tauMs;
+            if (exponent > RESCALE_EXPONENT) {
+                sketch.scale(Math.exp(-exponent));
+                landmarkMs = now;
+                exponent = 0;
+            }
+            double decayed = weight * Math.exp(exponent);
+            for (Map.Entry<Long, Integer> entry : quantitiesByProduct.entrySet()) {
+                sketch.offer(entry.getKey(), entry.getValue() * decayed);
+            }
+        }
+
+        //thứ tự không phụ thuộc thời điểm đọc: mọi count cùng chia một hệ số e^((now - mốc) / tau)
+        synchronized long[] top(int limit) {
+            return sketch.top(limit);
+        }
+
+        //sketch đã lưu đổi về mốc hiện tại rồi cộng các lượt đã ghi nhận từ lúc khởi động
+        synchronized void restore(long storedLandmarkMs, SpaceSaving stored) {
+            stored.scale(Math.exp((storedLandmarkMs - landmarkMs) / tauMs));
+            stored.addAll(sketch);
+            sketch = stored;
+        }
+
+        synchronized Checkpoint checkpoint() {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (DataOutputStream out = new DataOutputStream(bytes)) {
+                sketch.writeTo(out);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return new Checkpoint(landmarkMs, bytes.toByteArray());
+        }
+
+        record Checkpoint(long landmarkMs, byte[] data) {
+        }
+    }
+}
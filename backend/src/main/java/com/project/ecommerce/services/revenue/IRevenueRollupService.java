@@ -0,0 +1,26 @@
+package com.project.ecommerce.services.revenue;
+
+import com.project.ecommerce.responses.CategoryStatResponse;
+import com.project.ecommerce.responses.ProductStatResponse;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface IRevenueRollupService {
+    /**
+     * Cộng/trừ doanh thu của đơn khi đơn chuyển vào/ra trạng thái delivered,
+     * chạy trong transaction đổi trạng thái đơn
+     */
+    void onStatusChange(Long orderId, String fromStatus, String toStatus);
+
+    Page<ProductStatResponse> getProductStat(LocalDate start, LocalDate end, Pageable pageable);
+
+    List<CategoryStatResponse> getCategoryStat(LocalDate start, LocalDate end);
+
+    /**
+     * Tính lại toàn bộ bảng tổng hợp từ các đơn đã giao, trả về số dòng theo sản phẩm
+     */
+    int rebuild();
+}
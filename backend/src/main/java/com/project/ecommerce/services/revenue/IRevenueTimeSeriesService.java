@@ -0,0 +1,23 @@
+package com.project.ecommerce.services.revenue;
+
+import com.project.ecommerce.responses.RevenueSeriesResponse;
+
+import java.time.LocalDate;
+
+public interface IRevenueTimeSeriesService {
+    /**
+     * Doanh thu theo kỳ (day|week|month) và theo nhóm (category|product|paymentMethod) trong [start, end];
+     * giữ top nhóm có doanh thu lớn nhất, phần còn lại gộp vào nhóm "Other"
+     */
+    RevenueSeriesResponse getSeries(LocalDate start, LocalDate end, String granularity, String groupBy, int top);
+
+    /**
+     * Cập nhật snapshot sau khi transaction đổi trạng thái đơn commit (đơn vào/ra delivered)
+     */
+    void onStatusChange(Long orderId, String fromStatus, String toStatus);
+
+    /**
+     * Nạp lại toàn bộ snapshot từ DB (chạy nền)
+     */
+    void reload();
+}
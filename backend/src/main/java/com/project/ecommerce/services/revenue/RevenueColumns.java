@@ -0,0 +1,286 @@
+package com.project.ecommerce.services.revenue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Các dòng đơn đã giao lưu dạng cột bằng mảng nguyên thuỷ: ngày (epoch day), khoá sản phẩm/danh mục/
+ * phương thức thanh toán (mã hoá qua từ điển thành số nguyên liên tiếp), số lượng và thành tiền.
+ * Đơn bị trả (ra khỏi delivered) được ghi thêm các dòng âm thay vì xoá dòng cũ.
+ * Chỉ một thread ghi (append/snapshot); request đọc qua Snapshot bất biến: mảng chỉ được ghi thêm
+ * phía sau size của snapshot đã phát hành, hết chỗ thì chép sang mảng mới.
+ */
+final class RevenueColumns {
+    private static final int INITIAL_CAPACITY = 1024;
+    // mỗi phần fork/join cộng ít nhất chừng này dòng
+    private static final int MIN_CHUNK = 1 << 16;
+    // tổng số ô của các Totals riêng của các phần (16 byte/ô): ~64 MB
+    private static final int MAX_PARTIAL_CELLS = 1 << 22;
+
+    enum GroupBy {
+        CATEGORY("category"), PRODUCT("product"), PAYMENT_METHOD("paymentMethod");
+
+        private final String param;
+
+        GroupBy(String param) {
+            this.param = param;
+        }
+
+        static GroupBy parse(String value) {
+            for (GroupBy groupBy : values()) {
+                if (groupBy.param.equalsIgnoreCase(value)) {
+                    return groupBy;
+                }
+            }
+            throw new IllegalArgumentException("groupBy must be one of category, product, paymentMethod");
+        }
+
+        String param() {
+            return param;
+        }
+    }
+
+    private int[] days = new int[INITIAL_CAPACITY];
+    private final int[][] keys = new int[GroupBy.values().length][INITIAL_CAPACITY];
+    private int[] quantities = new int[INITIAL_CAPACITY];
+    private double[] amounts = new double[INITIAL_CAPACITY];
+    private int size;
+    private int minDay = Integer.MAX_VALUE;
+    private int maxDay = Integer.MIN_VALUE;
+    private final Dictionary[] dictionaries = {new Dictionary(), new Dictionary(), new Dictionary()};
+    // đơn đang được tính là đã giao, để áp lại cùng một thay đổi trạng thái không bị cộng hai lần
+    private final BitSet deliveredOrders = new BitSet();
+
+    boolean isDelivered(long orderId) {
+        return deliveredOrders.get(Math.toIntExact(orderId));
+    }
+
+    void setDelivered(long orderId, boolean delivered) {
+        deliveredOrders.set(Math.toIntExact(orderId), delivered);
+    }
+
+    void append(int day, Long productId, String productName, Long categoryId, String categoryName,
+                String paymentMethod, int quantity, double amount) {
+        if (size == days.length) {
+            int capacity = size * 2;
+            days = Arrays.copyOf(days, capacity);
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = Arrays.copyOf(keys[i], capacity);
+            }
+            quantities = Arrays.copyOf(quantities, capacity);
+            amounts = Arrays.copyOf(amounts, capacity);
+        }
+        days[size] = day;
+        keys[GroupBy.PRODUCT.ordinal()][size] = dictionaries[GroupBy.PRODUCT.ordinal()].encode(productId, productName);
+        keys[GroupBy.CATEGORY.ordinal()][size] = dictionaries[GroupBy.CATEGORY.ordinal()].encode(categoryId, categoryName);
+        keys[GroupBy.PAYMENT_METHOD.ordinal()][size] =
+                dictionaries[GroupBy.PAYMENT_METHOD.ordinal()].encode(paymentMethod, paymentMethod);
+        quantities[size] = quantity;
+        amounts[size] = amount;
+        size++;
+        minDay = Math.min(minDay, day);
+        maxDay = Math.max(maxDay, day);
+    }
+
+    int size() {
+        return size;
+    }
+
+    Snapshot snapshot() {
+        int[][] keyColumns = keys.clone();
+        Object[][] ids = new Object[dictionaries.length][];
+        String[][] names = new String[dictionaries.length][];
+        int[] keyCounts = new int[dictionaries.length];
+        for (int i = 0; i < dictionaries.length; i++) {
+            ids[i] = dictionaries[i].ids;
+            names[i] = dictionaries[i].publishNames();
+            keyCounts[i] = dictionaries[i].count;
+        }
+        return new Snapshot(days, keyColumns, quantities, amounts, size, minDay, maxDay, ids, names, keyCounts);
+    }
+
+    //giá trị khoá (id sản phẩm/danh mục, chuỗi phương thức thanh toán) -> số nguyên 0..count-1
+    private static final class Dictionary {
+        private final Map<Object, Integer> index = new HashMap<>();
+        private Object[] ids = new Object[16];
+        private String[] names = new String[16];
+        private int count;
+        // names đang nằm trong một snapshot đã phát hành: đổi tên phải chép sang mảng mới
+        private boolean namesPublished;
+
+        String[] publishNames() {
+            namesPublished = true;
+            return names;
+        }
+
+        int encode(Object id, String name) {
+            Integer code = index.get(id);
+            if (code != null) {
+                if (!Objects.equals(names[code], name)) {
+                    // tên mới nhất (sản phẩm đổi tên)
+                    if (namesPublished) {
+                        names = names.clone();
+                        namesPublished = false;
+                    }
+                    names[code] = name;
+                }
+                return code;
+            }
+            if (count == ids.length) {
+                ids = Arrays.copyOf(ids, count * 2);
+                names = Arrays.copyOf(names, count * 2);
+                namesPublished = false;
+            }
+            ids[count] = id;
+            names[count] = name;
+            index.put(id, count);
+            return count++;
+        }
+    }
+
+    static final class Snapshot {
+        private final int[] days;
+        private final int[][] keys;
+        private final int[] quantities;
+        private final double[] amounts;
+        private final int size;
+        private final int minDay;
+        private final int maxDay;
+        private final Object[][] ids;
+        private final String[][] names;
+        private final int[] keyCounts;
+
+        private Snapshot(int[] days, int[][] keys, int[] quantities, double[] amounts, int size,
+                         int minDay, int maxDay, Object[][] ids, String[][] names, int[] keyCounts) {
+            this.days = days;
+            this.keys = keys;
+            this.quantities = quantities;
+            this.amounts = amounts;
+            this.size = size;
+            this.minDay = minDay;
+            this.maxDay = maxDay;
+            this.ids = ids;
+            this.names = names;
+            this.keyCounts = keyCounts;
+        }
+
+        int size() {
+            return size;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        int minDay() {
+            return minDay;
+        }
+
+        int maxDay() {
+            return maxDay;
+        }
+
+        int keyCount(GroupBy groupBy) {
+            return keyCounts[groupBy.ordinal()];
+        }
+
+        Object id(GroupBy groupBy, int key) {
+            return ids[groupBy.ordinal()][key];
+        }
+
+        String name(GroupBy groupBy, int key) {
+            return names[groupBy.ordinal()][key];
+        }
+
+        /**
+         * Cộng doanh thu/số lượng theo ô (kỳ, khoá) cho các dòng có ngày trong [fromDay, fromDay + bucketOfDay.length).
+         * bucketOfDay[d] là kỳ của ngày fromDay + d. Kết quả: mảng buckets * keyCount, ô = kỳ * keyCount + khoá.
+         * Các dòng chia thành tối đa một phần mỗi worker, mỗi phần cộng vào Totals riêng rồi gộp một lần;
+         * số phần còn bị giới hạn bởi MAX_PARTIAL_CELLS khi số ô lớn.
+         */
+        Totals aggregate(int fromDay, int[] bucketOfDay, int buckets, GroupBy groupBy, ForkJoinPool pool) {
+            int keyCount = keyCounts[groupBy.ordinal()];
+            int cells = buckets * keyCount;
+            int parts = Math.min(pool.getParallelism(), MAX_PARTIAL_CELLS / Math.max(1, cells));
+            parts = Math.max(1, Math.min(parts, size / MIN_CHUNK));
+            int[] keyColumn = keys[groupBy.ordinal()];
+            if (parts == 1) {
+                return new Sum(keyColumn, fromDay, bucketOfDay, cells, keyCount, 0, size).compute();
+            }
+            List<Sum> sums = new ArrayList<>(parts);
+            for (int part = 0; part < parts; part++) {
+                sums.add(new Sum(keyColumn, fromDay, bucketOfDay, cells, keyCount,
+                        (int) ((long) size * part / parts), (int) ((long) size * (part + 1) / parts)));
+            }
+            return pool.invoke(ForkJoinTask.adapt(() -> {
+                ForkJoinTask.invokeAll(sums);
+                Totals totals = sums.get(0).join();
+                for (int part = 1; part < sums.size(); part++) {
+                    totals.add(sums.get(part).join());
+                }
+                return totals;
+            }));
+        }
+
+        private final class Sum extends RecursiveTask<Totals> {
+            private final int[] keyColumn;
+            private final int fromDay;
+            private final int[] bucketOfDay;
+            private final int cells;
+            private final int keyCount;
+            private final int from;
+            private final int to;
+
+            Sum(int[] keyColumn, int fromDay, int[] bucketOfDay, int cells, int keyCount, int from, int to) {
+                this.keyColumn = keyColumn;
+                this.fromDay = fromDay;
+                this.bucketOfDay = bucketOfDay;
+                this.cells = cells;
+                this.keyCount = keyCount;
+                this.from = from;
+                this.to = to;
+            }
+
+            @Override
+            protected Totals compute() {
+                Totals totals = new Totals(cells);
+                int span = bucketOfDay.length;
+                for (int i = from; i < to; i++) {
+                    int offset = days[i] - fromDay;
+                    if (offset < 0 || offset >= span) {
+                        continue;
+                    }
+                    int cell = bucketOfDay[offset] * keyCount + keyColumn[i];
+                    totals.revenue[cell] += amounts[i];
+                    totals.quantity[cell] += quantities[i];
+                }
+                return totals;
+            }
+        }
+    }
+
+    static final class Totals {
+        final double[] revenue;
+        final long[] quantity;
+
+        Totals(int cells) {
+            this.revenue = new double[cells];
+            this.quantity = new long[cells];
+        }
+
+        void add(Totals other) {
+            for (int i = 0; i < revenue.length; i++) {
+                revenue[i] += other.revenue[i];
+                quantity[i] += other.quantity[i];
+            }
+        }
+    }
+}
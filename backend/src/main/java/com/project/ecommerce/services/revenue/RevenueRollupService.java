@@ -0,0 +1,182 @@
+package com.project.ecommerce.services.revenue;
+
+import com.project.ecommerce.models.OrderStatus;
+import com.project.ecommerce.responses.CategoryStatResponse;
+import com.project.ecommerce.responses.ProductStatResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Doanh thu tổng hợp theo ngày (ngày đặt hàng) trong revenue_daily_product / revenue_daily_category:
+ * - Đơn chuyển vào delivered thì cộng các dòng của đơn, chuyển ra (returned) thì trừ,
+ *   cùng transaction với lần đổi trạng thái nên không lệch với bảng orders
+ * - Báo cáo chỉ đọc bảng tổng hợp (mỗi sản phẩm/danh mục tối đa một dòng mỗi ngày),
+ *   không join lại order_details từ đầu
+ * - rebuild tính lại toàn bộ (backfill, đối soát hằng đêm); lúc khởi động tự chạy nếu bảng còn trống
+ */
+@Service
+public class RevenueRollupService implements IRevenueRollupService {
+    private static final Logger logger = LoggerFactory.getLogger(RevenueRollupService.class);
+
+    // doanh thu của một đơn (sign = 1) hoặc của mọi đơn đã giao, gom theo ngày + sản phẩm/danh mục
+    private static final String PRODUCT_LINES =
+            "SELECT CAST(o.order_date AS DATE), v.product_id, ? * SUM(d.number_of_products), " +
+            "? * SUM(d.price * d.number_of_products) " +
+            "FROM order_details d JOIN orders o ON o.id = d.order_id " +
+            "JOIN product_variants v ON v.id = d.variant_id " +
+            "WHERE o.order_date IS NOT NULL AND ";
+    private static final String CATEGORY_LINES =
+            "SELECT CAST(o.order_date AS DATE), COALESCE(p.category_id, 0), ? * SUM(d.number_of_products), " +
+            "? * SUM(d.price * d.number_of_products) " +
+            "FROM order_details d JOIN orders o ON o.id = d.order_id " +
+            "JOIN product_variants v ON v.id = d.variant_id JOIN products p ON p.id = v.product_id " +
+            "WHERE o.order_date IS NOT NULL AND ";
+    private static final String UPSERT_PRODUCT =
+            "INSERT INTO revenue_daily_product (day, product_id, quantity, revenue) " + PRODUCT_LINES +
+            "d.order_id = ? GROUP BY CAST(o.order_date AS DATE), v.product_id " +
+            "ON CONFLICT (day, product_id) DO UPDATE SET " +
+            "quantity = revenue_daily_product.quantity + EXCLUDED.quantity, " +
+            "revenue = revenue_daily_product.revenue + EXCLUDED.revenue";
+    private static final String UPSERT_CATEGORY =
+            "INSERT INTO revenue_daily_category (day, category_id, quantity, revenue) " + CATEGORY_LINES +
+            "d.order_id = ? GROUP BY CAST(o.order_date AS DATE), COALESCE(p.category_id, 0) " +
+            "ON CONFLICT (day, category_id) DO UPDATE SET " +
+            "quantity = revenue_daily_category.quantity + EXCLUDED.quantity, " +
+            "revenue = revenue_daily_category.revenue + EXCLUDED.revenue";
+    private static final String REBUILD_PRODUCT =
+            "INSERT INTO revenue_daily_product (day, product_id, quantity, revenue) " + PRODUCT_LINES +
+            "o.status = ? GROUP BY CAST(o.order_date AS DATE), v.product_id";
+    private static final String REBUILD_CATEGORY =
+            "INSERT INTO revenue_daily_category (day, category_id, quantity, revenue) " + CATEGORY_LINES +
+            "o.status = ? GROUP BY CAST(o.order_date AS DATE), COALESCE(p.category_id, 0)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public RevenueRollupService(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        try {
+            Boolean empty = jdbcTemplate.queryForObject(
+                    "SELECT NOT EXISTS (SELECT 1 FROM revenue_daily_product)", Boolean.class);
+            if (Boolean.TRUE.equals(empty)) {
+                logger.info("Revenue rollups are empty, backfilled {} rows", rebuild());
+            }
+        } catch (RuntimeException e) {
+            logger.error("Cannot backfill revenue rollups", e);
+        }
+    }
+
+    @Scheduled(cron = "${revenue.rebuild-cron:0 0 4 * * *}")
+    public void scheduledRebuild() {
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            logger.error("Cannot rebuild revenue rollups", e);
+        }
+    }
+
+    @Override
+    @Transactional
+    public void onStatusChange(Long orderId, String fromStatus, String toStatus) {
+        boolean wasDelivered = OrderStatus.DELIVERED.equals(fromStatus);
+        boolean isDelivered = OrderStatus.DELIVERED.equals(toStatus);
+        if (wasDelivered == isDelivered) {
+            return;
+        }
+        int sign = isDelivered ? 1 : -1;
+        jdbcTemplate.update(UPSERT_PRODUCT, sign, sign, orderId);
+        jdbcTemplate.update(UPSERT_CATEGORY, sign, sign, orderId);
+    }
+
+    @Override
+    public Page<ProductStatResponse> getProductStat(LocalDate start, LocalDate end, Pageable pageable) {
+        List<Object> params = new ArrayList<>();
+        String where = dayRange("r", start, end, params);
+        String grouped = "FROM revenue_daily_product r JOIN products p ON p.id = r.product_id " + where +
+                "GROUP BY r.product_id, p.name HAVING SUM(r.quantity) > 0 ";
+        Long total = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM (SELECT r.product_id " + grouped + ") t",
+                Long.class, params.toArray());
+
+        List<Object> pageParams = new ArrayList<>(params);
+        pageParams.add(pageable.getPageSize());
+        pageParams.add(pageable.getOffset());
+        List<ProductStatResponse> responses = jdbcTemplate.query(
+                "SELECT p.name, SUM(r.quantity), SUM(r.revenue) " + grouped +
+                "ORDER BY 3 DESC, r.product_id LIMIT ? OFFSET ?",
+                (rs, rowNum) -> ProductStatResponse.builder()
+                        .productName(rs.getString(1))
+                        .quantitySold(rs.getLong(2))
+                        .revenue(rs.getDouble(3))
+                        .build(),
+                pageParams.toArray());
+        return new PageImpl<>(responses, pageable, total == null ? 0 : total);
+    }
+
+    @Override
+    public List<CategoryStatResponse> getCategoryStat(LocalDate start, LocalDate end) {
+        List<Object> params = new ArrayList<>();
+        String where = dayRange("r", start, end, params);
+        return jdbcTemplate.query(
+                "SELECT r.category_id, c.name, SUM(r.quantity), SUM(r.revenue) " +
+                "FROM revenue_daily_category r LEFT JOIN categories c ON c.id = r.category_id " + where +
+                "GROUP BY r.category_id, c.name HAVING SUM(r.quantity) > 0 ORDER BY 4 DESC, r.category_id",
+                (rs, rowNum) -> CategoryStatResponse.builder()
+                        .categoryId(rs.getLong(1))
+                        .categoryName(rs.getString(2))
+                        .quantitySold(rs.getLong(3))
+                        .revenue(rs.getDouble(4))
+                        .build(),
+                params.toArray());
+    }
+
+    @Override
+    public int rebuild() {
+        long startedAt = System.currentTimeMillis();
+        Integer rows = transactionTemplate.execute(status -> {
+            // cập nhật tăng dần đồng thời chờ bản tính lại commit rồi mới cộng tiếp, không bị mất
+            jdbcTemplate.execute("LOCK TABLE revenue_daily_product, revenue_daily_category IN EXCLUSIVE MODE");
+            jdbcTemplate.update("DELETE FROM revenue_daily_product");
+            jdbcTemplate.update("DELETE FROM revenue_daily_category");
+            int inserted = jdbcTemplate.update(REBUILD_PRODUCT, 1, 1, OrderStatus.DELIVERED);
+            jdbcTemplate.update(REBUILD_CATEGORY, 1, 1, OrderStatus.DELIVERED);
+            return inserted;
+        });
+        logger.info("Rebuilt revenue rollups: {} product-day rows in {} ms",
+                rows, System.currentTimeMillis() - startedAt);
+        return rows == null ? 0 : rows;
+    }
+
+    //khoảng ngày [start, end] trên khoá chính (day, ...), bỏ điều kiện nào không truyền
+    private static String dayRange(String alias, LocalDate start, LocalDate end, List<Object> params) {
+        StringBuilder where = new StringBuilder("WHERE 1 = 1 ");
+        if (start != null) {
+            where.append("AND ").append(alias).append(".day >= ? ");
+            params.add(Date.valueOf(start));
+        }
+        if (end != null) {
+            where.append("AND ").append(alias).append(".day <= ? ");
+            params.add(Date.valueOf(end));
+        }
+        return where.toString();
+    }
+}
@@ -0,0 +1,286 @@
+package com.project.ecommerce.services.revenue;
+
+import com.project.ecommerce.models.OrderStatus;
+import com.project.ecommerce.responses.RevenueSeriesResponse;
+import com.project.ecommerce.utils.TransactionUtils;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Biểu đồ doanh thu theo thời gian phục vụ từ snapshot dạng cột trong bộ nhớ (RevenueColumns)
+ * của mọi dòng đơn đã giao, cộng song song trên ForkJoinPool, không query DB khi đọc.
+ * - Khởi động và mỗi đêm (revenue.timeseries.reload-cron) nạp lại toàn bộ
+ * - Đơn vào/ra delivered: sau commit đọc lại các dòng của riêng đơn đó và ghi thêm (dòng âm khi trả hàng)
+ * Mọi lần ghi chạy tuần tự trên một thread riêng. Thay đổi trạng thái trên server khác
+ * chỉ thấy sau lần nạp lại kế tiếp.
+ */
+@Service
+public class RevenueTimeSeriesService implements IRevenueTimeSeriesService {
+    private static final Logger logger = LoggerFactory.getLogger(RevenueTimeSeriesService.class);
+
+    private static final int FETCH_SIZE = 5000;
+    private static final int MAX_DAYS = 3660;
+    // giới hạn số ô (kỳ x nhóm) mỗi nhánh cộng giữ trong bộ nhớ
+    private static final long MAX_CELLS = 2_000_000;
+    private static final int MAX_TOP = 50;
+
+    private static final String SELECT_LINES =
+            "SELECT d.order_id, CAST(o.order_date AS DATE), v.product_id, p.name, " +
+            "COALESCE(p.category_id, 0), c.name, COALESCE(o.payment_method, ''), " +
+            "d.number_of_products, d.price * d.number_of_products, o.status " +
+            "FROM order_details d JOIN orders o ON o.id = d.order_id " +
+            "JOIN product_variants v ON v.id = d.variant_id JOIN products p ON p.id = v.product_id " +
+            "LEFT JOIN categories c ON c.id = p.category_id " +
+            "WHERE o.order_date IS NOT NULL AND ";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ForkJoinPool pool = ForkJoinPool.commonPool();
+
+    // chỉ thread của executor đọc/ghi
+    private RevenueColumns columns;
+    private volatile RevenueColumns.Snapshot snapshot;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "revenue-timeseries");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public RevenueTimeSeriesService(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        reload();
+    }
+
+    @Scheduled(cron = "${revenue.timeseries.reload-cron:0 30 4 * * *}")
+    public void scheduledReload() {
+        reload();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Override
+    public void reload() {
+        executor.execute(() -> {
+            long startedAt = System.currentTimeMillis();
+            try {
+                RevenueColumns fresh = load();
+                columns = fresh;
+                snapshot = fresh.snapshot();
+                logger.info("Revenue time series loaded {} order lines in {} ms",
+                        fresh.size(), System.currentTimeMillis() - startedAt);
+            } catch (DataAccessException e) {
+                logger.error("Cannot load revenue time series", e);
+            }
+        });
+    }
+
+    @Override
+    public void onStatusChange(Long orderId, String fromStatus, String toStatus) {
+        if (OrderStatus.DELIVERED.equals(fromStatus) == OrderStatus.DELIVERED.equals(toStatus)) {
+            return;
+        }
+        TransactionUtils.afterCommit(() -> executor.execute(() -> apply(orderId)));
+    }
+
+    @Override
+    public RevenueSeriesResponse getSeries(LocalDate start, LocalDate end, String granularity,
+                                           String groupBy, int top) {
+        Granularity unit = Granularity.parse(granularity);
+        RevenueColumns.GroupBy group = RevenueColumns.GroupBy.parse(groupBy);
+        if (top < 1 || top > MAX_TOP) {
+            throw new IllegalArgumentException("top must be between 1 and " + MAX_TOP);
+        }
+        RevenueColumns.Snapshot current = snapshot;
+        if (current == null) {
+            throw new IllegalStateException("Revenue time series is still loading");
+        }
+        if (current.isEmpty() && (start == null || end == null)) {
+            return emptySeries(unit, group);
+        }
+        LocalDate from = start != null ? start : LocalDate.ofEpochDay(current.minDay());
+        LocalDate to = end != null ? end : LocalDate.ofEpochDay(current.maxDay());
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("start must not be after end");
+        }
+        if (to.toEpochDay() - from.toEpochDay() >= MAX_DAYS) {
+            throw new IllegalArgumentException("Date range must be shorter than " + MAX_DAYS + " days");
+        }
+
+        // kỳ của từng ngày trong khoảng, kỳ đánh số tăng dần từ 0
+        int span = (int) (to.toEpochDay() - from.toEpochDay()) + 1;
+        int[] bucketOfDay = new int[span];
+        List<LocalDate> periods = new ArrayList<>();
+        for (int d = 0; d < span; d++) {
+            LocalDate period = unit.periodOf(from.plusDays(d));
+            if (periods.isEmpty() || !periods.get(periods.size() - 1).equals(period)) {
+                periods.add(period);
+            }
+            bucketOfDay[d] = periods.size() - 1;
+        }
+        int buckets = periods.size();
+        int keyCount = current.keyCount(group);
+        if ((long) buckets * keyCount > MAX_CELLS) {
+            throw new IllegalArgumentException("Too many " + group.param() + " series for this range, " +
+                    "use a coarser granularity or a shorter range");
+        }
+
+        RevenueColumns.Totals totals = current.aggregate((int) from.toEpochDay(), bucketOfDay, buckets, group, pool);
+
+        // tổng theo nhóm để chọn top, các nhóm còn lại cộng vào "Other"
+        double[] keyRevenue = new double[keyCount];
+        long[] keyQuantity = new long[keyCount];
+        for (int b = 0; b < buckets; b++) {
+            for (int k = 0; k < keyCount; k++) {
+                keyRevenue[k] += totals.revenue[b * keyCount + k];
+                keyQuantity[k] += totals.quantity[b * keyCount + k];
+            }
+        }
+        int[] ranked = IntStream.range(0, keyCount)
+                .filter(k -> keyQuantity[k] > 0)
+                .boxed()
+                .sorted(Comparator.comparingDouble((Integer k) -> keyRevenue[k]).reversed())
+                .mapToInt(Integer::intValue)
+                .toArray();
+
+        List<RevenueSeriesResponse.Series> series = new ArrayList<>();
+        for (int i = 0; i < Math.min(top, ranked.length); i++) {
+            int key = ranked[i];
+            double[] revenue = new double[buckets];
+            long[] quantity = new long[buckets];
+            for (int b = 0; b < buckets; b++) {
+                revenue[b] = totals.revenue[b * keyCount + key];
+                quantity[b] = totals.quantity[b * keyCount + key];
+            }
+            Object id = current.id(group, key);
+            series.add(new RevenueSeriesResponse.Series(id instanceof Long value ? value : null,
+                    current.name(group, key), revenue, quantity));
+        }
+        if (ranked.length > top) {
+            double[] revenue = new double[buckets];
+            long[] quantity = new long[buckets];
+            for (int i = top; i < ranked.length; i++) {
+                for (int b = 0; b < buckets; b++) {
+                    revenue[b] += totals.revenue[b * keyCount + ranked[i]];
+                    quantity[b] += totals.quantity[b * keyCount + ranked[i]];
+                }
+            }
+            series.add(new RevenueSeriesResponse.Series(null, "Other", revenue, quantity));
+        }
+
+        return RevenueSeriesResponse.builder()
+                .granularity(unit.name().toLowerCase())
+                .groupBy(group.param())
+                .periods(periods)
+                .series(series)
+                .build();
+    }
+
+    //đọc toàn bộ dòng đơn đã giao theo từng lô (cursor cần transaction trên PostgreSQL)
+    private RevenueColumns load() {
+        RevenueColumns fresh = new RevenueColumns();
+        JdbcTemplate streaming = new JdbcTemplate(jdbcTemplate.getDataSource());
+        streaming.setFetchSize(FETCH_SIZE);
+        transactionTemplate.executeWithoutResult(status ->
+                streaming.query(SELECT_LINES + "o.status = ?", rs -> {
+                    Line.of(rs).appendTo(fresh, 1);
+                    fresh.setDelivered(rs.getLong(1), true);
+                }, OrderStatus.DELIVERED));
+        return fresh;
+    }
+
+    //đưa snapshot về đúng trạng thái hiện tại của đơn, áp lại nhiều lần vẫn đúng
+    private void apply(Long orderId) {
+        if (columns == null) {
+            return; // lần nạp đầu chưa xong, sẽ đọc luôn trạng thái mới của đơn
+        }
+        try {
+            List<Line> lines = new ArrayList<>();
+            boolean[] delivered = {false};
+            jdbcTemplate.query(SELECT_LINES + "d.order_id = ?", rs -> {
+                delivered[0] = OrderStatus.DELIVERED.equals(rs.getString(10));
+                lines.add(Line.of(rs));
+            }, orderId);
+            if (lines.isEmpty() || columns.isDelivered(orderId) == delivered[0]) {
+                return;
+            }
+            int sign = delivered[0] ? 1 : -1;
+            for (Line line : lines) {
+                line.appendTo(columns, sign);
+            }
+            columns.setDelivered(orderId, delivered[0]);
+            snapshot = columns.snapshot();
+        } catch (DataAccessException e) {
+            logger.error("Cannot apply order {} to revenue time series", orderId, e);
+        }
+    }
+
+    private static RevenueSeriesResponse emptySeries(Granularity unit, RevenueColumns.GroupBy group) {
+        return RevenueSeriesResponse.builder()
+                .granularity(unit.name().toLowerCase())
+                .groupBy(group.param())
+                .periods(List.of())
+                .series(List.of())
+                .build();
+    }
+
+    private record Line(int day, long productId, String productName, long categoryId, String categoryName,
+                        String paymentMethod, int quantity, double amount) {
+        static Line of(ResultSet rs) throws SQLException {
+            return new Line((int) rs.getDate(2).toLocalDate().toEpochDay(), rs.getLong(3), rs.getString(4),
+                    rs.getLong(5), rs.getString(6), rs.getString(7), rs.getInt(8), rs.getDouble(9));
+        }
+
+        void appendTo(RevenueColumns target, int sign) {
+            target.append(day, productId, productName, categoryId, categoryName, paymentMethod,
+                    sign * quantity, sign * amount);
+        }
+    }
+
+    private enum Granularity {
+        DAY, WEEK, MONTH;
+
+        static Granularity parse(String value) {
+            return Arrays.stream(values())
+                    .filter(unit -> unit.name().equalsIgnoreCase(value))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalArgumentException("granularity must be one of day, week, month"));
+        }
+
+        LocalDate periodOf(LocalDate date) {
+            return switch (this) {
+                case DAY -> date;
+                case WEEK -> date.with(DayOfWeek.MONDAY);
+                case MONTH -> date.withDayOfMonth(1);
+            };
+        }
+    }
+}
@@ -4,8 +4,11 @@ import com.project.ecommerce.dtos.review.InsertReviewDTO;
 import com.project.ecommerce.dtos.review.UpdateReviewDTO;
 import com.project.ecommerce.models.Review;
 import com.project.ecommerce.responses.ReviewListResponse;
+import com.project.ecommerce.responses.ReviewStatsResponse;
+import com.project.ecommerce.utils.KeysetCursor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 
 import java.util.List;
 
@@ -15,11 +18,10 @@ public interface IReviewService {
     void deleteReview(Long reviewId, Long userId);
     Review getReviewById(Long reviewId);
     Page<Review> getReviewsByProductId(Long productId, Pageable pageable);
-    List<Review> getReviewsByUserId(Long userId);
+    Slice<Review> getReviewsByProductIdAfter(Long productId, KeysetCursor cursor, int limit);
+    Slice<Review> getReviewsByUserIdAfter(Long userId, KeysetCursor cursor, int limit);
     boolean hasUserReviewedProduct(Long userId, Long productId);
-    Double getAverageRatingByProductId(Long productId);
-    Long getReviewCountByProductId(Long productId);
-    List<Object[]> getRatingDistributionByProductId(Long productId);
+    ReviewStatsResponse getReviewStats(Long productId);
 }
 
 
@@ -0,0 +1,21 @@
+package com.project.ecommerce.services.review;
+
+import com.project.ecommerce.responses.ReviewStatsResponse;
+
+import java.util.Collection;
+import java.util.Map;
+
+public interface IReviewStatsService {
+    /**
+     * Bỏ một review removedRating và/hoặc thêm một review addedRating (null nếu không có),
+     * chạy trong transaction ghi review
+     */
+    void apply(Long productId, Integer removedRating, Integer addedRating);
+
+    ReviewStatsResponse getStats(Long productId);
+
+    /**
+     * Thống kê của nhiều sản phẩm trong một query; sản phẩm chưa có review vẫn có mặt với số liệu 0
+     */
+    Map<Long, ReviewStatsResponse> getStats(Collection<Long> productIds);
+}
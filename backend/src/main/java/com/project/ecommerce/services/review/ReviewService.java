@@ -10,12 +10,17 @@ import com.project.ecommerce.models.User;
 import com.project.ecommerce.repositories.ProductRepository;
 import com.project.ecommerce.repositories.ReviewRepository;
 import com.project.ecommerce.repositories.UserRepository;
+import com.project.ecommerce.responses.ReviewStatsResponse;
+import com.project.ecommerce.utils.KeysetCursor;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Service
@@ -25,6 +30,8 @@ public class ReviewService implements IReviewService {
     private final ReviewRepository reviewRepository;
     private final UserRepository userRepository;
     private final ProductRepository productRepository;
+    private final IReviewStatsService reviewStatsService;
+    private final ReviewStatsCache reviewStatsCache;
 
     @Override
     @Transactional
@@ -50,14 +57,17 @@ public class ReviewService implements IReviewService {
                 .comment(insertReviewDTO.getComment())
                 .build();
 
-        return reviewRepository.save(review);
+        Review savedReview = reviewRepository.save(review);
+        reviewStatsService.apply(product.getId(), null, savedReview.getRating());
+        reviewStatsCache.invalidate(product.getId());
+        return savedReview;
     }
 
     @Override
     @Transactional
     public Review updateReview(Long reviewId, UpdateReviewDTO updateReviewDTO, Long userId) {
-        // Tìm review
-        Review review = reviewRepository.findById(reviewId)
+        // Tìm review, khoá dòng để mức sao cũ đọc được không bị request khác sửa/xoá đồng thời
+        Review review = reviewRepository.findByIdForUpdate(reviewId)
                 .orElseThrow(() -> new DataNotFoundException("Review not found with id: " + reviewId));
 
         // Kiểm tra quyền sở hữu
@@ -65,7 +75,9 @@ public class ReviewService implements IReviewService {
             throw new InvalidParamException("You can only update your own reviews");
         }
 
-        // Cập nhật review
+        // Cập nhật review, thống kê đổi mức sao cũ sang mức mới
+        reviewStatsService.apply(review.getProduct().getId(), review.getRating(), updateReviewDTO.getRating());
+        reviewStatsCache.invalidate(review.getProduct().getId());
         review.setRating(updateReviewDTO.getRating());
         review.setComment(updateReviewDTO.getComment());
 
@@ -75,8 +87,8 @@ public class ReviewService implements IReviewService {
     @Override
     @Transactional
     public void deleteReview(Long reviewId, Long userId) {
-        // Tìm review
-        Review review = reviewRepository.findById(reviewId)
+        // Tìm review, khoá dòng để mức sao cũ đọc được không bị request khác sửa/xoá đồng thời
+        Review review = reviewRepository.findByIdForUpdate(reviewId)
                 .orElseThrow(() -> new DataNotFoundException("Review not found with id: " + reviewId));
 
         // Kiểm tra quyền sở hữu
@@ -85,6 +97,8 @@ public class ReviewService implements IReviewService {
         }
 
         reviewRepository.delete(review);
+        reviewStatsService.apply(review.getProduct().getId(), review.getRating(), null);
+        reviewStatsCache.invalidate(review.getProduct().getId());
     }
 
     @Override
@@ -104,28 +118,40 @@ public class ReviewService implements IReviewService {
     }
 
     @Override
-    public List<Review> getReviewsByUserId(Long userId) {
-        return reviewRepository.findByUserId(userId);
+    public Slice<Review> getReviewsByProductIdAfter(Long productId, KeysetCursor cursor, int limit) {
+        if (!productRepository.existsById(productId)) {
+            throw new DataNotFoundException("Product not found with id: " + productId);
+        }
+        // Trang đầu (cursor null): seek từ mốc lớn nhất
+        LocalDateTime createdAt = cursor == null ? KeysetCursor.MAX_CREATED_AT : createdAtOf(cursor);
+        long id = cursor == null ? Long.MAX_VALUE : cursor.getId();
+        return reviewRepository.findByProductIdAfter(productId, createdAt, id, PageRequest.of(0, limit));
     }
 
     @Override
-    public boolean hasUserReviewedProduct(Long userId, Long productId) {
-        return reviewRepository.existsByUserIdAndProductId(userId, productId);
+    public Slice<Review> getReviewsByUserIdAfter(Long userId, KeysetCursor cursor, int limit) {
+        // Trang đầu (cursor null): seek từ mốc lớn nhất
+        LocalDateTime createdAt = cursor == null ? KeysetCursor.MAX_CREATED_AT : createdAtOf(cursor);
+        long id = cursor == null ? Long.MAX_VALUE : cursor.getId();
+        return reviewRepository.findByUserIdAfter(userId, createdAt, id, PageRequest.of(0, limit));
     }
 
-    @Override
-    public Double getAverageRatingByProductId(Long productId) {
-        return reviewRepository.getAverageRatingByProductId(productId);
+    //cursor của review luôn có created_at; cursor chỉ có id (của danh sách khác) không được quay lại trang đầu
+    private static LocalDateTime createdAtOf(KeysetCursor cursor) {
+        if (cursor.getCreatedAt() == null) {
+            throw new IllegalArgumentException("Invalid cursor: missing created_at");
+        }
+        return cursor.getCreatedAt();
     }
 
     @Override
-    public Long getReviewCountByProductId(Long productId) {
-        return reviewRepository.countByProductId(productId);
+    public boolean hasUserReviewedProduct(Long userId, Long productId) {
+        return reviewRepository.existsByUserIdAndProductId(userId, productId);
     }
 
     @Override
-    public List<Object[]> getRatingDistributionByProductId(Long productId) {
-        return reviewRepository.getRatingDistributionByProductId(productId);
+    public ReviewStatsResponse getReviewStats(Long productId) {
+        return reviewStatsCache.get(productId);
     }
 }
 
@@ -0,0 +1,63 @@
+package com.project.ecommerce.services.review;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.project.ecommerce.components.GuardedCache;
+import com.project.ecommerce.responses.ReviewStatsResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.*;
+
+/**
+ * Cache thống kê đánh giá theo sản phẩm (tên cache "review_stats" trên actuator).
+ * Một trang sản phẩm chỉ đọc DB cho các id chưa có trong cache, gộp trong một query.
+ * ReviewService gọi invalidate(productId) khi thêm/sửa/xoá review; lần load chỉ bỏ kết quả
+ * của các sản phẩm bị invalidate trong lúc load (GuardedCache).
+ */
+@Component
+public class ReviewStatsCache {
+    private final GuardedCache<Long, ReviewStatsResponse> cache;
+    private final IReviewStatsService reviewStatsService;
+
+    public ReviewStatsCache(MeterRegistry meterRegistry,
+                            IReviewStatsService reviewStatsService,
+                            @Value("${cache.review-stats.max-size:50000}") long maxSize,
+                            @Value("${cache.review-stats.ttl-minutes:10}") long ttlMinutes) {
+        Cache<Long, ReviewStatsResponse> cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMinutes(ttlMinutes))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "review_stats");
+        this.cache = new GuardedCache<>(cache);
+        this.reviewStatsService = reviewStatsService;
+    }
+
+    public ReviewStatsResponse get(Long productId) {
+        return getAll(List.of(productId)).get(productId);
+    }
+
+    public Map<Long, ReviewStatsResponse> getAll(Collection<Long> productIds) {
+        Map<Long, ReviewStatsResponse> result = new HashMap<>(cache.getAllPresent(productIds));
+        List<Long> missing = productIds.stream()
+                .filter(id -> !result.containsKey(id))
+                .distinct()
+                .toList();
+        if (missing.isEmpty()) {
+            return result;
+        }
+        result.putAll(cache.loadAll(missing, reviewStatsService::getStats));
+        return result;
+    }
+
+    /**
+     * Xoá ngay và xoá lại sau khi transaction commit (xem GuardedCache.invalidate)
+     */
+    public void invalidate(Long productId) {
+        cache.invalidate(productId);
+    }
+}
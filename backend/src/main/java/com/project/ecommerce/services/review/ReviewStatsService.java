@@ -0,0 +1,128 @@
+package com.project.ecommerce.services.review;
+
+import com.project.ecommerce.responses.ReviewStatsResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.*;
+
+/**
+ * Thống kê đánh giá tính sẵn trong product_review_stats (add_product_review_stats.sql):
+ * mỗi lần ghi review cộng/trừ vào dòng của sản phẩm bằng một câu upsert,
+ * đọc chỉ là tra theo khoá chính thay vì AVG/COUNT/GROUP BY trên bảng reviews.
+ */
+@Service
+@RequiredArgsConstructor
+public class ReviewStatsService implements IReviewStatsService {
+    private static final int MAX_RATING = 5;
+    private static final String COLUMNS =
+            "product_id, review_count, rating_sum, rating_1, rating_2, rating_3, rating_4, rating_5";
+    private static final String UPSERT =
+            "INSERT INTO product_review_stats (" + COLUMNS + ", updated_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, NOW()) " +
+            "ON CONFLICT (product_id) DO UPDATE SET " +
+            "review_count = product_review_stats.review_count + EXCLUDED.review_count, " +
+            "rating_sum = product_review_stats.rating_sum + EXCLUDED.rating_sum, " +
+            "rating_1 = product_review_stats.rating_1 + EXCLUDED.rating_1, " +
+            "rating_2 = product_review_stats.rating_2 + EXCLUDED.rating_2, " +
+            "rating_3 = product_review_stats.rating_3 + EXCLUDED.rating_3, " +
+            "rating_4 = product_review_stats.rating_4 + EXCLUDED.rating_4, " +
+            "rating_5 = product_review_stats.rating_5 + EXCLUDED.rating_5, " +
+            "updated_at = NOW()";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    @Transactional
+    public void apply(Long productId, Integer removedRating, Integer addedRating) {
+        if (Objects.equals(removedRating, addedRating)) {
+            return;
+        }
+        long[] buckets = new long[MAX_RATING];
+        int count = 0;
+        long sum = 0;
+        if (removedRating != null) {
+            buckets[bucket(removedRating)]--;
+            count--;
+            sum -= removedRating;
+        }
+        if (addedRating != null) {
+            buckets[bucket(addedRating)]++;
+            count++;
+            sum += addedRating;
+        }
+        jdbcTemplate.update(UPSERT, productId, count, sum,
+                buckets[0], buckets[1], buckets[2], buckets[3], buckets[4]);
+    }
+
+    @Override
+    public ReviewStatsResponse getStats(Long productId) {
+        List<ReviewStatsResponse> rows = jdbcTemplate.query(
+                "SELECT " + COLUMNS + " FROM product_review_stats WHERE product_id = ?",
+                (rs, rowNum) -> toResponse(rs), productId);
+        return rows.isEmpty() ? empty(productId) : rows.get(0);
+    }
+
+    @Override
+    public Map<Long, ReviewStatsResponse> getStats(Collection<Long> productIds) {
+        Map<Long, ReviewStatsResponse> statsById = new HashMap<>();
+        if (productIds.isEmpty()) {
+            return statsById;
+        }
+        Long[] ids = productIds.stream().distinct().toArray(Long[]::new);
+        jdbcTemplate.query(
+                con -> {
+                    PreparedStatement ps = con.prepareStatement(
+                            "SELECT " + COLUMNS + " FROM product_review_stats WHERE product_id = ANY(?)");
+                    ps.setArray(1, con.createArrayOf("bigint", ids));
+                    return ps;
+                },
+                rs -> {
+                    ReviewStatsResponse stats = toResponse(rs);
+                    statsById.put(stats.getProductId(), stats);
+                });
+        for (Long id : ids) {
+            statsById.computeIfAbsent(id, ReviewStatsService::empty);
+        }
+        return statsById;
+    }
+
+    private static int bucket(int rating) {
+        if (rating < 1 || rating > MAX_RATING) {
+            throw new IllegalArgumentException("Rating must be between 1 and " + MAX_RATING);
+        }
+        return rating - 1;
+    }
+
+    private static ReviewStatsResponse toResponse(ResultSet rs) throws SQLException {
+        long count = rs.getLong("review_count");
+        List<ReviewStatsResponse.RatingCount> distribution = new ArrayList<>(MAX_RATING);
+        for (int rating = 1; rating <= MAX_RATING; rating++) {
+            distribution.add(new ReviewStatsResponse.RatingCount(rating, rs.getLong("rating_" + rating)));
+        }
+        return ReviewStatsResponse.builder()
+                .productId(rs.getLong("product_id"))
+                .reviewCount(count)
+                .averageRating(count > 0 ? (double) rs.getLong("rating_sum") / count : 0.0)
+                .ratingDistribution(distribution)
+                .build();
+    }
+
+    private static ReviewStatsResponse empty(Long productId) {
+        List<ReviewStatsResponse.RatingCount> distribution = new ArrayList<>(MAX_RATING);
+        for (int rating = 1; rating <= MAX_RATING; rating++) {
+            distribution.add(new ReviewStatsResponse.RatingCount(rating, 0L));
+        }
+        return ReviewStatsResponse.builder()
+                .productId(productId)
+                .reviewCount(0L)
+                .averageRating(0.0)
+                .ratingDistribution(distribution)
+                .build();
+    }
+}
@@ -0,0 +1,275 @@
+package com.project.ecommerce.services.stock;
+
+import com.project.ecommerce.services.product.ProductDetailCache;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tồn kho trong bộ nhớ cho các biến thể hot (product_variants.hot = true, vd flash sale):
+ * - Server lấy trước từng khối hàng từ DB bằng UPDATE có điều kiện (lease),
+ *   checkout chỉ trừ trên StripedStock, không khoá dòng product_variants
+ * - DB luôn trừ trước khi bộ nhớ có hàng nên nhiều server chạy cùng lúc cũng không bán âm kho
+ * - Lease chạy trên thread nền với connection riêng, không bao giờ trong transaction của đơn hàng:
+ *   pool thiếu hàng thì checkout trừ thẳng trên DB lần đó (MISS) trong lúc thread nền lease thêm,
+ *   nên checkout không giữ connection để chờ một connection thứ hai
+ * - Phần hàng chưa bán được ghi trả về DB (write-behind) khi biến thể không còn ai mua,
+ *   khi bỏ cờ hot và khi tắt server. Server chết đột ngột thì phần đang giữ bị thiếu
+ *   trong DB (bán thiếu, không bán vượt), cần kiểm kê lại.
+ */
+@Component
+public class HotStockPool {
+    private static final Logger logger = LoggerFactory.getLogger(HotStockPool.class);
+
+    public enum Take {
+        TAKEN,
+        // pool chưa đủ hàng, đã yêu cầu lease thêm ở nền: lần này trừ thẳng trên DB
+        MISS,
+        // không phải biến thể hot: trừ thẳng trên DB
+        NOT_HOT
+    }
+
+    //khoá dòng trước để biết số lượng cũ, lấy tối đa ? nhưng không quá số còn lại
+    private static final String LEASE =
+            "WITH locked AS (SELECT id, quantity FROM product_variants WHERE id = ? AND quantity > 0 FOR UPDATE) " +
+            "UPDATE product_variants v SET quantity = v.quantity - LEAST(locked.quantity, ?) " +
+            "FROM locked WHERE v.id = locked.id " +
+            "RETURNING LEAST(locked.quantity, ?) AS leased, v.product_id";
+    private static final String RETURN =
+            "UPDATE product_variants SET quantity = quantity + ? WHERE id = ? RETURNING product_id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate leaseTransaction;
+    private final ProductDetailCache productDetailCache;
+    private final int stripes;
+    private final int leaseBlock;
+    private final long idleNanos;
+    private final Map<Long, StripedStock> stocks = new ConcurrentHashMap<>();
+    // biến thể đang có lease chạy ở nền, mỗi biến thể tối đa một lease
+    private final Set<Long> leasing = ConcurrentHashMap.newKeySet();
+    private final ExecutorService leaseExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "hot-stock-lease");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public HotStockPool(JdbcTemplate jdbcTemplate,
+                        PlatformTransactionManager transactionManager,
+                        ProductDetailCache productDetailCache,
+                        @Value("${stock.hot.stripes:8}") int stripes,
+                        @Value("${stock.hot.lease-block:50}") int leaseBlock,
+                        @Value("${stock.hot.idle-seconds:60}") long idleSeconds) {
+        this.jdbcTemplate = jdbcTemplate;
+        // lease/trả hàng commit riêng, không phụ thuộc đơn hàng nào có rollback hay không
+        this.leaseTransaction = new TransactionTemplate(transactionManager);
+        this.leaseTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.productDetailCache = productDetailCache;
+        this.stripes = stripes;
+        this.leaseBlock = leaseBlock;
+        this.idleNanos = TimeUnit.SECONDS.toNanos(idleSeconds);
+    }
+
+    public boolean isHot(Long variantId) {
+        return stocks.containsKey(variantId);
+    }
+
+    public Take take(Long variantId, int quantity) {
+        StripedStock stock = stocks.get(variantId);
+        if (stock == null) {
+            return Take.NOT_HOT;
+        }
+        if (stock.tryTake(quantity)) {
+            return Take.TAKEN;
+        }
+        // hàng bị chia nhỏ giữa các stripe: gom lại, không đụng DB khi đang giữ khoá
+        synchronized (stock) {
+            if (stock.isRetired()) {
+                return Take.NOT_HOT;
+            }
+            if (stock.tryTake(quantity)) {
+                return Take.TAKEN;
+            }
+            int available = stock.drain();
+            if (available >= quantity) {
+                stock.add(available - quantity);
+                return Take.TAKEN;
+            }
+            stock.add(available);
+        }
+        requestLease(variantId, stock, Math.max(leaseBlock, quantity));
+        return Take.MISS;
+    }
+
+    /**
+     * Trả hàng đã lấy bằng take (huỷ đơn, rollback); biến thể đã bị loại khỏi pool thì trả thẳng về DB
+     */
+    public void give(Long variantId, int quantity) {
+        StripedStock stock = stocks.get(variantId);
+        if (stock != null) {
+            synchronized (stock) {
+                if (!stock.isRetired()) {
+                    stock.add(quantity);
+                    return;
+                }
+            }
+        }
+        // thường được gọi lúc transaction của đơn đang kết thúc: ghi DB ở thread nền
+        try {
+            leaseExecutor.execute(() -> returnQuietly(variantId, quantity));
+        } catch (RejectedExecutionException e) {
+            returnQuietly(variantId, quantity);
+        }
+    }
+
+    //đồng bộ danh sách biến thể hot với DB: thêm biến thể mới, trả hàng của biến thể bị bỏ cờ
+    @Scheduled(fixedDelayString = "${stock.hot.refresh-interval-ms:60000}")
+    public void refresh() {
+        try {
+            Set<Long> hot = new HashSet<>(jdbcTemplate.queryForList(
+                    "SELECT id FROM product_variants WHERE hot", Long.class));
+            for (Long variantId : hot) {
+                stocks.computeIfAbsent(variantId, id -> new StripedStock(stripes));
+            }
+            for (Long variantId : List.copyOf(stocks.keySet())) {
+                if (!hot.contains(variantId)) {
+                    retire(variantId);
+                }
+            }
+        } catch (RuntimeException e) {
+            logger.error("Cannot refresh hot variants", e);
+        }
+    }
+
+    //write-behind: biến thể không ai mua trong idle-seconds thì trả phần còn giữ về DB
+    @Scheduled(fixedDelayString = "${stock.hot.flush-interval-ms:10000}")
+    public void flushIdle() {
+        long now = System.nanoTime();
+        stocks.forEach((variantId, stock) -> {
+            if (stock.available() == 0 || !stock.idleFor(idleNanos, now)) {
+                return;
+            }
+            int available;
+            synchronized (stock) {
+                available = stock.drain();
+            }
+            try {
+                returnToDatabase(variantId, available);
+            } catch (RuntimeException e) {
+                logger.warn("Cannot flush hot stock of variant {}: {}", variantId, e.getMessage());
+                give(variantId, available);
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // chờ lease đang chạy xong trước khi trả hàng về DB
+        leaseExecutor.shutdown();
+        try {
+            leaseExecutor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (Long variantId : List.copyOf(stocks.keySet())) {
+            try {
+                retire(variantId);
+            } catch (RuntimeException e) {
+                logger.error("Cannot return hot stock of variant {}", variantId, e);
+            }
+        }
+    }
+
+    private void retire(Long variantId) {
+        StripedStock stock = stocks.remove(variantId);
+        if (stock == null) {
+            return;
+        }
+        int available;
+        synchronized (stock) {
+            stock.retire();
+            available = stock.drain();
+        }
+        returnToDatabase(variantId, available);
+    }
+
+    private void requestLease(Long variantId, StripedStock stock, int quantity) {
+        if (!leasing.add(variantId)) {
+            return;
+        }
+        try {
+            leaseExecutor.execute(() -> {
+                try {
+                    leaseInto(variantId, stock, quantity);
+                } catch (RuntimeException e) {
+                    logger.warn("Cannot lease hot stock of variant {}: {}", variantId, e.getMessage());
+                } finally {
+                    leasing.remove(variantId);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            leasing.remove(variantId); // đang tắt server
+        }
+    }
+
+    private void leaseInto(Long variantId, StripedStock stock, int quantity) {
+        int leased = lease(variantId, quantity);
+        if (leased == 0) {
+            return;
+        }
+        synchronized (stock) {
+            if (!stock.isRetired()) {
+                stock.add(leased);
+                return;
+            }
+        }
+        // biến thể bị loại khỏi pool trong lúc lease
+        returnToDatabase(variantId, leased);
+    }
+
+    private void returnQuietly(Long variantId, int quantity) {
+        try {
+            returnToDatabase(variantId, quantity);
+        } catch (RuntimeException e) {
+            logger.error("Cannot return {} units of variant {}", quantity, variantId, e);
+        }
+    }
+
+    private int lease(Long variantId, int quantity) {
+        List<long[]> leased = leaseTransaction.execute(status -> jdbcTemplate.query(LEASE,
+                (rs, rowNum) -> new long[]{rs.getLong("leased"), rs.getLong("product_id")},
+                variantId, quantity, quantity));
+        if (leased == null || leased.isEmpty()) {
+            return 0;
+        }
+        productDetailCache.invalidate(leased.get(0)[1]);
+        return (int) leased.get(0)[0];
+    }
+
+    private void returnToDatabase(Long variantId, int quantity) {
+        if (quantity <= 0) {
+            return;
+        }
+        List<Long> productIds = leaseTransaction.execute(status -> jdbcTemplate.queryForList(
+                RETURN, Long.class, quantity, variantId));
+        if (productIds != null && !productIds.isEmpty()) {
+            productDetailCache.invalidate(productIds.get(0));
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.project.ecommerce.services.stock;
+
+import com.project.ecommerce.models.Order;
+import com.project.ecommerce.models.OrderDetail;
+
+import java.util.List;
+
+public interface IStockReservationService {
+    /**
+     * Trừ kho cho các dòng của đơn mới, chạy trong transaction tạo đơn.
+     * Không đủ hàng thì ném IllegalArgumentException (rollback cả đơn).
+     * Đơn thanh toán online chỉ giữ hàng trong thời hạn thanh toán.
+     */
+    void reserve(Order order, List<OrderDetail> orderDetails);
+
+    /**
+     * Đơn đã thanh toán/được xử lý: hàng đang giữ không còn hết hạn
+     */
+    void confirm(Long orderId);
+
+    /**
+     * Huỷ đơn: trả lại hàng đã trừ
+     */
+    void release(Long orderId);
+
+    /**
+     * Huỷ các đơn quá hạn thanh toán và trả hàng, trả về số đơn đã huỷ
+     */
+    int releaseExpired();
+}
@@ -0,0 +1,200 @@
+package com.project.ecommerce.services.stock;
+
+import com.project.ecommerce.models.Order;
+import com.project.ecommerce.models.OrderDetail;
+import com.project.ecommerce.models.OrderStatus;
+import com.project.ecommerce.models.ProductVariant;
+import com.project.ecommerce.services.product.ProductDetailCache;
+import com.project.ecommerce.utils.TransactionUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+
+/**
+ * Giữ hàng khi đặt đơn:
+ * - Biến thể thường: UPDATE có điều kiện quantity >= số lượng, DB tự chặn bán vượt,
+ *   các dòng được trừ theo id tăng dần để hai đơn cùng biến thể không deadlock
+ * - Biến thể hot: lấy từ HotStockPool, rollback đơn thì trả lại pool;
+ *   pool không đủ hàng thì trừ thẳng trên DB như biến thể thường
+ * - Mỗi dòng ghi một stock_reservations; đơn VNPay ở trạng thái reserved đến khi thanh toán,
+ *   quá payment-ttl-minutes thì job nền huỷ đơn và trả hàng
+ */
+@Service
+public class StockReservationService implements IStockReservationService {
+    private static final Logger logger = LoggerFactory.getLogger(StockReservationService.class);
+
+    static final String RESERVED = "reserved";
+    static final String COMMITTED = "committed";
+    static final String RELEASED = "released";
+    private static final String PAYMENT_ONLINE = "vnpay";
+
+    private static final String RESERVE =
+            "UPDATE product_variants SET quantity = quantity - ? WHERE id = ? AND quantity >= ?";
+    private static final String RESTOCK =
+            "UPDATE product_variants SET quantity = quantity + ? WHERE id = ? RETURNING product_id";
+    private static final String INSERT_RESERVATION =
+            "INSERT INTO stock_reservations (order_id, variant_id, quantity, hot, status, expires_at) " +
+            "VALUES (?, ?, ?, ?, ?, NOW() + CAST(? AS INTEGER) * INTERVAL '1 minute')";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final HotStockPool hotStockPool;
+    private final ProductDetailCache productDetailCache;
+    private final int paymentTtlMinutes;
+
+    private record Reservation(Long variantId, int quantity, boolean hot) {
+    }
+
+    public StockReservationService(JdbcTemplate jdbcTemplate,
+                                   TransactionTemplate transactionTemplate,
+                                   HotStockPool hotStockPool,
+                                   ProductDetailCache productDetailCache,
+                                   @Value("${stock.reservation.payment-ttl-minutes:20}") int paymentTtlMinutes) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.hotStockPool = hotStockPool;
+        this.productDetailCache = productDetailCache;
+        this.paymentTtlMinutes = paymentTtlMinutes;
+    }
+
+    @Override
+    @Transactional
+    public void reserve(Order order, List<OrderDetail> orderDetails) {
+        //gộp số lượng theo biến thể, TreeMap giữ thứ tự id tăng dần
+        Map<Long, Integer> quantities = new TreeMap<>();
+        Map<Long, Long> productIds = new HashMap<>();
+        for (OrderDetail orderDetail : orderDetails) {
+            ProductVariant variant = orderDetail.getProductVariant();
+            if (orderDetail.getNumberOfProducts() <= 0) {
+                throw new IllegalArgumentException("Quantity must be greater than 0");
+            }
+            quantities.merge(variant.getId(), orderDetail.getNumberOfProducts(), Integer::sum);
+            productIds.put(variant.getId(), variant.getProduct().getId());
+        }
+
+        boolean awaitingPayment = PAYMENT_ONLINE.equalsIgnoreCase(order.getPaymentMethod());
+        String status = awaitingPayment ? RESERVED : COMMITTED;
+        //hạn tính theo giờ DB, cùng mốc với NOW() của job hết hạn
+        Integer ttlMinutes = awaitingPayment ? paymentTtlMinutes : null;
+        List<Object[]> reservations = new ArrayList<>(quantities.size());
+        for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+            Long variantId = entry.getKey();
+            int quantity = entry.getValue();
+            HotStockPool.Take take = hotStockPool.take(variantId, quantity);
+            boolean hot = take == HotStockPool.Take.TAKEN;
+            if (hot) {
+                // pool nằm ngoài transaction: đơn rollback (kể cả do dòng sau hết hàng) thì trả lại
+                TransactionUtils.afterRollback(() -> hotStockPool.give(variantId, quantity));
+            } else if (jdbcTemplate.update(RESERVE, quantity, variantId, quantity) == 0) {
+                throw new IllegalArgumentException("Not enough stock for variant with id: " + variantId);
+            } else {
+                productDetailCache.invalidate(productIds.get(variantId));
+            }
+            reservations.add(new Object[]{order.getId(), variantId, quantity, hot, status, ttlMinutes});
+        }
+        jdbcTemplate.batchUpdate(INSERT_RESERVATION, reservations);
+    }
+
+    @Override
+    @Transactional
+    public void confirm(Long orderId) {
+        int confirmed = jdbcTemplate.update("UPDATE stock_reservations SET status = ?, expires_at = NULL " +
+                "WHERE order_id = ? AND status = ?", COMMITTED, orderId, RESERVED);
+        if (confirmed == 0 && hasReleased(orderId)) {
+            // job hết hạn vừa huỷ đơn sau khi đơn được đọc ra
+            throw new IllegalArgumentException("Order payment has expired, order was cancelled");
+        }
+    }
+
+    @Override
+    @Transactional
+    public void release(Long orderId) {
+        restock(orderId, lockReservations(orderId, false));
+    }
+
+    @Scheduled(fixedDelayString = "${stock.reservation.expire-interval-ms:60000}")
+    public void scheduledReleaseExpired() {
+        try {
+            int cancelled = releaseExpired();
+            if (cancelled > 0) {
+                logger.info("Cancelled {} orders with expired payment", cancelled);
+            }
+        } catch (RuntimeException e) {
+            logger.error("Cannot release expired stock reservations", e);
+        }
+    }
+
+    @Override
+    public int releaseExpired() {
+        List<Long> orderIds = jdbcTemplate.queryForList("SELECT DISTINCT order_id FROM stock_reservations " +
+                "WHERE status = ? AND expires_at < NOW() LIMIT 500", Long.class, RESERVED);
+        int cancelled = 0;
+        for (Long orderId : orderIds) {
+            // mỗi đơn một transaction: một đơn lỗi không chặn các đơn khác
+            try {
+                Boolean expired = transactionTemplate.execute(status -> {
+                    List<Reservation> reservations = lockReservations(orderId, true);
+                    if (reservations.isEmpty()) {
+                        return false; // vừa thanh toán xong
+                    }
+                    jdbcTemplate.update("UPDATE orders SET status = ? WHERE id = ? AND status = ?",
+                            OrderStatus.CANCELLED, orderId, OrderStatus.PENDING);
+                    restock(orderId, reservations);
+                    return true;
+                });
+                if (Boolean.TRUE.equals(expired)) {
+                    cancelled++;
+                }
+            } catch (RuntimeException e) {
+                logger.error("Cannot release expired reservations of order {}", orderId, e);
+            }
+        }
+        return cancelled;
+    }
+
+    //khoá các reservation còn hiệu lực của đơn, theo variant_id tăng dần như lúc trừ kho
+    private List<Reservation> lockReservations(Long orderId, boolean expiredOnly) {
+        String sql = expiredOnly
+                ? "SELECT variant_id, quantity, hot FROM stock_reservations " +
+                  "WHERE order_id = ? AND status = ? AND expires_at < NOW() ORDER BY variant_id FOR UPDATE"
+                : "SELECT variant_id, quantity, hot FROM stock_reservations " +
+                  "WHERE order_id = ? AND status IN (?, ?) ORDER BY variant_id FOR UPDATE";
+        Object[] args = expiredOnly
+                ? new Object[]{orderId, RESERVED}
+                : new Object[]{orderId, RESERVED, COMMITTED};
+        return jdbcTemplate.query(sql, (rs, rowNum) -> new Reservation(
+                rs.getLong("variant_id"), rs.getInt("quantity"), rs.getBoolean("hot")), args);
+    }
+
+    private void restock(Long orderId, List<Reservation> reservations) {
+        if (reservations.isEmpty()) {
+            return; // đơn tạo trước khi có giữ hàng, hoặc đã trả rồi
+        }
+        jdbcTemplate.update("UPDATE stock_reservations SET status = ? WHERE order_id = ? AND status IN (?, ?)",
+                RELEASED, orderId, RESERVED, COMMITTED);
+        for (Reservation reservation : reservations) {
+            if (reservation.hot()) {
+                TransactionUtils.afterCommit(() -> hotStockPool.give(reservation.variantId(), reservation.quantity()));
+                continue;
+            }
+            List<Long> productIds = jdbcTemplate.queryForList(RESTOCK, Long.class,
+                    reservation.quantity(), reservation.variantId());
+            if (!productIds.isEmpty()) {
+                productDetailCache.invalidate(productIds.get(0));
+            }
+        }
+    }
+
+    private boolean hasReleased(Long orderId) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM stock_reservations WHERE order_id = ? AND status = ?)",
+                Boolean.class, orderId, RELEASED));
+    }
+}
@@ -0,0 +1,96 @@
+package com.project.ecommerce.services.stock;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Bộ đếm tồn kho chia thành nhiều stripe: các checkout đồng thời CAS trên các stripe khác nhau
+ * thay vì tranh nhau một biến. Hàng chỉ được chuyển giữa các stripe chứ không bao giờ được nhân bản,
+ * nên tổng đã lấy không vượt quá tổng đã nạp vào.
+ * Dùng cho HotStockPool và lượt dùng mã giảm giá của HotCouponPool.
+ */
+public final class StripedStock {
+    // mỗi stripe cách nhau 16 int (64 byte) để không nằm chung cache line
+    private static final int PADDING = 16;
+
+    private final int stripes;
+    private final AtomicIntegerArray cells;
+    // đã bị loại khỏi pool (biến thể hết hot / tắt server): không nhận thêm hàng
+    private boolean retired;
+    // chỉ thread flush đọc/ghi: tổng lần quét trước và thời điểm tổng bắt đầu không đổi
+    private int lastObserved = -1;
+    private long unchangedSince;
+
+    public StripedStock(int stripes) {
+        this.stripes = stripes;
+        this.cells = new AtomicIntegerArray(stripes * PADDING);
+    }
+
+    /**
+     * Lấy quantity từ một stripe đủ hàng, bắt đầu từ stripe ngẫu nhiên.
+     * false khi không stripe nào đủ (dù tổng có thể đủ, xem drain)
+     */
+    public boolean tryTake(int quantity) {
+        int start = ThreadLocalRandom.current().nextInt(stripes);
+        for (int i = 0; i < stripes; i++) {
+            int index = ((start + i) % stripes) * PADDING;
+            int available;
+            while ((available = cells.get(index)) >= quantity) {
+                if (cells.compareAndSet(index, available, available - quantity)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    //chia đều hàng nạp vào các stripe
+    public void add(int quantity) {
+        int share = quantity / stripes;
+        int remainder = quantity % stripes;
+        for (int i = 0; i < stripes; i++) {
+            int amount = share + (i < remainder ? 1 : 0);
+            if (amount > 0) {
+                cells.addAndGet(i * PADDING, amount);
+            }
+        }
+    }
+
+    //lấy hết hàng của mọi stripe ra, trả về tổng
+    public int drain() {
+        int total = 0;
+        for (int i = 0; i < stripes; i++) {
+            total += cells.getAndSet(i * PADDING, 0);
+        }
+        return total;
+    }
+
+    public int available() {
+        int total = 0;
+        for (int i = 0; i < stripes; i++) {
+            total += cells.get(i * PADDING);
+        }
+        return total;
+    }
+
+    public boolean isRetired() {
+        return retired;
+    }
+
+    public void retire() {
+        retired = true;
+    }
+
+    /**
+     * Gọi định kỳ từ thread flush: true nếu tổng không đổi (không ai mua) từ ít nhất idleNanos
+     */
+    public boolean idleFor(long idleNanos, long now) {
+        int current = available();
+        if (current != lastObserved) {
+            lastObserved = current;
+            unchangedSince = now;
+            return false;
+        }
+        return now - unchangedSince >= idleNanos;
+    }
+}
@@ -5,8 +5,10 @@ import com.project.ecommerce.dtos.user.UpdateUserDTO;
 import com.project.ecommerce.dtos.user.UserDTO;
 import com.project.ecommerce.models.User;
 import com.project.ecommerce.responses.UserResponse;
+import com.project.ecommerce.utils.KeysetCursor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 
 public interface IUserService {
     User createUser(UserDTO userDTO) ;
@@ -14,5 +16,6 @@ public interface IUserService {
     User getUserDetailsFromToken(String token) throws Exception;
     User updateUser(Long userId, UpdateUserDTO updatedUserDTO);
     Page<UserResponse> findAll(String keyword, Pageable pageable);
+    Slice<UserResponse> findAllAfter(String keyword, KeysetCursor cursor, int limit);
     void changePassword(Long userId, ChangePasswordRequestDTO requestDTO);
 }
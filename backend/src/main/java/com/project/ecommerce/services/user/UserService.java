@@ -1,6 +1,7 @@
 package com.project.ecommerce.services.user;
 
 import com.project.ecommerce.components.JwtTokenUtils;
+import com.project.ecommerce.configurations.SearchConfig;
 import com.project.ecommerce.dtos.user.ChangePasswordRequestDTO;
 import com.project.ecommerce.dtos.user.UpdateUserDTO;
 import com.project.ecommerce.dtos.user.UserDTO;
@@ -11,11 +12,14 @@ import com.project.ecommerce.models.*;
 import com.project.ecommerce.repositories.RoleRepository;
 import com.project.ecommerce.repositories.UserRepository;
 import com.project.ecommerce.responses.UserResponse;
+import com.project.ecommerce.utils.KeysetCursor;
 import com.project.ecommerce.utils.MessageKeys;
 import lombok.RequiredArgsConstructor;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -33,6 +37,7 @@ public class UserService implements IUserService{
     private final PasswordEncoder passwordEncoder;
     private final JwtTokenUtils jwtTokenUtil;
     private final AuthenticationManager authenticationManager;
+    private final SearchConfig searchConfig;
 
     @Override
     @Transactional
@@ -160,10 +165,23 @@ public class UserService implements IUserService{
     public Page<UserResponse> findAll(String keyword, Pageable pageable) {
 
         Page<User> pageUsers;
+        String tsQuery = searchConfig.toFullTextQuery(keyword);
+        if (tsQuery != null) {
+            //kết quả full-text được sắp theo ts_rank nên bỏ sort của pageable
+            pageUsers = userRepository.searchFullText(tsQuery, keyword.trim(),
+                    PageRequest.of(pageable.getPageNumber(), pageable.getPageSize()));
+            return pageUsers.map(UserResponse::fromUser);
+        }
         pageUsers = userRepository.findAll(keyword, pageable);
         return pageUsers.map(UserResponse::fromUser);
     }
 
+    @Override
+    public Slice<UserResponse> findAllAfter(String keyword, KeysetCursor cursor, int limit) {
+        return userRepository.findAllAfter(KeysetCursor.afterId(cursor), keyword, PageRequest.of(0, limit))
+                .map(UserResponse::fromUser);
+    }
+
     @Override
     public void changePassword(Long userId, ChangePasswordRequestDTO requestDTO) {
         User user = userRepository.findById(userId).orElseThrow(() -> new DataNotFoundException("User not found"));
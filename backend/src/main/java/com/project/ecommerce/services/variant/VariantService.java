@@ -6,8 +6,10 @@ import com.project.ecommerce.models.Product;
 import com.project.ecommerce.models.ProductVariant;
 import com.project.ecommerce.repositories.ProductRepository;
 import com.project.ecommerce.repositories.VariantRepository;
+import com.project.ecommerce.services.product.ProductDetailCache;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
@@ -18,8 +20,10 @@ public class VariantService implements IVariantService {
 
     private final ProductRepository productRepository;
     private final VariantRepository variantRepository;
+    private final ProductDetailCache productDetailCache;
 
     @Override
+    @Transactional
     public ProductVariant createVariant(Long productId, ProductVariantDTO variantDTO) throws Exception {
 
         Product existingProduct = productRepository.findById(productId)
@@ -30,13 +34,21 @@ public class VariantService implements IVariantService {
                 .product(existingProduct)
                 .build();
 
-        return variantRepository.save(variant);
+        ProductVariant savedVariant = variantRepository.save(variant);
+        productDetailCache.invalidate(productId);
+        return savedVariant;
     }
 
     @Override
+    @Transactional
     public void deleteVariant(Long variantId) {
         Optional<ProductVariant> optionalProductVariant = variantRepository.findById(variantId);
-        optionalProductVariant.ifPresent(variantRepository::delete);
+        optionalProductVariant.ifPresent(variant -> {
+            variantRepository.delete(variant);
+            if (variant.getProduct() != null) {
+                productDetailCache.invalidate(variant.getProduct().getId());
+            }
+        });
     }
 
     @Override
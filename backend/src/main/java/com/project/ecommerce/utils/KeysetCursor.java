@@ -0,0 +1,62 @@
+package com.project.ecommerce.utils;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Cursor cho phân trang keyset (?after=...): vị trí của phần tử cuối trang trước,
+ * theo (created_at, id) hoặc chỉ (id). Client chỉ coi đây là chuỗi opaque.
+ */
+@Getter
+@AllArgsConstructor
+public class KeysetCursor {
+    //mốc cho trang đầu khi seek giảm dần theo (created_at, id)
+    public static final LocalDateTime MAX_CREATED_AT = LocalDateTime.of(9999, 12, 31, 0, 0);
+
+    private final LocalDateTime createdAt;
+    private final long id;
+
+    public static KeysetCursor of(long id) {
+        return new KeysetCursor(null, id);
+    }
+
+    public static KeysetCursor of(LocalDateTime createdAt, long id) {
+        return new KeysetCursor(createdAt, id);
+    }
+
+    /**
+     * null nếu token rỗng (trang đầu tiên của chế độ cursor)
+     */
+    public static KeysetCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = value.lastIndexOf('|');
+            if (separator < 0) {
+                return of(Long.parseLong(value));
+            }
+            LocalDateTime createdAt = separator == 0 ? null : LocalDateTime.parse(value.substring(0, separator));
+            return new KeysetCursor(createdAt, Long.parseLong(value.substring(separator + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + token);
+        }
+    }
+
+    public String encode() {
+        String value = createdAt == null ? String.valueOf(id) : createdAt + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    //id của phần tử cuối trang trước khi seek tăng dần theo id
+    public static long afterId(KeysetCursor cursor) {
+        return cursor == null ? 0L : cursor.getId();
+    }
+}
@@ -0,0 +1,53 @@
+package com.project.ecommerce.utils;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Chuẩn hóa chuỗi tìm kiếm: chữ thường, bỏ dấu tiếng Việt (kể cả đ/Đ)
+ * để "Điện thoại" và "dien thoai" cho cùng một kết quả.
+ */
+public final class TextNormalizer {
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private TextNormalizer() {
+    }
+
+    public static String normalize(String text) {
+        if (text == null || text.isEmpty()) {
+            return "";
+        }
+        String folded = text.replace('đ', 'd').replace('Đ', 'd');
+        folded = Normalizer.normalize(folded, Normalizer.Form.NFD);
+        return DIACRITICS.matcher(folded).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        for (String token : SEPARATORS.split(normalize(text))) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Chuyển keyword thành tsquery của PostgreSQL, mọi từ đều match theo tiền tố:
+     * "nguyen van" -> "nguyen:* & van:*". Chỉ chứa chữ/số nên an toàn để đưa vào to_tsquery.
+     */
+    public static String toPrefixTsQuery(String text) {
+        StringBuilder query = new StringBuilder();
+        for (String token : tokenize(text)) {
+            if (!query.isEmpty()) {
+                query.append(" & ");
+            }
+            query.append(token).append(":*");
+        }
+        return query.toString();
+    }
+}
@@ -0,0 +1,46 @@
+package com.project.ecommerce.utils;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+public final class TransactionUtils {
+    private TransactionUtils() {
+    }
+
+    /**
+     * Chạy action sau khi transaction hiện tại commit thành công
+     * (chạy ngay nếu không có transaction), để cache/index trong bộ nhớ
+     * không bao giờ thấy dữ liệu bị rollback.
+     */
+    public static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    /**
+     * Chạy action nếu transaction hiện tại bị rollback, dùng để hoàn lại
+     * thay đổi nằm ngoài DB (vd hàng đã lấy từ bộ đếm trong bộ nhớ).
+     * Không có transaction thì không làm gì.
+     */
+    public static void afterRollback(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_ROLLED_BACK) {
+                    action.run();
+                }
+            }
+        });
+    }
+}
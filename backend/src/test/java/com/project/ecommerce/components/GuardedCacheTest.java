@@ -0,0 +1,72 @@
+package com.project.ecommerce.components;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GuardedCacheTest {
+    private final GuardedCache<Long, String> cache = new GuardedCache<>(Caffeine.newBuilder().build());
+
+    @Test
+    void loadIsCached() {
+        assertEquals("p1", cache.load(1L, id -> "p" + id));
+        assertEquals("p1", cache.getIfPresent(1L));
+    }
+
+    @Test
+    void invalidatingOtherKeyDuringLoadKeepsTheFill() {
+        cache.load(1L, id -> {
+            cache.invalidate(2L);
+            return "p1";
+        });
+        assertEquals("p1", cache.getIfPresent(1L));
+    }
+
+    @Test
+    void invalidatingSameKeyDuringLoadDiscardsTheFill() {
+        String loaded = cache.load(1L, id -> {
+            cache.invalidate(1L);
+            return "stale";
+        });
+        assertEquals("stale", loaded);
+        assertNull(cache.getIfPresent(1L));
+        // lần load sau không còn bị ảnh hưởng
+        cache.load(1L, id -> "fresh");
+        assertEquals("fresh", cache.getIfPresent(1L));
+    }
+
+    @Test
+    void overlappingLoadsOfOneKeyAreAllGuarded() {
+        cache.load(1L, outer -> {
+            cache.load(1L, inner -> {
+                cache.invalidate(1L);
+                return "inner";
+            });
+            return "outer";
+        });
+        assertNull(cache.getIfPresent(1L));
+    }
+
+    @Test
+    void loadAllDiscardsOnlyInvalidatedKeys() {
+        Map<Long, String> loaded = cache.loadAll(List.of(1L, 2L, 3L), ids -> {
+            cache.invalidate(2L);
+            return Map.of(1L, "p1", 2L, "p2", 3L, "p3");
+        });
+        assertEquals(3, loaded.size());
+        assertEquals(Map.of(1L, "p1", 3L, "p3"), cache.getAllPresent(List.of(1L, 2L, 3L)));
+    }
+
+    @Test
+    void failedLoadReleasesTheKey() {
+        assertThrows(IllegalStateException.class, () -> cache.load(1L, id -> {
+            throw new IllegalStateException("db down");
+        }));
+        cache.load(1L, id -> "p1");
+        assertEquals("p1", cache.getIfPresent(1L));
+    }
+}
@@ -0,0 +1,170 @@
+package com.project.ecommerce.components;
+
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.apache.catalina.Context;
+import org.apache.catalina.connector.Connector;
+import org.apache.catalina.startup.Tomcat;
+import org.springframework.core.io.UrlResource;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * So sánh thông lượng GET /products/images/{name} trước và sau ImageFileServer trên Tomcat nhúng:
+ * - before: như controller cũ, UrlResource + copy qua buffer 8 KB (ResourceHttpMessageConverter), không ETag
+ * - after: ImageFileServer (sendfile của connector, ETag/304)
+ * Mỗi kịch bản chạy WARMUP_SECONDS rồi đo MEASURE_SECONDS với CLIENTS kết nối đồng thời.
+ * Chạy tay (không phải test của surefire), cwd = backend/:
+ *   java -cp target/test-classes:target/classes:$(classpath) com.project.ecommerce.components.ImageFileServerBenchmark
+ */
+public class ImageFileServerBenchmark {
+    private static final int CLIENTS = 16;
+    private static final int WARMUP_SECONDS = 3;
+    private static final int MEASURE_SECONDS = 10;
+    private static final int[] FILE_SIZES = {30 * 1024, 300 * 1024};
+
+    public static void main(String[] args) throws Exception {
+        Path uploads = Paths.get(ImageFileServer.UPLOAD_DIR);
+        Files.createDirectories(uploads);
+        List<Path> created = new ArrayList<>();
+        ImageFileServer imageFileServer = new ImageFileServer(10_000, 5);
+
+        Tomcat tomcat = new Tomcat();
+        tomcat.setBaseDir(Files.createTempDirectory("tomcat").toString());
+        Connector connector = new Connector();
+        connector.setPort(0);
+        tomcat.setConnector(connector);
+        Context context = tomcat.addContext("", null);
+        Tomcat.addServlet(context, "before", new BeforeServlet());
+        context.addServletMappingDecoded("/before/*", "before");
+        Tomcat.addServlet(context, "after", new AfterServlet(imageFileServer));
+        context.addServletMappingDecoded("/after/*", "after");
+        tomcat.start();
+        int port = connector.getLocalPort();
+
+        ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+        HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).executor(clients).build();
+        try {
+            System.out.printf("%-10s %-28s %12s %12s%n", "file", "scenario", "req/s", "MB/s");
+            for (int size : FILE_SIZES) {
+                String name = "bench-" + UUID.randomUUID() + ".jpg";
+                Path file = uploads.resolve(name);
+                Files.write(file, jpegLike(size));
+                created.add(file);
+                for (String path : new String[]{"before", "after"}) {
+                    URI uri = URI.create("http://localhost:" + port + "/" + path + "/" + name);
+                    report(size, path + " GET", run(http, clients, uri, null));
+                    // trình duyệt xem lại ảnh: gửi kèm ETag đã nhận (bản cũ không có ETag nên luôn tải lại)
+                    String etag = http.send(HttpRequest.newBuilder(uri).build(), HttpResponse.BodyHandlers.discarding())
+                            .headers().firstValue("ETag").orElse(null);
+                    report(size, path + " revalidate", run(http, clients, uri, etag));
+                }
+            }
+        } finally {
+            clients.shutdownNow();
+            tomcat.stop();
+            tomcat.destroy();
+            for (Path file : created) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    private static void report(int size, String scenario, long[] result) {
+        double seconds = MEASURE_SECONDS;
+        System.out.printf("%-10s %-28s %12.0f %12.1f%n", size / 1024 + " KB", scenario,
+                result[0] / seconds, result[1] / seconds / (1024 * 1024));
+    }
+
+    //[số request, số byte body] trong MEASURE_SECONDS
+    private static long[] run(HttpClient http, ExecutorService clients, URI uri, String etag) throws Exception {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(uri);
+        if (etag != null) {
+            builder.header("If-None-Match", etag);
+        }
+        HttpRequest request = builder.build();
+        AtomicLong requests = new AtomicLong();
+        AtomicLong bytes = new AtomicLong();
+        long warmupEnd = System.nanoTime() + TimeUnit.SECONDS.toNanos(WARMUP_SECONDS);
+        long end = warmupEnd + TimeUnit.SECONDS.toNanos(MEASURE_SECONDS);
+        List<Future<?>> workers = new ArrayList<>();
+        ExecutorService load = Executors.newFixedThreadPool(CLIENTS);
+        for (int i = 0; i < CLIENTS; i++) {
+            workers.add(load.submit(() -> {
+                while (true) {
+                    long now = System.nanoTime();
+                    if (now >= end) {
+                        return null;
+                    }
+                    HttpResponse<byte[]> response = http.send(request, HttpResponse.BodyHandlers.ofByteArray());
+                    if (response.statusCode() != 200 && response.statusCode() != 304) {
+                        throw new IllegalStateException("HTTP " + response.statusCode());
+                    }
+                    if (now >= warmupEnd) {
+                        requests.incrementAndGet();
+                        bytes.addAndGet(response.body().length);
+                    }
+                }
+            }));
+        }
+        for (Future<?> worker : workers) {
+            worker.get();
+        }
+        load.shutdown();
+        return new long[]{requests.get(), bytes.get()};
+    }
+
+    private static byte[] jpegLike(int size) {
+        byte[] content = new byte[size];
+        ThreadLocalRandom.current().nextBytes(content);
+        content[0] = (byte) 0xFF;
+        content[1] = (byte) 0xD8;
+        content[2] = (byte) 0xFF;
+        return content;
+    }
+
+    //controller trước user-011: UrlResource, luôn image/jpeg, copy stream qua buffer của ứng dụng
+    private static final class BeforeServlet extends HttpServlet {
+        @Override
+        protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+            UrlResource resource = new UrlResource(Paths.get("uploads/" + request.getPathInfo().substring(1)).toUri());
+            if (!resource.exists()) {
+                resource = new UrlResource(Paths.get("uploads/notfound.jpeg").toUri());
+            }
+            response.setContentType("image/jpeg");
+            response.setContentLengthLong(resource.contentLength());
+            try (InputStream in = resource.getInputStream(); OutputStream out = response.getOutputStream()) {
+                StreamUtils.copy(in, out);
+            }
+        }
+    }
+
+    private static final class AfterServlet extends HttpServlet {
+        private final ImageFileServer imageFileServer;
+
+        AfterServlet(ImageFileServer imageFileServer) {
+            this.imageFileServer = imageFileServer;
+        }
+
+        @Override
+        protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+            imageFileServer.serve(request.getPathInfo().substring(1), request, response);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.project.ecommerce.components;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+    private static final int CALLERS = 64;
+
+    private final SingleFlight singleFlight = new SingleFlight(10_000);
+    private final ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void concurrentCallersOnOneKeyShareOneLoad() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch arrived = new CountDownLatch(CALLERS);
+        Object value = new Object();
+
+        List<Future<Object>> results = submitAll(() -> {
+            arrived.countDown();
+            return singleFlight.execute("product:1", () -> {
+                loads.incrementAndGet();
+                await(arrived);
+                sleep(200); // để mọi caller kịp vào hàng chờ trong lúc leader còn load
+                return value;
+            });
+        });
+
+        for (Future<Object> result : results) {
+            assertSame(value, result.get(10, TimeUnit.SECONDS));
+        }
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void waitersReceiveLeaderException() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch arrived = new CountDownLatch(CALLERS);
+
+        List<Future<Object>> results = submitAll(() -> {
+            arrived.countDown();
+            return singleFlight.execute("product:2", () -> {
+                loads.incrementAndGet();
+                await(arrived);
+                sleep(200);
+                throw new IllegalArgumentException("not found");
+            });
+        });
+
+        for (Future<Object> result : results) {
+            ExecutionException e = assertThrows(ExecutionException.class, () -> result.get(10, TimeUnit.SECONDS));
+            assertTrue(e.getCause() instanceof IllegalArgumentException);
+        }
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void completedLoadIsNotCached() {
+        AtomicInteger loads = new AtomicInteger();
+        singleFlight.execute("product:3", loads::incrementAndGet);
+        singleFlight.execute("product:3", loads::incrementAndGet);
+        assertEquals(2, loads.get());
+    }
+
+    private List<Future<Object>> submitAll(Callable<Object> caller) {
+        List<Future<Object>> results = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            results.add(executor.submit(caller));
+        }
+        return results;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.project.ecommerce.services.coupon;
+
+import com.project.ecommerce.configurations.SearchConfig;
+import com.project.ecommerce.repositories.CouponRepository;
+import com.project.ecommerce.support.PostgresApplication;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Nhiều checkout đồng thời dùng mã giảm giá trên PostgreSQL thật, qua hai "server" (mỗi server một HotCouponPool,
+ * cùng bảng coupons): mã high_volume đi qua pool, giữa chừng pool của server A tắt nên A cộng thẳng bằng REDEEM,
+ * mã thường luôn cộng thẳng, ~20% đơn rollback. Số client gấp nhiều lần connection pool.
+ * Số lượt đã commit không vượt usage_limit, trả hết lượt đang giữ thì used_count khớp số lượt đã commit
+ * và dùng tiếp được đúng tới usage_limit.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class CouponRedemptionConcurrencyTest {
+    private static final String HOT_CODE = "FLASH50";
+    private static final String PLAIN_CODE = "WELCOME10";
+    private static final int USAGE_LIMIT = 1_000;
+    private static final int CLIENTS = 64;
+    private static final int ATTEMPTS = 6_000;
+    private static final int CONNECTION_POOL_SIZE = 10;
+    private static final int LEASE_BLOCK = 37;
+
+    private static PostgresApplication app;
+
+    @BeforeAll
+    static void startApplication() throws Exception {
+        app = PostgresApplication.start(
+                "spring.datasource.hikari.maximum-pool-size=" + CONNECTION_POOL_SIZE,
+                "spring.datasource.hikari.connection-timeout=5000",
+                "coupon.hot.lease-block=" + LEASE_BLOCK,
+                // write-behind do test tự gọi, trả lượt ngay khi mã đứng yên giữa hai lần gọi
+                "coupon.hot.idle-seconds=0",
+                "coupon.hot.flush-interval-ms=3600000",
+                "coupon.hot.refresh-interval-ms=3600000");
+    }
+
+    @AfterAll
+    static void stopApplication() {
+        if (app != null) {
+            app.close();
+        }
+    }
+
+    @Test
+    void redemptionsStopAtUsageLimitAcrossPoolsDirectUpdatesAndRollbacks() throws Exception {
+        long hotId = app.insertCoupon(HOT_CODE, USAGE_LIMIT, true);
+        long plainId = app.insertCoupon(PLAIN_CODE, USAGE_LIMIT, false);
+        JdbcTemplate jdbcTemplate = app.jdbcTemplate();
+        PlatformTransactionManager transactionManager = app.bean(PlatformTransactionManager.class);
+        HotCouponPool poolA = app.bean(HotCouponPool.class);
+        ICouponService serverA = app.bean(ICouponService.class);
+        // server thứ hai trên cùng DB: pool riêng, các bean còn lại dùng chung
+        HotCouponPool poolB = new HotCouponPool(jdbcTemplate, transactionManager, 8, LEASE_BLOCK, 0);
+        ICouponService serverB = new CouponService(app.bean(CouponRepository.class), app.bean(SearchConfig.class),
+                app.bean(ICouponIndex.class), poolB, jdbcTemplate);
+        poolA.refresh();
+        poolB.refresh();
+        assertEquals(hotId, (long) poolA.idOf(HOT_CODE));
+        assertNull(poolB.idOf(PLAIN_CODE));
+        TransactionTemplate checkout = new TransactionTemplate(transactionManager);
+
+        Map<String, AtomicInteger> committed = Map.of(HOT_CODE, new AtomicInteger(), PLAIN_CODE, new AtomicInteger());
+        AtomicBoolean done = new AtomicBoolean();
+        ExecutorService flushers = Executors.newFixedThreadPool(2);
+        List<Future<?>> flushing = List.of(
+                flushers.submit(() -> flushUntil(done, poolA)),
+                flushers.submit(() -> flushUntil(done, poolB)));
+        try {
+            PostgresApplication.runConcurrently(CLIENTS, ATTEMPTS, i -> {
+                // giữa chừng server A tắt pool: mã hot của A chuyển sang REDEEM thẳng trên DB
+                if (i == ATTEMPTS / 2) {
+                    poolA.shutdown();
+                }
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                ICouponService server = random.nextBoolean() ? serverA : serverB;
+                String code = random.nextBoolean() ? HOT_CODE : PLAIN_CODE;
+                boolean rollback = random.nextInt(5) == 0;
+                Boolean redeemed = checkout.execute(status -> {
+                    boolean used = server.incrementCouponUsage(code);
+                    if (rollback) {
+                        status.setRollbackOnly();
+                    }
+                    return used && !rollback;
+                });
+                if (Boolean.TRUE.equals(redeemed)) {
+                    committed.get(code).incrementAndGet();
+                }
+            });
+        } finally {
+            done.set(true);
+            for (Future<?> flusher : flushing) {
+                flusher.get(10, TimeUnit.SECONDS);
+            }
+            flushers.shutdown();
+        }
+        assertTrue(committed.get(HOT_CODE).get() <= USAGE_LIMIT, "hot coupon over-redeemed: " + committed);
+        assertTrue(committed.get(PLAIN_CODE).get() <= USAGE_LIMIT, "coupon over-redeemed: " + committed);
+
+        // tắt server B: lượt còn giữ trong pool về DB; dùng tiếp bằng REDEEM tới khi hết lượt
+        poolB.shutdown();
+        assertEquals(committed.get(HOT_CODE).get(), usedCount(hotId));
+        assertEquals(committed.get(PLAIN_CODE).get(), usedCount(plainId));
+        for (String code : List.of(HOT_CODE, PLAIN_CODE)) {
+            while (Boolean.TRUE.equals(checkout.execute(status -> serverA.incrementCouponUsage(code)))) {
+                committed.get(code).incrementAndGet();
+            }
+        }
+        assertEquals(USAGE_LIMIT, committed.get(HOT_CODE).get());
+        assertEquals(USAGE_LIMIT, committed.get(PLAIN_CODE).get());
+        assertEquals(USAGE_LIMIT, usedCount(hotId));
+        assertEquals(USAGE_LIMIT, usedCount(plainId));
+    }
+
+    private static void flushUntil(AtomicBoolean done, HotCouponPool pool) {
+        while (!done.get()) {
+            pool.flushIdle();
+        }
+    }
+
+    private static int usedCount(long couponId) {
+        return app.jdbcTemplate().queryForObject(
+                "SELECT used_count FROM coupons WHERE id = ?", Integer.class, couponId);
+    }
+}
@@ -0,0 +1,109 @@
+package com.project.ecommerce.services.order;
+
+import com.project.ecommerce.dtos.order.CartItemDTO;
+import com.project.ecommerce.dtos.order.OrderDTO;
+import com.project.ecommerce.support.PostgresApplication;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Độ trễ đặt đơn (OrderService.createOrder) với giỏ hàng 20 dòng trên PostgreSQL thật (Testcontainers):
+ * - ứng dụng + schema dựng bằng PostgresApplication
+ * - chạy WARMUP_ORDERS đơn rồi đo MEASURED_ORDERS đơn, lần lượt với 1 và CONCURRENT_CLIENTS client
+ * - in p50/p95/p99/max (ms) và số câu SQL Hibernate trung bình mỗi đơn
+ *   (UPDATE trừ kho của StockReservationService chạy qua JdbcTemplate, không nằm trong con số này)
+ * Chạy tay (không phải test của surefire, cần Docker), cwd = backend/:
+ *   java -cp target/test-classes:target/classes:$(classpath) com.project.ecommerce.services.order.CheckoutLatencyBenchmark
+ */
+public class CheckoutLatencyBenchmark {
+    private static final int CART_LINES = 20;
+    private static final int WARMUP_ORDERS = 300;
+    private static final int MEASURED_ORDERS = 2_000;
+    private static final int CONCURRENT_CLIENTS = 8;
+
+    public static void main(String[] args) throws Exception {
+        try (PostgresApplication app = PostgresApplication.start(
+                "spring.jpa.properties.hibernate.jdbc.batch_size=50",
+                "spring.jpa.properties.hibernate.order_inserts=true",
+                "spring.jpa.properties.hibernate.order_updates=true",
+                "spring.jpa.properties.hibernate.generate_statistics=true")) {
+            IOrderService orderService = app.bean(IOrderService.class);
+            Statistics statistics = app.bean(EntityManagerFactory.class)
+                    .unwrap(SessionFactory.class).getStatistics();
+            OrderDTO order = seed(app);
+
+            run(orderService, order, 1, WARMUP_ORDERS);
+            System.out.printf("%-12s %8s %8s %8s %8s %8s %14s%n",
+                    "clients", "orders", "p50", "p95", "p99", "max", "hib stmts/đơn");
+            for (int clients : new int[]{1, CONCURRENT_CLIENTS}) {
+                statistics.clear();
+                long[] latencies = run(orderService, order, clients, MEASURED_ORDERS);
+                System.out.printf("%-12d %8d %8.2f %8.2f %8.2f %8.2f %14.1f%n",
+                        clients, latencies.length,
+                        millis(percentile(latencies, 50)), millis(percentile(latencies, 95)),
+                        millis(percentile(latencies, 99)), millis(latencies[latencies.length - 1]),
+                        (double) statistics.getPrepareStatementCount() / latencies.length);
+            }
+        }
+    }
+
+    //1 user, CART_LINES sản phẩm mỗi sản phẩm 1 biến thể đủ hàng cho mọi lần chạy
+    private static OrderDTO seed(PostgresApplication app) {
+        long userId = app.insertUser();
+        long categoryId = app.insertCategory("Benchmark");
+        int stock = (WARMUP_ORDERS + MEASURED_ORDERS * 2) * 2;
+        List<CartItemDTO> cartItems = new ArrayList<>();
+        for (int i = 0; i < CART_LINES; i++) {
+            long productId = app.insertProduct("Product " + i, 100f + i, categoryId);
+            long variantId = app.insertVariant(productId, stock, false);
+            cartItems.add(CartItemDTO.builder().variantId(variantId).quantity(1).build());
+        }
+        return OrderDTO.builder()
+                .userId(userId)
+                .fullName("Benchmark")
+                .phoneNumber("0900000000")
+                .totalMoney(2_190f)
+                .shippingMethod("express")
+                .paymentMethod("cod")
+                .cartItems(cartItems)
+                .build();
+    }
+
+    //độ trễ (ns) của từng đơn, đã sắp xếp tăng dần
+    private static long[] run(IOrderService orderService, OrderDTO order, int clients, int orders) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(clients);
+        try {
+            List<Future<Long>> results = new ArrayList<>(orders);
+            for (int i = 0; i < orders; i++) {
+                results.add(executor.submit(() -> {
+                    long start = System.nanoTime();
+                    orderService.createOrder(order);
+                    return System.nanoTime() - start;
+                }));
+            }
+            long[] latencies = new long[orders];
+            for (int i = 0; i < orders; i++) {
+                latencies[i] = results.get(i).get();
+            }
+            Arrays.sort(latencies);
+            return latencies;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static long percentile(long[] sorted, int percentile) {
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, index)];
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
@@ -0,0 +1,92 @@
+package com.project.ecommerce.services.product;
+
+import com.project.ecommerce.models.Category;
+import com.project.ecommerce.models.Product;
+import com.project.ecommerce.models.ProductImage;
+import com.project.ecommerce.models.ProductVariant;
+import com.project.ecommerce.repositories.ProductRepository;
+import com.project.ecommerce.responses.ProductResponse;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Số câu SQL của một trang danh sách sản phẩm không phụ thuộc số sản phẩm trong trang:
+ * query trang + COUNT + ảnh (IN) + biến thể (IN).
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(ProductResponseAssembler.class)
+@Testcontainers(disabledWithoutDocker = true)
+class ProductResponseAssemblerQueryCountTest {
+    private static final int PRODUCTS = 30;
+    private static final long STATEMENTS_PER_PAGE = 4;
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15-alpine");
+
+    @Autowired
+    private TestEntityManager entityManager;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private ProductResponseAssembler productResponseAssembler;
+
+    @BeforeEach
+    void setUp() {
+        Category category = entityManager.persist(Category.builder().name("Laptop").build());
+        for (int i = 0; i < PRODUCTS; i++) {
+            Product product = entityManager.persist(Product.builder()
+                    .name("Product " + i)
+                    .price(100f + i)
+                    .category(category)
+                    .build());
+            for (int j = 0; j < 3; j++) {
+                entityManager.persist(ProductImage.builder().product(product).imageUrl(i + "-" + j + ".jpg").build());
+                entityManager.persist(ProductVariant.builder().product(product).variant("Size " + j).stock(10).build());
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void pageCostsConstantNumberOfStatements() {
+        assertEquals(STATEMENTS_PER_PAGE, statementsForPage(5));
+        assertEquals(STATEMENTS_PER_PAGE, statementsForPage(PRODUCTS));
+    }
+
+    private long statementsForPage(int size) {
+        entityManager.clear();
+        Statistics statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        Page<ProductResponse> page = productResponseAssembler.toResponses(
+                productRepository.searchProducts(null, "", PageRequest.of(0, size)));
+        assertEquals(size, page.getContent().size());
+        page.getContent().forEach(response -> {
+            assertEquals(3, response.getProductImages().size());
+            assertEquals(3, response.getVariants().size());
+        });
+        return statistics.getPrepareStatementCount();
+    }
+}
@@ -0,0 +1,140 @@
+package com.project.ecommerce.services.product;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.project.ecommerce.repositories.ProductRepository;
+import com.project.ecommerce.responses.ProductResponse;
+import com.project.ecommerce.support.PostgresApplication;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Số lần load DB mỗi giây khi nhiều client cùng đọc một sản phẩm hot, trước và sau SingleFlight,
+ * trên PostgreSQL thật (PostgresApplication, connection pool mặc định 10):
+ * - detail: GET /products/{id} qua ProductDetailCache, một thread invalidate sản phẩm mỗi INVALIDATE_INTERVAL_MS
+ *   (như checkout trừ kho); "before" là cache Caffeine không gộp miss như trước user-006
+ * - by-ids: getProductResponsesByIds cùng một tập id (không cache); "before" load thẳng repository + assembler
+ * Mỗi kịch bản chạy WARMUP_SECONDS rồi đo MEASURE_SECONDS với 1, 8, 64, 256 client.
+ * Số câu SQL lấy từ Hibernate Statistics, chia cho số câu của một lần load để ra loads/s:
+ * sau SingleFlight loads/s phải gần như không đổi khi số client tăng.
+ * Chạy tay (không phải test của surefire, cần Docker), cwd = backend/:
+ *   java -cp target/test-classes:target/classes:$(classpath) com.project.ecommerce.services.product.ProductStampedeBenchmark
+ */
+public class ProductStampedeBenchmark {
+    private static final int[] CLIENTS = {1, 8, 64, 256};
+    private static final int PRODUCTS = 20;
+    private static final int VARIANTS_PER_PRODUCT = 3;
+    private static final int WARMUP_SECONDS = 2;
+    private static final int MEASURE_SECONDS = 10;
+    private static final long INVALIDATE_INTERVAL_MS = 10;
+
+    public static void main(String[] args) throws Exception {
+        try (PostgresApplication app = PostgresApplication.start(
+                "spring.jpa.properties.hibernate.generate_statistics=true")) {
+            IProductService productService = app.bean(IProductService.class);
+            ProductDetailCache productDetailCache = app.bean(ProductDetailCache.class);
+            ProductRepository productRepository = app.bean(ProductRepository.class);
+            ProductResponseAssembler productResponseAssembler = app.bean(ProductResponseAssembler.class);
+            Statistics statistics = app.bean(EntityManagerFactory.class)
+                    .unwrap(SessionFactory.class).getStatistics();
+            List<Long> productIds = seed(app);
+            Long hotId = productIds.get(0);
+
+            // số câu SQL của một lần load, để đổi câu SQL/giây ra lần load/giây
+            long start = statistics.getPrepareStatementCount();
+            productResponseAssembler.toResponses(productRepository.findProductsByIds(List.of(hotId)));
+            long statementsPerDetailLoad = statistics.getPrepareStatementCount() - start;
+            start = statistics.getPrepareStatementCount();
+            productResponseAssembler.toResponses(productRepository.findProductsByIds(productIds));
+            long statementsPerIdsLoad = statistics.getPrepareStatementCount() - start;
+
+            Cache<Long, ProductResponse> plainCache = Caffeine.newBuilder().build();
+            System.out.printf("%-20s %8s %12s %12s %12s%n", "scenario", "clients", "req/s", "db stmts/s", "loads/s");
+            for (int clients : CLIENTS) {
+                report("detail before", clients, statementsPerDetailLoad,
+                        run(statistics, clients, () -> plainCache.invalidate(hotId), () -> {
+                            if (plainCache.getIfPresent(hotId) == null) {
+                                plainCache.put(hotId, productResponseAssembler
+                                        .toResponses(productRepository.findProductsByIds(List.of(hotId))).get(0));
+                            }
+                        }));
+                report("detail after", clients, statementsPerDetailLoad,
+                        run(statistics, clients, () -> productDetailCache.invalidate(hotId),
+                                () -> productService.getProductResponseById(hotId)));
+                report("by-ids before", clients, statementsPerIdsLoad,
+                        run(statistics, clients, null,
+                                () -> productResponseAssembler.toResponses(productRepository.findProductsByIds(productIds))));
+                report("by-ids after", clients, statementsPerIdsLoad,
+                        run(statistics, clients, null, () -> productService.getProductResponsesByIds(productIds)));
+            }
+        }
+    }
+
+    private static List<Long> seed(PostgresApplication app) {
+        long categoryId = app.insertCategory("Stampede");
+        List<Long> productIds = new ArrayList<>();
+        for (int i = 0; i < PRODUCTS; i++) {
+            long productId = app.insertProduct("Product " + i, 100f + i, categoryId);
+            for (int j = 0; j < VARIANTS_PER_PRODUCT; j++) {
+                app.insertVariant(productId, 100, false);
+            }
+            productIds.add(productId);
+        }
+        return productIds;
+    }
+
+    private static void report(String scenario, int clients, long statementsPerLoad, long[] result) {
+        double seconds = MEASURE_SECONDS;
+        System.out.printf("%-20s %8d %12.0f %12.0f %12.1f%n", scenario, clients,
+                result[0] / seconds, result[1] / seconds, result[1] / seconds / statementsPerLoad);
+    }
+
+    //[số request, số câu SQL] trong MEASURE_SECONDS; invalidator (nếu có) chạy trên thread riêng suốt kịch bản
+    private static long[] run(Statistics statistics, int clients, Runnable invalidator, Runnable request)
+            throws Exception {
+        long warmupEnd = System.nanoTime() + TimeUnit.SECONDS.toNanos(WARMUP_SECONDS);
+        long end = warmupEnd + TimeUnit.SECONDS.toNanos(MEASURE_SECONDS);
+        AtomicLong requests = new AtomicLong();
+        ExecutorService load = Executors.newFixedThreadPool(clients + 1);
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            if (invalidator != null) {
+                workers.add(load.submit(() -> {
+                    while (System.nanoTime() < end) {
+                        invalidator.run();
+                        Thread.sleep(INVALIDATE_INTERVAL_MS);
+                    }
+                    return null;
+                }));
+            }
+            for (int i = 0; i < clients; i++) {
+                workers.add(load.submit(() -> {
+                    while (true) {
+                        long now = System.nanoTime();
+                        if (now >= end) {
+                            return null;
+                        }
+                        request.run();
+                        if (now >= warmupEnd) {
+                            requests.incrementAndGet();
+                        }
+                    }
+                }));
+            }
+            Thread.sleep(Math.max(0, TimeUnit.NANOSECONDS.toMillis(warmupEnd - System.nanoTime())));
+            long statementsAtStart = statistics.getPrepareStatementCount();
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+            return new long[]{requests.get(), statistics.getPrepareStatementCount() - statementsAtStart};
+        } finally {
+            load.shutdown();
+        }
+    }
+}
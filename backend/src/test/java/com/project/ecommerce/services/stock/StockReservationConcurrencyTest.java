@@ -0,0 +1,140 @@
+package com.project.ecommerce.services.stock;
+
+import com.project.ecommerce.dtos.order.CartItemDTO;
+import com.project.ecommerce.dtos.order.OrderDTO;
+import com.project.ecommerce.services.order.IOrderService;
+import com.project.ecommerce.support.PostgresApplication;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Hàng nghìn checkout đồng thời (OrderService.createOrder) trên PostgreSQL thật, cùng lúc vào
+ * một biến thể hot (HotStockPool) và một biến thể thường (UPDATE có điều kiện của StockReservationService):
+ * - số client gấp nhiều lần connection pool: checkout không được giữ connection chờ connection thứ hai
+ * - đơn có cả hai dòng mà dòng sau hết hàng thì rollback, hàng hot đã lấy được trả lại pool
+ * - tổng đã giữ cho các đơn không vượt tồn kho, quantity không âm, trả hết pool thì không mất đơn vị nào
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class StockReservationConcurrencyTest {
+    private static final int STOCK = 1_000;
+    private static final int CLIENTS = 64;
+    private static final int ORDERS = 3_000;
+    private static final int CONNECTION_POOL_SIZE = 10;
+
+    private static PostgresApplication app;
+
+    @BeforeAll
+    static void startApplication() throws Exception {
+        app = PostgresApplication.start(
+                "spring.datasource.hikari.maximum-pool-size=" + CONNECTION_POOL_SIZE,
+                "spring.datasource.hikari.connection-timeout=5000",
+                "stock.hot.lease-block=20",
+                // write-behind do test tự gọi, trả hàng ngay khi biến thể đứng yên giữa hai lần gọi
+                "stock.hot.idle-seconds=0",
+                "stock.hot.flush-interval-ms=3600000",
+                "stock.hot.refresh-interval-ms=3600000");
+    }
+
+    @AfterAll
+    static void stopApplication() {
+        if (app != null) {
+            app.close();
+        }
+    }
+
+    @Test
+    void concurrentCheckoutsNeverOversellHotOrNormalVariant() throws Exception {
+        long userId = app.insertUser();
+        long productId = app.insertProduct("Flash sale", 100f, app.insertCategory("Flash sale"));
+        // biến thể hot có id nhỏ hơn nên được trừ trước trong đơn có cả hai dòng
+        long hot = app.insertVariant(productId, STOCK, true);
+        long normal = app.insertVariant(productId, STOCK, false);
+        HotStockPool hotStockPool = app.bean(HotStockPool.class);
+        hotStockPool.refresh();
+        assertTrue(hotStockPool.isHot(hot));
+        assertFalse(hotStockPool.isHot(normal));
+        IOrderService orderService = app.bean(IOrderService.class);
+
+        Map<Long, AtomicInteger> ordered = Map.of(hot, new AtomicInteger(), normal, new AtomicInteger());
+        AtomicInteger rejected = new AtomicInteger();
+        AtomicBoolean done = new AtomicBoolean();
+        ExecutorService flusher = Executors.newSingleThreadExecutor();
+        Future<?> flushing = flusher.submit(() -> {
+            while (!done.get()) {
+                hotStockPool.flushIdle();
+            }
+        });
+        try {
+            PostgresApplication.runConcurrently(CLIENTS, ORDERS, i -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                // 1/3 đơn chỉ có biến thể hot, 1/3 chỉ biến thể thường, 1/3 cả hai
+                int kind = random.nextInt(3);
+                List<CartItemDTO> cartItems = new ArrayList<>();
+                if (kind != 1) {
+                    cartItems.add(CartItemDTO.builder().variantId(hot).quantity(1 + random.nextInt(3)).build());
+                }
+                if (kind != 0) {
+                    cartItems.add(CartItemDTO.builder().variantId(normal).quantity(1 + random.nextInt(3)).build());
+                }
+                try {
+                    orderService.createOrder(order(userId, cartItems));
+                } catch (IllegalArgumentException e) {
+                    // thiếu hàng: cả đơn rollback; lỗi khác (hết connection, vi phạm CHECK) làm test thất bại
+                    rejected.incrementAndGet();
+                    return;
+                }
+                cartItems.forEach(item -> ordered.get(item.getVariantId()).addAndGet(item.getQuantity()));
+            });
+        } finally {
+            done.set(true);
+            flushing.get(10, TimeUnit.SECONDS);
+            flusher.shutdown();
+        }
+        // nhu cầu gấp đôi tồn kho nên phải có đơn bị từ chối
+        assertTrue(rejected.get() > 0);
+
+        // tắt pool: hàng hot còn giữ trong bộ nhớ về lại DB
+        hotStockPool.shutdown();
+        for (long variantId : List.of(hot, normal)) {
+            int reserved = reserved(variantId);
+            int quantity = quantity(variantId);
+            assertEquals(ordered.get(variantId).get(), reserved, "variant " + variantId);
+            assertTrue(reserved <= STOCK, "variant " + variantId + " oversold: " + reserved + " > " + STOCK);
+            assertTrue(quantity >= 0, "variant " + variantId + " quantity " + quantity);
+            assertEquals(STOCK, reserved + quantity, "variant " + variantId);
+        }
+    }
+
+    private static OrderDTO order(long userId, List<CartItemDTO> cartItems) {
+        return OrderDTO.builder()
+                .userId(userId)
+                .fullName("Flash sale")
+                .phoneNumber("0900000000")
+                .totalMoney(100f)
+                .shippingMethod("express")
+                .paymentMethod("cod")
+                .cartItems(cartItems)
+                .build();
+    }
+
+    private static int reserved(long variantId) {
+        return app.jdbcTemplate().queryForObject("SELECT COALESCE(SUM(quantity), 0) FROM stock_reservations " +
+                "WHERE variant_id = ? AND status = 'committed'", Integer.class, variantId);
+    }
+
+    private static int quantity(long variantId) {
+        return app.jdbcTemplate().queryForObject(
+                "SELECT quantity FROM product_variants WHERE id = ?", Integer.class, variantId);
+    }
+}
@@ -0,0 +1,66 @@
+package com.project.ecommerce.services.stock;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Nhiều thread cùng lấy hàng trong lúc hàng được gom lại giữa các stripe:
+ * tổng đã lấy không vượt tổng đã nạp và không đơn vị nào bị mất.
+ */
+class StripedStockTest {
+    private static final int STOCK = 5_000;
+    private static final int THREADS = 64;
+    private static final int TAKES_PER_THREAD = 500;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(THREADS + 1);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void neverHandsOutMoreThanWasAdded() throws Exception {
+        StripedStock stock = new StripedStock(8);
+        stock.add(STOCK);
+        AtomicInteger taken = new AtomicInteger();
+        AtomicBoolean done = new AtomicBoolean();
+        // gom hàng giữa các stripe như đường chậm của HotStockPool.take, trong lúc các thread khác đang lấy
+        Future<?> rebalancer = executor.submit(() -> {
+            while (!done.get()) {
+                synchronized (stock) {
+                    stock.add(stock.drain());
+                }
+            }
+        });
+
+        List<Future<?>> takers = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            takers.add(executor.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int j = 0; j < TAKES_PER_THREAD; j++) {
+                    int quantity = 1 + random.nextInt(3);
+                    if (stock.tryTake(quantity)) {
+                        taken.addAndGet(quantity);
+                    }
+                }
+            }));
+        }
+        for (Future<?> taker : takers) {
+            taker.get(60, TimeUnit.SECONDS);
+        }
+        done.set(true);
+        rebalancer.get(10, TimeUnit.SECONDS);
+
+        assertTrue(taken.get() <= STOCK, "taken " + taken.get() + " > stock " + STOCK);
+        assertEquals(STOCK, taken.get() + stock.available());
+    }
+}
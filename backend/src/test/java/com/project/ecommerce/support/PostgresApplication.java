@@ -0,0 +1,186 @@
+package com.project.ecommerce.support;
+
+import com.project.ecommerce.ECommerceApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+
+/**
+ * Toàn bộ ứng dụng chạy trên PostgreSQL thật (Testcontainers), dùng chung cho benchmark và test đồng thời:
+ * - schema = database_schema.sql + các migration mà checkout/mã giảm giá/khởi động ứng dụng cần
+ * - properties truyền vào ghi đè cấu hình mặc định (vd connection pool nhỏ, kích thước lease)
+ * - các hàm seed dữ liệu bằng JdbcTemplate và chạy tải đồng thời
+ * Cần Docker, cwd = backend/ (đọc các file .sql).
+ */
+public final class PostgresApplication implements AutoCloseable {
+    private static final String[] MIGRATIONS = {
+            "database_schema.sql",
+            "add_order_sequences.sql",
+            "add_stock_reservations.sql",
+            "add_idempotency_keys.sql",
+            "add_product_neighbors.sql",
+            "add_product_review_stats.sql",
+            "add_revenue_rollups.sql",
+            "add_trending_sketches.sql",
+            "add_coupon_redemptions.sql"
+    };
+    private static final String[] DEFAULT_PROPERTIES = {
+            "server.port=0",
+            "spring.jpa.hibernate.ddl-auto=none",
+            "spring.jpa.show-sql=false",
+            "logging.level.org.hibernate.SQL=WARN",
+            "logging.level.org.springframework.security=WARN",
+            "jwt.expiration=2592000",
+            "jwt.secretKey=Y2hlY2tvdXQtbGF0ZW5jeS1iZW5jaG1hcmstc2VjcmV0LWtleS0zMi1ieXRlcw==",
+            "gemini.api.key=unused",
+            "gemini.api.max-tokens=1",
+            "gemini.api.temperature=0",
+            "vnpay.api-url=http://localhost",
+            "vnpay.pay-url=http://localhost",
+            "vnpay.return-url=http://localhost",
+            "vnpay.secret-key=unused",
+            "vnpay.tmn-code=unused"
+    };
+
+    private final PostgreSQLContainer<?> postgres;
+    private final ConfigurableApplicationContext context;
+    private final JdbcTemplate jdbcTemplate;
+    // users.phone_number là UNIQUE
+    private final AtomicInteger phoneNumbers = new AtomicInteger();
+
+    private PostgresApplication(PostgreSQLContainer<?> postgres, ConfigurableApplicationContext context) {
+        this.postgres = postgres;
+        this.context = context;
+        this.jdbcTemplate = context.getBean(JdbcTemplate.class);
+    }
+
+    /**
+     * Khởi động container, chạy migration rồi khởi động ứng dụng với properties ("key=value")
+     */
+    public static PostgresApplication start(String... properties) throws Exception {
+        PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15-alpine");
+        postgres.start();
+        try {
+            migrate(postgres);
+            ConfigurableApplicationContext context = new SpringApplicationBuilder(ECommerceApplication.class)
+                    .properties(DEFAULT_PROPERTIES)
+                    .properties(
+                            // INSERT theo batch của Hibernate được driver gửi thành một câu
+                            "spring.datasource.url=" + withParameter(postgres.getJdbcUrl(), "reWriteBatchedInserts=true"),
+                            "spring.datasource.username=" + postgres.getUsername(),
+                            "spring.datasource.password=" + postgres.getPassword())
+                    .properties(properties)
+                    .run();
+            return new PostgresApplication(postgres, context);
+        } catch (Exception e) {
+            postgres.close();
+            throw e;
+        }
+    }
+
+    //chạy từng file như psql -f (pgjdbc chấp nhận nhiều câu lệnh và khối $$ trong một execute)
+    private static void migrate(PostgreSQLContainer<?> postgres) throws Exception {
+        try (Connection connection = DriverManager.getConnection(
+                postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword());
+             Statement statement = connection.createStatement()) {
+            for (String migration : MIGRATIONS) {
+                statement.execute(Files.readString(Paths.get(migration)));
+            }
+        }
+    }
+
+    private static String withParameter(String url, String parameter) {
+        return url + (url.contains("?") ? "&" : "?") + parameter;
+    }
+
+    public <T> T bean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    public JdbcTemplate jdbcTemplate() {
+        return jdbcTemplate;
+    }
+
+    public long insertUser() {
+        Long roleId = jdbcTemplate.queryForObject("INSERT INTO roles(name) VALUES ('USER') " +
+                "ON CONFLICT (name) DO UPDATE SET name = EXCLUDED.name RETURNING id", Long.class);
+        return jdbcTemplate.queryForObject(
+                "INSERT INTO users(fullname, phone_number, address, password, is_active, role_id) " +
+                        "VALUES ('Test', ?, 'Hà Nội', 'x', true, ?) RETURNING id",
+                Long.class, String.format("09%08d", phoneNumbers.incrementAndGet()), roleId);
+    }
+
+    public long insertCategory(String name) {
+        return jdbcTemplate.queryForObject("INSERT INTO categories(name) VALUES (?) RETURNING id", Long.class, name);
+    }
+
+    public long insertProduct(String name, float price, long categoryId) {
+        return jdbcTemplate.queryForObject(
+                "INSERT INTO products(name, price, category_id) VALUES (?, ?, ?) RETURNING id",
+                Long.class, name, price, categoryId);
+    }
+
+    public long insertVariant(long productId, int quantity, boolean hot) {
+        return jdbcTemplate.queryForObject(
+                "INSERT INTO product_variants(name, quantity, product_id, hot) VALUES ('Default', ?, ?, ?) RETURNING id",
+                Long.class, quantity, productId, hot);
+    }
+
+    //mã đang hiệu lực (từ hôm qua đến mai), code đã chuẩn hoá
+    public long insertCoupon(String code, int usageLimit, boolean highVolume) {
+        LocalDateTime now = LocalDateTime.now();
+        return jdbcTemplate.queryForObject(
+                "INSERT INTO coupons(code, name, discount_type, discount_value, start_date, end_date, " +
+                        "is_active, usage_limit, used_count, high_volume) " +
+                        "VALUES (?, ?, 'percentage', 10, ?, ?, true, ?, 0, ?) RETURNING id",
+                Long.class, code, code, now.minusDays(1), now.plusDays(1), usageLimit, highVolume);
+    }
+
+    /**
+     * Chạy task(0..tasks-1) trên threads thread, các task bắt đầu cùng lúc;
+     * lỗi của task bất kỳ được ném lại (ExecutionException)
+     */
+    public static void runConcurrently(int threads, int tasks, IntConsumer task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>(tasks);
+            for (int i = 0; i < tasks; i++) {
+                int index = i;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    task.accept(index);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(120, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            context.close();
+        } finally {
+            postgres.close();
+        }
+    }
+}
@@ -67,7 +67,7 @@ export class DetailOrderAdminComponent implements OnInit{
         // }        
         this.orderResponse.order_details = response.order_details
           .map((order_detail:any) => {
-          order_detail.thumbnail = `${environment.apiBaseUrl}/products/images/${order_detail.thumbnail}`;
+          order_detail.thumbnail = `${environment.apiBaseUrl}/products/images/${order_detail.thumbnail}?size=thumb`;
           order_detail.number_of_products = order_detail.number_of_products
           order_detail.total_money = order_detail.total_money
           return order_detail;
@@ -55,7 +55,7 @@ export class ProductAdminComponent implements OnInit {
         const response = apiResponse.data;
         response.products.forEach((product: Product) => {
           if (product) {
-            product.thumbnail = `${environment.apiBaseUrl}/products/images/${product.thumbnail}`;
+            product.thumbnail = `${environment.apiBaseUrl}/products/images/${product.thumbnail}?size=thumb`;
           }
         });
         this.products = response.products;
@@ -57,7 +57,7 @@ export class OrderDetailComponent implements OnInit {
           order_details: response.order_details.map((detail: OrderDetail) => ({
             ...detail,
             thumbnail: detail.thumbnail
-              ? `${environment.apiBaseUrl}/products/images/${detail.thumbnail}`
+              ? `${environment.apiBaseUrl}/products/images/${detail.thumbnail}?size=thumb`
               : 'assets/images/no-image.png' // Ảnh mặc định nếu không có
           }))
         };
@@ -57,7 +57,7 @@ export class DetailProductComponent implements OnInit {
           const response = apiresponse.data;
           if (response.product_images && response.product_images.length > 0) {
             response.product_images.forEach((product_image: ProductImage, index: number) => {
-              product_image.image_url = `${environment.apiBaseUrl}/products/images/${product_image.image_url}`;
+              product_image.image_url = `${environment.apiBaseUrl}/products/images/${product_image.image_url}?size=detail`;
             });
           }
           
@@ -106,7 +106,7 @@ export class DetailProductComponent implements OnInit {
             ...(this.relatedProducts || []),
             ...response.products.map((product: any) => ({
               ...product,
-              thumbnail: `${environment.apiBaseUrl}/products/images/${product.thumbnail}`
+              thumbnail: `${environment.apiBaseUrl}/products/images/${product.thumbnail}?size=thumb`
             }))
           ];
           this.totalPages = response.totalPages;
@@ -61,12 +61,13 @@ export class HomeComponent implements OnInit {
     
     getProducts(keyword: string, selectedCategoryId: number, page: number, limit: number) {
       
-      this.productService.getProducts(keyword, selectedCategoryId, page, limit).subscribe({
+      // kèm điểm đánh giá trong cùng một request
+      this.productService.getProducts(keyword, selectedCategoryId, page, limit, 'ratings').subscribe({
         next: (apiresponse: ApiResponse) => {
           
           const response = apiresponse.data;
           response.products.forEach((product: Product) => {          
-            product.url = `${environment.apiBaseUrl}/products/images/${product.thumbnail}`;
+            product.url = `${environment.apiBaseUrl}/products/images/${product.thumbnail}?size=thumb`;
           });
           this.products = response.products;          
           this.totalPages = response.totalPages;
@@ -89,7 +89,7 @@ export class OrderComponent implements OnInit{
           
           const variant = variants.find((v: { id: number; }) => v.id === variantId)
           if (variant) {
-            variant.thumbnail = `${environment.apiBaseUrl}/products/images/${variant.thumbnail}`;
+            variant.thumbnail = `${environment.apiBaseUrl}/products/images/${variant.thumbnail}?size=thumb`;
           }          
           return {
             variant: variant!,
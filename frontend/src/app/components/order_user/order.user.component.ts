@@ -17,6 +17,7 @@ export class OrderUserComponent implements OnInit {
   orderResponses: OrderResponse[] = [];
   selectedStatus: string = "";
   keyword: string = "";
+  nextCursor: string | null = null;
   constructor(
     private orderService: OrderService,
     private router: Router,
@@ -27,25 +28,32 @@ export class OrderUserComponent implements OnInit {
     this.getOrderByUser(this.keyword, this.selectedStatus);
   }
 
-  getOrderByUser(keyword: string, status: string): void {
-    this.orderService.getOrdersByUser(keyword, status).subscribe({
+  // append = true: nối trang tiếp theo vào danh sách đang hiển thị
+  getOrderByUser(keyword: string, status: string, append: boolean = false): void {
+    const after = append && this.nextCursor ? this.nextCursor : '';
+    this.orderService.getOrdersByUser(keyword, status, after).subscribe({
       next: (apiResponse: ApiResponse) => {
-        const responses = apiResponse.data;
-        this.orderResponses = responses.map((response: { order_details: OrderDetail[]; }) => ({
+        const responses = apiResponse.data.orders;
+        this.nextCursor = apiResponse.data.nextCursor;
+        const orders = responses.map((response: { order_details: OrderDetail[]; }) => ({
           ...response,
           order_details: response.order_details.map((detail: OrderDetail) => ({
             ...detail,
             thumbnail: detail.thumbnail
-              ? `${environment.apiBaseUrl}/products/images/${detail.thumbnail}`
+              ? `${environment.apiBaseUrl}/products/images/${detail.thumbnail}?size=thumb`
               : 'assets/images/no-image.png' // Ảnh mặc định nếu không có
           }))
         }));
-        console.log(this.selectedStatus);
+        this.orderResponses = append ? [...this.orderResponses, ...orders] : orders;
       },
       error: (error: any) => console.error('Error fetching orders:', error)
     });
   }
 
+  loadMore(): void {
+    this.getOrderByUser(this.keyword, this.selectedStatus, true);
+  }
+
   searchOrders(): void {
     this.getOrderByUser(this.keyword, this.selectedStatus);
   }
@@ -10,6 +10,9 @@ export interface Product {
   url: string;
   product_images: ProductImage[];
   product_variants: ProductVariant[];
+  // chỉ có khi gọi API với include=ratings
+  avg_rating?: number;
+  review_count?: number;
 }
 
   
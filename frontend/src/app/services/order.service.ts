@@ -37,10 +37,12 @@ export class OrderService {
       .set('limit', limit.toString());            
       return this.http.get<ApiResponse>(this.apiGetAllOrders, { params });
   }
-  getOrdersByUser(keyword: string, status: string): Observable<ApiResponse> {
+  // Phân trang keyset: after rỗng là trang đầu, trang sau truyền nextCursor của trang trước
+  getOrdersByUser(keyword: string, status: string, after: string = ''): Observable<ApiResponse> {
     const params = new HttpParams()
     .set('keyword', keyword)
-    .set('status', status);   
+    .set('status', status)
+    .set('after', after);
     return this.http.get<ApiResponse>(`${environment.apiBaseUrl}/orders/user`, {params});
   }
   
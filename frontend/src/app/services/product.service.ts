@@ -19,14 +19,18 @@ export class ProductService {
     keyword: string,
     categoryId: number,
     page: number,
-    limit: number
+    limit: number,
+    include: string = ''
   ): Observable<ApiResponse> {
-    const params = {
+    const params: any = {
       keyword: keyword,
       category_id: categoryId.toString(),
       page: page.toString(),
       limit: limit.toString()
     };
+    if (include) {
+      params.include = include;
+    }
     return this.http.get<ApiResponse>(`${this.apiBaseUrl}/products`, { params });
   }
 
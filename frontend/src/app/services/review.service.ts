@@ -44,10 +44,10 @@ export class ReviewService {
     return this.http.get<ReviewStats>(`${this.apiBaseUrl}/reviews/product/${productId}/stats`);
   }
 
-  // Lấy reviews của user hiện tại
-  getUserReviews(page: number = 0, limit: number = 10): Observable<any> {
+  // Lấy reviews của user hiện tại, after = next_cursor của trang trước ('' là trang đầu)
+  getUserReviews(after: string = '', limit: number = 10): Observable<any> {
     const params = new HttpParams()
-      .set('page', page.toString())
+      .set('after', after)
       .set('limit', limit.toString());
 
     return this.http.get(`${this.apiBaseUrl}/reviews/user`, { params });